@@ -141,7 +141,11 @@ def main():
     if jar:
         print(f"[INFO] Starting from JAR: {jar}", flush=True)
         try:
-            subprocess.run(["java", "-jar", jar], cwd=BASE_DIR, check=True)
+            subprocess.run(
+                ["java", "--add-modules", "jdk.incubator.vector", "-jar", jar],
+                cwd=BASE_DIR,
+                check=True,
+            )
         except Exception as exc:
             start_fallback_server(f"java -jar failed: {exc}")
     else:
@@ -0,0 +1,65 @@
+package com.pawzzle.domain.notification;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(
+    name = "adopter_notifications",
+    uniqueConstraints = @UniqueConstraint(columnNames = { "user_id", "pet_id" }),
+    indexes = @Index(name = "idx_adopter_notifications_user_status", columnList = "user_id, status")
+)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdopterNotification {
+    public enum Status {
+        PENDING,
+        SENT
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "pet_id", nullable = false)
+    private Long petId;
+
+    @Column(nullable = false)
+    private Double score;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @PrePersist
+    public void onCreate() {
+        if (createdAt == null) {
+            createdAt = Instant.now();
+        }
+        if (status == null) {
+            status = Status.PENDING;
+        }
+    }
+}
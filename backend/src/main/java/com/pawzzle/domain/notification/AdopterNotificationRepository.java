@@ -0,0 +1,8 @@
+package com.pawzzle.domain.notification;
+
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface AdopterNotificationRepository extends JpaRepository<AdopterNotification, Long> {
+    List<AdopterNotification> findByPetIdIn(List<Long> petIds);
+}
@@ -11,20 +11,26 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import java.time.Instant;
 import java.util.List;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.ColumnTransformer;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 
 @Entity
-@Table(name = "pets")
+@Table(name = "pets", indexes = @Index(name = "idx_pets_enrichment_fingerprint", columnList = "enrichment_fingerprint"))
+@DynamicUpdate
 @Data
 @Builder
 @NoArgsConstructor
@@ -93,7 +99,20 @@ public class Pet {
 	@Column(name = "personality_vector", columnDefinition = "vector(1536)")
 	private List<Double> personalityVector;
 
+	// Hash of the inputs, prompts and models behind structuredTags and personalityVector.
+	@Column(name = "enrichment_fingerprint", length = 64)
+	private String enrichmentFingerprint;
+
 	@ManyToOne
 	@JoinColumn(name = "owner_id")
 	private User owner;
+
+	@Column(name = "updated_at", columnDefinition = "timestamp default now()")
+	private Instant updatedAt;
+
+	@PrePersist
+	@PreUpdate
+	public void onWrite() {
+		updatedAt = Instant.now();
+	}
 }
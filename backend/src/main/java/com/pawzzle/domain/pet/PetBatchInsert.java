@@ -0,0 +1,8 @@
+package com.pawzzle.domain.pet;
+
+import java.util.List;
+
+public interface PetBatchInsert {
+	// Inserts new pets with one batched statement and sets their ids.
+	List<Pet> insertAll(List<Pet> pets);
+}
@@ -0,0 +1,76 @@
+package com.pawzzle.domain.pet;
+
+import com.pawzzle.domain.vector.VectorSqlUtils;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+// IDENTITY ids make JPA insert pets one statement at a time, so batches take their ids from the
+// identity sequence up front and go out as a single JDBC batch.
+@RequiredArgsConstructor
+class PetBatchInsertImpl implements PetBatchInsert {
+	private static final String ALLOCATE_IDS_SQL =
+		"select nextval(pg_get_serial_sequence('pets', 'id')) from generate_series(1, ?)";
+	private static final String INSERT_SQL = """
+		insert into pets (id, name, species, status, breed, gender, neutered, health_status, age, energy, trait,
+			distance, icon, tone, image_url, raw_description, structured_tags, personality_vector, enrichment_fingerprint,
+			owner_id, updated_at)
+		values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, cast(? as jsonb), cast(? as vector), ?, ?, ?)
+		""";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	@Override
+	@Transactional
+	public List<Pet> insertAll(List<Pet> pets) {
+		if (pets.isEmpty()) {
+			return pets;
+		}
+		List<Long> ids = jdbcTemplate.queryForList(ALLOCATE_IDS_SQL, Long.class, pets.size());
+		Instant now = Instant.now();
+		jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+			@Override
+			public void setValues(PreparedStatement ps, int i) throws SQLException {
+				Pet pet = pets.get(i);
+				ps.setLong(1, ids.get(i));
+				ps.setString(2, pet.getName());
+				ps.setString(3, pet.getSpecies().name());
+				ps.setString(4, pet.getStatus().name());
+				ps.setString(5, pet.getBreed());
+				ps.setString(6, pet.getGender());
+				ps.setString(7, pet.getNeutered());
+				ps.setString(8, pet.getHealthStatus());
+				ps.setString(9, pet.getAge());
+				ps.setString(10, pet.getEnergy());
+				ps.setString(11, pet.getTrait());
+				ps.setString(12, pet.getDistance());
+				ps.setString(13, pet.getIcon());
+				ps.setString(14, pet.getTone());
+				ps.setString(15, pet.getImageUrl());
+				ps.setString(16, pet.getRawDescription());
+				ps.setString(17, pet.getStructuredTags() == null ? null : pet.getStructuredTags().toString());
+				ps.setString(18, pet.getPersonalityVector() == null ? null : VectorSqlUtils.toVector(pet.getPersonalityVector()));
+				ps.setString(19, pet.getEnrichmentFingerprint());
+				ps.setObject(20, pet.getOwner() == null ? null : pet.getOwner().getId(), Types.BIGINT);
+				ps.setTimestamp(21, Timestamp.from(now));
+			}
+
+			@Override
+			public int getBatchSize() {
+				return pets.size();
+			}
+		});
+		for (int i = 0; i < pets.size(); i++) {
+			pets.get(i).setId(ids.get(i));
+			pets.get(i).setUpdatedAt(now);
+		}
+		return pets;
+	}
+}
@@ -0,0 +1,4 @@
+package com.pawzzle.domain.pet;
+
+public record PetChangedEvent(Long petId) {
+}
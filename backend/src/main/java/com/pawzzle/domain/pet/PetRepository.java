@@ -1,29 +1,27 @@
 package com.pawzzle.domain.pet;
 
-import com.pawzzle.domain.vector.VectorSqlUtils;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
-public interface PetRepository extends JpaRepository<Pet, Long> {
+public interface PetRepository extends JpaRepository<Pet, Long>, PetVectorSearch, PetBatchInsert {
 	boolean existsByName(String name);
 
+	@Query("select p.name from Pet p where p.name in :names")
+	List<String> findExistingNames(@Param("names") Collection<String> names);
+
+	Optional<Pet> findFirstByNameAndOwnerIsNullOrderByIdAsc(String name);
+
+	Optional<Pet> findFirstByNameAndOwnerIdOrderByIdAsc(String name, Long ownerId);
+
+	Optional<Pet> findFirstByEnrichmentFingerprint(String enrichmentFingerprint);
+
 	List<Pet> findByStatusOrderByIdDesc(Pet.Status status);
 
-	List<Pet> findByOwnerIdOrderByIdDesc(Long ownerId);
+	long countByStatus(Pet.Status status);
 
-	@Query(value = """
-		select *
-		from pets p
-		where (:species is null or p.species = :species)
-		  and p.status = 'OPEN'
-		order by p.personality_vector <=> cast(:#{T(com.pawzzle.domain.vector.VectorSqlUtils).toVector(#userVector)} as vector)
-		limit :limit
-		""", nativeQuery = true)
-	List<Pet> hybridSearch(
-		@Param("species") String species,
-		@Param("userVector") List<Double> userVector,
-		@Param("limit") int limit
-	);
+	List<Pet> findByOwnerIdOrderByIdDesc(Long ownerId);
 }
@@ -0,0 +1,7 @@
+package com.pawzzle.domain.pet;
+
+import java.util.List;
+
+public interface PetVectorSearch {
+	List<Pet> hybridSearch(String species, List<Double> userVector, int limit);
+}
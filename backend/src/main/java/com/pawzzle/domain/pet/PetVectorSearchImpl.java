@@ -0,0 +1,47 @@
+package com.pawzzle.domain.pet;
+
+import com.pawzzle.domain.vector.VectorSqlUtils;
+import com.pawzzle.domain.vector.VectorStorageProfile;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.transaction.annotation.Transactional;
+
+@RequiredArgsConstructor
+class PetVectorSearchImpl implements PetVectorSearch {
+	private final VectorStorageProfile vectorStorageProfile;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	@Transactional(readOnly = true)
+	@SuppressWarnings("unchecked")
+	public List<Pet> hybridSearch(String species, List<Double> userVector, int limit) {
+		boolean compact = vectorStorageProfile.isCompact();
+		String column = compact ? "personality_compact" : "personality_vector";
+		String castType = compact ? vectorStorageProfile.columnType() : "vector";
+		List<Double> queryVector = compact ? vectorStorageProfile.reduce(userVector) : userVector;
+
+		StringBuilder sql = new StringBuilder("select * from pets p where p.status = 'OPEN'");
+		if (species != null) {
+			sql.append(" and p.species = :species");
+		}
+		sql.append(" order by p.").append(column)
+			.append(" <=> cast(:userVector as ").append(castType).append(")")
+			.append(" limit :limit");
+
+		entityManager.createNativeQuery(VectorSqlUtils.EF_SEARCH_SQL)
+			.setParameter(1, VectorSqlUtils.efSearch(limit))
+			.getSingleResult();
+		Query query = entityManager.createNativeQuery(sql.toString(), Pet.class)
+			.setParameter("userVector", VectorSqlUtils.toVector(queryVector))
+			.setParameter("limit", limit);
+		if (species != null) {
+			query.setParameter("species", species);
+		}
+		return query.getResultList();
+	}
+}
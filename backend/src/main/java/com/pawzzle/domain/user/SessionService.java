@@ -1,6 +1,8 @@
 package com.pawzzle.domain.user;
 
+import java.util.Arrays;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
@@ -10,6 +12,9 @@ import org.springframework.web.server.ResponseStatusException;
 public class SessionService {
     private final UserSessionRepository userSessionRepository;
 
+    @Value("${pawzzle.admin.emails:}")
+    private String adminEmails;
+
     public User requireUser(String authorization, String tokenFromBody) {
         String token = extractToken(authorization, tokenFromBody);
         if (token == null || token.isBlank()) {
@@ -20,6 +25,18 @@ public class SessionService {
         return session.getUser();
     }
 
+    // Admins are the accounts listed in pawzzle.admin.emails; with none listed, admin endpoints are closed.
+    public User requireAdmin(String authorization) {
+        User user = requireUser(authorization, null);
+        boolean admin = user.getEmail() != null && Arrays.stream(adminEmails.split(","))
+            .map(String::trim)
+            .anyMatch(email -> !email.isEmpty() && email.equalsIgnoreCase(user.getEmail().trim()));
+        if (!admin) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Admin access required");
+        }
+        return user;
+    }
+
     private String extractToken(String authorization, String tokenFromBody) {
         if (authorization != null && authorization.startsWith("Bearer ")) {
             return authorization.substring("Bearer ".length()).trim();
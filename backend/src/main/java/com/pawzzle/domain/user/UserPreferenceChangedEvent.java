@@ -0,0 +1,4 @@
+package com.pawzzle.domain.user;
+
+public record UserPreferenceChangedEvent(Long userId) {
+}
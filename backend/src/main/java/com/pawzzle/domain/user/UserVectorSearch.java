@@ -0,0 +1,10 @@
+package com.pawzzle.domain.user;
+
+import java.util.List;
+
+public interface UserVectorSearch {
+    List<AdopterCandidate> findInterestedAdopters(List<Double> petVector, Long excludeUserId, int limit);
+
+    record AdopterCandidate(Long userId, double score) {
+    }
+}
@@ -0,0 +1,56 @@
+package com.pawzzle.domain.user;
+
+import com.pawzzle.domain.vector.VectorSqlUtils;
+import com.pawzzle.domain.vector.VectorStorageProfile;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.transaction.annotation.Transactional;
+
+@RequiredArgsConstructor
+class UserVectorSearchImpl implements UserVectorSearch {
+	private final VectorStorageProfile vectorStorageProfile;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	// Ordered by raw distance so the HNSW index on the preference column serves the query. The
+	// index stops after ef_search candidates and the filters apply afterwards, so it is widened
+	// for this transaction to leave room for both the limit and the filtered-out rows.
+	@Override
+	@Transactional(readOnly = true)
+	@SuppressWarnings("unchecked")
+	public List<AdopterCandidate> findInterestedAdopters(List<Double> petVector, Long excludeUserId, int limit) {
+		boolean compact = vectorStorageProfile.isCompact();
+		String column = compact ? "preference_compact" : "preference_vector";
+		String castType = compact ? vectorStorageProfile.columnType() : "vector";
+		List<Double> queryVector = compact ? vectorStorageProfile.reduce(petVector) : petVector;
+		String target = "cast(:petVector as " + castType + ")";
+
+		String sql = """
+			select u.id, 1 - (u.%s <=> %s) as score
+			from users u
+			where u.%s is not null
+			  and u.user_intent is distinct from 'GIVER'
+			  and u.id <> :excludeUserId
+			order by u.%s <=> %s
+			limit :limit
+			""".formatted(column, target, column, column, target);
+
+		entityManager.createNativeQuery(VectorSqlUtils.EF_SEARCH_SQL)
+			.setParameter(1, VectorSqlUtils.efSearch(limit))
+			.getSingleResult();
+		List<Object[]> rows = entityManager.createNativeQuery(sql)
+			.setParameter("petVector", VectorSqlUtils.toVector(queryVector))
+			.setParameter("excludeUserId", excludeUserId == null ? -1L : excludeUserId)
+			.setParameter("limit", limit)
+			.getResultList();
+		List<AdopterCandidate> result = new ArrayList<>(rows.size());
+		for (Object[] row : rows) {
+			result.add(new AdopterCandidate(((Number) row[0]).longValue(), ((Number) row[1]).doubleValue()));
+		}
+		return result;
+	}
+}
@@ -0,0 +1,151 @@
+package com.pawzzle.domain.vector;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Splits a vector into equal subspaces and stores each as the index of its nearest
+// of up to 256 trained centroids, so a vector costs one byte per subspace.
+public final class ProductQuantizer {
+    public static final int MAX_CENTROIDS = 256;
+
+    private final int dimensions;
+    private final int subspaces;
+    private final int subDimensions;
+    private final int centroids;
+    private final float[][] codebooks;
+
+    private ProductQuantizer(int dimensions, int subspaces, int centroids, float[][] codebooks) {
+        this.dimensions = dimensions;
+        this.subspaces = subspaces;
+        this.subDimensions = dimensions / subspaces;
+        this.centroids = centroids;
+        this.codebooks = codebooks;
+    }
+
+    public static ProductQuantizer train(float[][] samples, int subspaces, int iterations, long seed) {
+        if (samples.length == 0) {
+            throw new IllegalArgumentException("At least one training vector is required");
+        }
+        int dimensions = samples[0].length;
+        int resolvedSubspaces = resolveSubspaces(dimensions, subspaces);
+        int subDimensions = dimensions / resolvedSubspaces;
+        int centroids = Math.min(MAX_CENTROIDS, samples.length);
+        Random random = new Random(seed);
+
+        float[][] codebooks = new float[resolvedSubspaces][];
+        for (int m = 0; m < resolvedSubspaces; m += 1) {
+            codebooks[m] = kMeans(samples, m * subDimensions, subDimensions, centroids, iterations, random);
+        }
+        return new ProductQuantizer(dimensions, resolvedSubspaces, centroids, codebooks);
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public int codeSize() {
+        return subspaces;
+    }
+
+    public void encode(float[] vector, byte[] target, int offset) {
+        for (int m = 0; m < subspaces; m += 1) {
+            int start = m * subDimensions;
+            int best = 0;
+            float bestDistance = Float.MAX_VALUE;
+            float[] codebook = codebooks[m];
+            for (int c = 0; c < centroids; c += 1) {
+                float distance = VectorMath.squaredDistance(vector, start, codebook, c * subDimensions, subDimensions);
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = c;
+                }
+            }
+            target[offset + m] = (byte) best;
+        }
+    }
+
+    // Inner products of every query sub-vector with every centroid; scoring a code is then
+    // one table lookup per subspace instead of a full dot product.
+    public float[] lookupTable(float[] query) {
+        float[] table = new float[subspaces * MAX_CENTROIDS];
+        for (int m = 0; m < subspaces; m += 1) {
+            int start = m * subDimensions;
+            float[] codebook = codebooks[m];
+            for (int c = 0; c < centroids; c += 1) {
+                table[m * MAX_CENTROIDS + c] = VectorMath.dot(query, start, codebook, c * subDimensions, subDimensions);
+            }
+        }
+        return table;
+    }
+
+    public float score(float[] table, byte[] codes, int offset) {
+        float sum = 0f;
+        for (int m = 0; m < subspaces; m += 1) {
+            sum += table[m * MAX_CENTROIDS + (codes[offset + m] & 0xFF)];
+        }
+        return sum;
+    }
+
+    private static int resolveSubspaces(int dimensions, int requested) {
+        int candidate = Math.max(1, Math.min(requested, dimensions));
+        while (dimensions % candidate != 0) {
+            candidate -= 1;
+        }
+        return candidate;
+    }
+
+    private static float[] kMeans(float[][] samples, int start, int length, int k, int iterations, Random random) {
+        float[] centers = new float[k * length];
+        int[] order = shuffledIndexes(samples.length, random);
+        for (int c = 0; c < k; c += 1) {
+            System.arraycopy(samples[order[c]], start, centers, c * length, length);
+        }
+
+        float[] sums = new float[k * length];
+        int[] counts = new int[k];
+        for (int iteration = 0; iteration < iterations; iteration += 1) {
+            Arrays.fill(sums, 0f);
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < samples.length; i += 1) {
+                int best = 0;
+                float bestDistance = Float.MAX_VALUE;
+                for (int c = 0; c < k; c += 1) {
+                    float distance = VectorMath.squaredDistance(samples[i], start, centers, c * length, length);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = c;
+                    }
+                }
+                counts[best] += 1;
+                for (int d = 0; d < length; d += 1) {
+                    sums[best * length + d] += samples[i][start + d];
+                }
+            }
+            for (int c = 0; c < k; c += 1) {
+                if (counts[c] == 0) {
+                    // Re-seed empty clusters from a random sample so no centroid is wasted.
+                    System.arraycopy(samples[random.nextInt(samples.length)], start, centers, c * length, length);
+                    continue;
+                }
+                for (int d = 0; d < length; d += 1) {
+                    centers[c * length + d] = sums[c * length + d] / counts[c];
+                }
+            }
+        }
+        return centers;
+    }
+
+    private static int[] shuffledIndexes(int size, Random random) {
+        int[] indexes = new int[size];
+        for (int i = 0; i < size; i += 1) {
+            indexes[i] = i;
+        }
+        for (int i = size - 1; i > 0; i -= 1) {
+            int j = random.nextInt(i + 1);
+            int tmp = indexes[i];
+            indexes[i] = indexes[j];
+            indexes[j] = tmp;
+        }
+        return indexes;
+    }
+}
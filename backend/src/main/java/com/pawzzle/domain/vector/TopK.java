@@ -0,0 +1,104 @@
+package com.pawzzle.domain.vector;
+
+// Bounded min-heap over primitive (id, score) pairs; keeps the k highest scores without boxing.
+public final class TopK {
+    private final long[] ids;
+    private final float[] scores;
+    private int size;
+
+    public TopK(int capacity) {
+        int bounded = Math.max(1, capacity);
+        this.ids = new long[bounded];
+        this.scores = new float[bounded];
+    }
+
+    public int capacity() {
+        return ids.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public float threshold() {
+        return size < ids.length ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    public void offer(long id, float score) {
+        if (size < ids.length) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size);
+            size += 1;
+        } else if (score > scores[0]) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    public void merge(TopK other) {
+        for (int i = 0; i < other.size; i += 1) {
+            offer(other.ids[i], other.scores[i]);
+        }
+    }
+
+    // Drains the heap into descending score order.
+    public Result drain() {
+        int count = size;
+        long[] sortedIds = new long[count];
+        float[] sortedScores = new float[count];
+        for (int i = count - 1; i >= 0; i -= 1) {
+            sortedIds[i] = ids[0];
+            sortedScores[i] = scores[0];
+            size -= 1;
+            if (size > 0) {
+                ids[0] = ids[size];
+                scores[0] = scores[size];
+                siftDown(0);
+            }
+        }
+        return new Result(sortedIds, sortedScores);
+    }
+
+    private void siftUp(int index) {
+        int child = index;
+        while (child > 0) {
+            int parent = (child - 1) >>> 1;
+            if (scores[parent] <= scores[child]) {
+                break;
+            }
+            swap(parent, child);
+            child = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        int parent = index;
+        while (true) {
+            int left = parent * 2 + 1;
+            if (left >= size) {
+                return;
+            }
+            int right = left + 1;
+            int smallest = right < size && scores[right] < scores[left] ? right : left;
+            if (scores[parent] <= scores[smallest]) {
+                return;
+            }
+            swap(parent, smallest);
+            parent = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+
+    public record Result(long[] ids, float[] scores) {
+    }
+}
@@ -0,0 +1,71 @@
+package com.pawzzle.domain.vector;
+
+import java.util.Arrays;
+import java.util.List;
+
+public final class VectorMath {
+    private VectorMath() {
+    }
+
+    public static float[] toFloatArray(List<Double> values) {
+        if (values == null) {
+            return new float[0];
+        }
+        float[] result = new float[values.size()];
+        for (int i = 0; i < result.length; i += 1) {
+            Double value = values.get(i);
+            result[i] = value == null ? 0f : value.floatValue();
+        }
+        return result;
+    }
+
+    public static float[] normalize(float[] vector) {
+        double sumSquares = 0;
+        for (float value : vector) {
+            sumSquares += value * value;
+        }
+        if (sumSquares == 0) {
+            return vector;
+        }
+        float scale = (float) (1.0 / Math.sqrt(sumSquares));
+        for (int i = 0; i < vector.length; i += 1) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    public static float[] truncate(float[] vector, int dimensions) {
+        if (vector.length <= dimensions) {
+            return vector;
+        }
+        return Arrays.copyOf(vector, dimensions);
+    }
+
+    public static float dot(float[] a, float[] b) {
+        return dot(a, 0, b, 0, Math.min(a.length, b.length));
+    }
+
+    public static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float sum = 0f;
+        for (int i = 0; i < length; i += 1) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    public static float squaredDistance(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float sum = 0f;
+        for (int i = 0; i < length; i += 1) {
+            float diff = a[aOffset + i] - b[bOffset + i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    public static float cosine(List<Double> a, float[] normalizedQuery) {
+        if (a == null || a.size() != normalizedQuery.length) {
+            return Float.NEGATIVE_INFINITY;
+        }
+        return dot(normalize(toFloatArray(a)), normalizedQuery);
+    }
+}
@@ -7,6 +7,15 @@ public final class VectorSqlUtils {
     private VectorSqlUtils() {
     }
 
+    // An HNSW scan hands at most hnsw.ef_search rows (pgvector default 40) to the rest of the plan,
+    // and WHERE filters run on those, so a query that wants `limit` filtered rows must widen the
+    // candidate list for its own transaction. 1000 is pgvector's upper bound.
+    public static final String EF_SEARCH_SQL = "select set_config('hnsw.ef_search', ?1, true)";
+
+    public static String efSearch(int limit) {
+        return String.valueOf(Math.min(1000, Math.max(limit * 2, 100)));
+    }
+
     public static String toVector(List<Double> values) {
         if (values == null || values.isEmpty()) {
             return "[]";
@@ -0,0 +1,92 @@
+package com.pawzzle.domain.vector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class VectorStorageProfile {
+    public static final int FULL_DIMENSIONS = 1536;
+
+    public enum Type {
+        VECTOR,
+        HALFVEC
+    }
+
+    private final int dimensions;
+    private final Type type;
+
+    public VectorStorageProfile(
+        @Value("${pawzzle.vector.storage.dimensions:1536}") int dimensions,
+        @Value("${pawzzle.vector.storage.type:vector}") String type
+    ) {
+        if (dimensions <= 0 || dimensions > FULL_DIMENSIONS) {
+            throw new IllegalStateException(
+                "pawzzle.vector.storage.dimensions must be between 1 and " + FULL_DIMENSIONS);
+        }
+        this.dimensions = dimensions;
+        this.type = parseType(type);
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public Type type() {
+        return type;
+    }
+
+    public boolean isCompact() {
+        return dimensions < FULL_DIMENSIONS || type == Type.HALFVEC;
+    }
+
+    public String columnType() {
+        return type.name().toLowerCase(Locale.ROOT) + "(" + dimensions + ")";
+    }
+
+    public String cosineOps() {
+        return type == Type.HALFVEC ? "halfvec_cosine_ops" : "vector_cosine_ops";
+    }
+
+    // text-embedding-3 vectors stay meaningful when truncated, as long as they are re-normalized.
+    public String compactExpression(String sourceColumn) {
+        if (dimensions < FULL_DIMENSIONS) {
+            return "l2_normalize(subvector(" + sourceColumn + ", 1, " + dimensions + "))::" + columnType();
+        }
+        return sourceColumn + "::" + columnType();
+    }
+
+    public List<Double> reduce(List<Double> vector) {
+        if (vector == null || vector.isEmpty() || vector.size() <= dimensions) {
+            return vector;
+        }
+        double sumSquares = 0;
+        for (int i = 0; i < dimensions; i += 1) {
+            Double value = vector.get(i);
+            double v = value == null ? 0 : value;
+            sumSquares += v * v;
+        }
+        double norm = Math.sqrt(sumSquares);
+        List<Double> reduced = new ArrayList<>(dimensions);
+        for (int i = 0; i < dimensions; i += 1) {
+            Double value = vector.get(i);
+            double v = value == null ? 0 : value;
+            reduced.add(norm == 0 ? v : v / norm);
+        }
+        return reduced;
+    }
+
+    private Type parseType(String value) {
+        String normalized = value == null ? "" : value.trim().toUpperCase(Locale.ROOT);
+        if (normalized.isEmpty()) {
+            return Type.VECTOR;
+        }
+        try {
+            return Type.valueOf(normalized);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalStateException("pawzzle.vector.storage.type must be vector or halfvec");
+        }
+    }
+}
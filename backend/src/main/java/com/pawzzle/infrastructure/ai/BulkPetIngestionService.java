@@ -0,0 +1,548 @@
+package com.pawzzle.infrastructure.ai;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pawzzle.domain.pet.Pet;
+import com.pawzzle.domain.pet.PetChangedEvent;
+import com.pawzzle.domain.pet.PetRepository;
+import com.pawzzle.domain.user.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Bulk onboarding for shelters. The upload is read one row at a time as it arrives and every valid
+// row goes to a fixed pool for enrichment, so at most `concurrency` pets are with the model at once
+// however large the file. Enriched rows collect into batches that share one embedding call and one
+// JDBC batch insert. Jobs and their per-row status are kept in memory for job-ttl-minutes.
+@Service
+@RequiredArgsConstructor
+public class BulkPetIngestionService {
+    private static final Logger log = LoggerFactory.getLogger(BulkPetIngestionService.class);
+
+    private final PetIngestionService petIngestionService;
+    private final EmbeddingClient embeddingClient;
+    private final PetRepository petRepository;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private ExecutorService workers;
+
+    @Value("${pawzzle.ingest.bulk.concurrency:16}")
+    private int concurrency;
+
+    @Value("${pawzzle.ingest.bulk.batch-size:32}")
+    private int batchSize;
+
+    @Value("${pawzzle.ingest.bulk.max-rows:5000}")
+    private int maxRows;
+
+    @Value("${pawzzle.ingest.bulk.job-ttl-minutes:60}")
+    private long jobTtlMinutes;
+
+    public enum Format {
+        JSONL,
+        CSV
+    }
+
+    @PostConstruct
+    void startWorkers() {
+        workers = Executors.newFixedThreadPool(Math.max(1, concurrency), daemon("PawzzleIngest"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    // Reads the whole upload on the calling thread, queueing rows as they are parsed, and returns
+    // once the last row is queued; enrichment and inserts carry on in the background.
+    public JobView start(Reader upload, Format format, User owner) {
+        evict();
+        Job job = new Job(UUID.randomUUID().toString(), owner);
+        jobs.put(job.id, job);
+        try (BufferedReader reader = new BufferedReader(upload)) {
+            if (format == Format.CSV) {
+                readCsv(reader, job);
+            } else {
+                readJsonl(reader, job);
+            }
+        } catch (IOException ex) {
+            log.warn("Bulk upload {} stopped early: {}", job.id, ex.getMessage());
+            job.uploadError("upload interrupted: " + ex.getMessage());
+        }
+        job.uploadComplete();
+        // Rows may all have been enriched before the upload finished; flush what is left.
+        workers.execute(() -> flushReady(job));
+        return job.view();
+    }
+
+    // Jobs are only visible to the user who started them.
+    public Optional<JobView> status(String jobId, long ownerId) {
+        evict();
+        return Optional.ofNullable(jobs.get(jobId)).filter(job -> job.owner.getId() == ownerId).map(Job::view);
+    }
+
+    private void readJsonl(BufferedReader reader, Job job) throws IOException {
+        String line;
+        int number = 0;
+        while ((line = reader.readLine()) != null) {
+            number++;
+            if (line.isBlank()) {
+                continue;
+            }
+            ImportRow row;
+            try {
+                row = objectMapper.readValue(line, ImportRow.class);
+            } catch (JsonProcessingException ex) {
+                if (!accept(job, number, null, null, null, "invalid JSON: " + ex.getOriginalMessage())) {
+                    return;
+                }
+                continue;
+            }
+            if (!accept(job, number, row.name(), row.species(), row.description(), null)) {
+                return;
+            }
+        }
+    }
+
+    private void readCsv(BufferedReader reader, Job job) throws IOException {
+        CsvRecords csv = new CsvRecords(reader);
+        List<String> header = csv.next();
+        if (header == null) {
+            return;
+        }
+        int nameAt = column(header, "name");
+        int speciesAt = column(header, "species");
+        int descriptionAt = Math.max(column(header, "description"), column(header, "raw_description"));
+        if (nameAt < 0 || speciesAt < 0 || descriptionAt < 0) {
+            job.uploadError("CSV header must contain name, species and description columns");
+            return;
+        }
+        List<String> record;
+        while ((record = csv.next()) != null) {
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+            if (!accept(job, csv.line(), field(record, nameAt), field(record, speciesAt), field(record, descriptionAt), null)) {
+                return;
+            }
+        }
+    }
+
+    // False once the row limit is reached, which ends the upload.
+    private boolean accept(Job job, int line, String name, String species, String description, String error) {
+        if (job.size() >= maxRows) {
+            job.uploadError("row limit of " + maxRows + " reached at line " + line);
+            return false;
+        }
+        String trimmedName = name == null ? "" : name.trim();
+        Pet.Species parsedSpecies = parseSpecies(species);
+        if (error == null && trimmedName.isEmpty()) {
+            error = "name is required";
+        } else if (error == null && parsedSpecies == null) {
+            error = "species must be CAT or DOG";
+        } else if (error == null && (description == null || description.isBlank())) {
+            error = "description is required";
+        } else if (error == null && !job.claimName(trimmedName)) {
+            error = "name already used earlier in this upload";
+        }
+        Row row = job.add(line, trimmedName.isEmpty() ? null : trimmedName, parsedSpecies, description, error);
+        if (error != null) {
+            count("rejected", 1);
+        } else {
+            workers.execute(() -> enrich(job, row));
+        }
+        return true;
+    }
+
+    // A row whose pet already exists with a matching fingerprint is done without any model call;
+    // otherwise tags and vector are copied from any pet enriched from the same inputs, or computed.
+    private void enrich(Job job, Row row) {
+        try {
+            row.fingerprint = petIngestionService.fingerprint(row.name, row.description, row.species.name());
+            row.existing = petIngestionService.findExisting(row.name, job.owner).orElse(null);
+            if (row.existing != null && row.fingerprint.equals(row.existing.getEnrichmentFingerprint())) {
+                job.unchanged(row, row.existing.getId());
+                count("unchanged", 1);
+            } else {
+                Optional<PetIngestionService.Profile> stored = petIngestionService.storedProfile(row.fingerprint);
+                if (stored.isPresent()) {
+                    row.tags = stored.get().tags();
+                    row.vector = stored.get().vector();
+                } else {
+                    PetIngestionService.Enrichment enrichment =
+                        petIngestionService.enrich(row.name, row.description, row.species.name());
+                    row.tags = enrichment.tags();
+                    row.profileText = enrichment.profileText();
+                }
+                job.enriched(row);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Bulk enrichment failed for {} line {}: {}", job.id, row.line, ex.getMessage());
+            job.failed(List.of(row), "enrichment failed: " + ex.getMessage());
+            count("failed", 1);
+        }
+        flushReady(job);
+    }
+
+    private void flushReady(Job job) {
+        List<Row> batch;
+        while ((batch = job.takeBatch(batchSize)) != null) {
+            write(job, batch);
+        }
+    }
+
+    // One embedding call for the rows that still need a vector, one batch insert for new pets, and
+    // updates of only the changed columns for pets that already existed. Inserts and updates commit
+    // together, so a failed batch really left none of its rows written.
+    private void write(Job job, List<Row> batch) {
+        try {
+            List<Row> unembedded = batch.stream().filter(row -> row.vector == null).toList();
+            if (!unembedded.isEmpty()) {
+                List<List<Double>> vectors = embeddingClient.embed(unembedded.stream().map(row -> row.profileText).toList());
+                for (int i = 0; i < unembedded.size(); i++) {
+                    unembedded.get(i).vector = vectors.get(i);
+                }
+            }
+            List<Pet> pets = new ArrayList<>(batch.size());
+            List<Pet> created = new ArrayList<>();
+            List<Pet> updated = new ArrayList<>();
+            for (Row row : batch) {
+                Pet pet = row.existing != null
+                    ? row.existing
+                    : Pet.builder().name(row.name).status(Pet.Status.OPEN).owner(job.owner).build();
+                pet.setSpecies(row.species);
+                pet.setRawDescription(row.description);
+                pet.setStructuredTags(row.tags);
+                pet.setPersonalityVector(row.vector);
+                pet.setEnrichmentFingerprint(row.fingerprint);
+                (row.existing != null ? updated : created).add(pet);
+                pets.add(pet);
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                petRepository.insertAll(created);
+                petRepository.saveAll(updated);
+            });
+            List<Long> ids = pets.stream().map(Pet::getId).toList();
+            job.written(batch, ids);
+            count("created", created.size());
+            count("updated", updated.size());
+            ids.forEach(id -> eventPublisher.publishEvent(new PetChangedEvent(id)));
+        } catch (RuntimeException ex) {
+            log.warn("Bulk write of {} rows failed for {}: {}", batch.size(), job.id, ex.getMessage());
+            job.failed(batch, "save failed: " + ex.getMessage());
+            count("failed", batch.size());
+        }
+    }
+
+    private void count(String outcome, int rows) {
+        Counter.builder("pawzzle.ingest.rows")
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .increment(rows);
+    }
+
+    private void evict() {
+        long cutoff = System.currentTimeMillis() - jobTtlMinutes * 60_000;
+        jobs.values().removeIf(job -> job.finishedAt > 0 && job.finishedAt < cutoff);
+    }
+
+    private static Pet.Species parseSpecies(String species) {
+        if (species == null) {
+            return null;
+        }
+        try {
+            return Pet.Species.valueOf(species.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private static int column(List<String> header, String name) {
+        for (int i = 0; i < header.size(); i++) {
+            if (header.get(i).trim().replace("\uFEFF", "").equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String field(List<String> record, int index) {
+        return index < record.size() ? record.get(index) : null;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public record JobView(String id, String state, String uploadError, int total, int created, int updated, int unchanged,
+                          int failed, List<RowView> rows) {
+    }
+
+    public record RowView(int line, String name, String status, Long petId, String error) {
+    }
+
+    private record ImportRow(String name, String species, @JsonAlias("rawDescription") String description) {
+    }
+
+    private enum RowStatus {
+        QUEUED,
+        CREATED,
+        UPDATED,
+        UNCHANGED,
+        FAILED
+    }
+
+    private static final class Row {
+        private final int line;
+        private final String name;
+        private final Pet.Species species;
+        private final String description;
+        private RowStatus status;
+        private String fingerprint;
+        private Pet existing;
+        private JsonNode tags;
+        private String profileText;
+        private List<Double> vector;
+        private boolean ready;
+        private Long petId;
+        private String error;
+
+        private Row(int line, String name, Pet.Species species, String description) {
+            this.line = line;
+            this.name = name;
+            this.species = species;
+            this.description = description;
+        }
+    }
+
+    // All row state changes go through the job's monitor.
+    private static final class Job {
+        private final String id;
+        private final User owner;
+        private final List<Row> rows = new ArrayList<>();
+        private final List<Row> ready = new ArrayList<>();
+        private final Set<String> names = new HashSet<>();
+        private int enriching;
+        private int writing;
+        private boolean uploadComplete;
+        private String uploadError;
+        private volatile long finishedAt;
+
+        private Job(String id, User owner) {
+            this.id = id;
+            this.owner = owner;
+        }
+
+        synchronized int size() {
+            return rows.size();
+        }
+
+        synchronized boolean claimName(String name) {
+            return names.add(name);
+        }
+
+        synchronized Row add(int line, String name, Pet.Species species, String description, String error) {
+            Row row = new Row(line, name, species, description);
+            if (error == null) {
+                row.status = RowStatus.QUEUED;
+                enriching++;
+            } else {
+                row.status = RowStatus.FAILED;
+                row.error = error;
+            }
+            rows.add(row);
+            return row;
+        }
+
+        synchronized void uploadError(String error) {
+            uploadError = error;
+        }
+
+        synchronized void uploadComplete() {
+            uploadComplete = true;
+            settle();
+        }
+
+        synchronized void enriched(Row row) {
+            enriching--;
+            row.ready = true;
+            ready.add(row);
+        }
+
+        synchronized void unchanged(Row row, Long petId) {
+            enriching--;
+            row.status = RowStatus.UNCHANGED;
+            row.petId = petId;
+            row.existing = null;
+            settle();
+        }
+
+        // A full batch, or whatever is left once nothing else can join it.
+        synchronized List<Row> takeBatch(int size) {
+            boolean last = uploadComplete && enriching == 0;
+            if (ready.isEmpty() || (ready.size() < size && !last)) {
+                return null;
+            }
+            List<Row> batch = new ArrayList<>(ready.subList(0, Math.min(size, ready.size())));
+            ready.subList(0, batch.size()).clear();
+            writing += batch.size();
+            return batch;
+        }
+
+        synchronized void written(List<Row> batch, List<Long> ids) {
+            for (int i = 0; i < batch.size(); i++) {
+                Row row = batch.get(i);
+                row.status = row.existing != null ? RowStatus.UPDATED : RowStatus.CREATED;
+                row.petId = ids.get(i);
+                release(row);
+            }
+            writing -= batch.size();
+            settle();
+        }
+
+        synchronized void failed(List<Row> failed, String error) {
+            for (Row row : failed) {
+                if (row.ready) {
+                    writing--;
+                } else {
+                    enriching--;
+                }
+                release(row);
+                row.status = RowStatus.FAILED;
+                row.error = error;
+            }
+            settle();
+        }
+
+        // Finished rows keep only what the status view shows.
+        private void release(Row row) {
+            row.existing = null;
+            row.tags = null;
+            row.profileText = null;
+            row.vector = null;
+        }
+
+        private void settle() {
+            if (uploadComplete && enriching == 0 && writing == 0 && ready.isEmpty() && finishedAt == 0) {
+                finishedAt = System.currentTimeMillis();
+            }
+        }
+
+        synchronized JobView view() {
+            int created = 0;
+            int updated = 0;
+            int unchanged = 0;
+            int failed = 0;
+            List<RowView> views = new ArrayList<>(rows.size());
+            for (Row row : rows) {
+                switch (row.status) {
+                    case CREATED -> created++;
+                    case UPDATED -> updated++;
+                    case UNCHANGED -> unchanged++;
+                    case FAILED -> failed++;
+                    default -> {
+                    }
+                }
+                views.add(new RowView(row.line, row.name, row.status.name(), row.petId, row.error));
+            }
+            String state = finishedAt > 0 ? "COMPLETED" : uploadComplete ? "PROCESSING" : "UPLOADING";
+            return new JobView(id, state, uploadError, rows.size(), created, updated, unchanged, failed, views);
+        }
+    }
+
+    // RFC 4180 records read a character at a time, so quoted fields may span lines.
+    private static final class CsvRecords {
+        private final PushbackReader reader;
+        private int physicalLine = 1;
+        private int recordLine;
+
+        private CsvRecords(Reader reader) {
+            this.reader = new PushbackReader(reader);
+        }
+
+        // Line the last record returned by next() started on.
+        int line() {
+            return recordLine;
+        }
+
+        List<String> next() throws IOException {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean any = false;
+            recordLine = physicalLine;
+            int c;
+            while ((c = reader.read()) != -1) {
+                any = true;
+                if (quoted) {
+                    if (c == '"') {
+                        int next = reader.read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            if (next != -1) {
+                                reader.unread(next);
+                            }
+                        }
+                    } else {
+                        if (c == '\n') {
+                            physicalLine++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    physicalLine++;
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+            }
+            if (!any) {
+                return null;
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.pawzzle.infrastructure.ai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.OptionalLong;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.web.client.RestClientCustomizer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+// The chat client maps only prompt and completion totals from the usage block, so this reads
+// usage.prompt_tokens_details.cached_tokens off the raw chat completion response. Calls are
+// synchronous, so the count is handed back through the thread that made the call; see take().
+@Component
+@RequiredArgsConstructor
+public class CachedTokenInterceptor implements ClientHttpRequestInterceptor, RestClientCustomizer {
+    private static final ThreadLocal<Long> LAST = new ThreadLocal<>();
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void customize(RestClient.Builder builder) {
+        builder.requestInterceptor(this);
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        if (!request.getURI().getPath().endsWith("/chat/completions")) {
+            return execution.execute(request, body);
+        }
+        LAST.remove();
+        ClientHttpResponse response = execution.execute(request, body);
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            return response;
+        }
+        byte[] content;
+        try (InputStream input = response.getBody()) {
+            content = input.readAllBytes();
+        }
+        try {
+            JsonNode cached = objectMapper.readTree(content).path("usage").path("prompt_tokens_details").path("cached_tokens");
+            if (cached.isNumber()) {
+                LAST.set(cached.asLong());
+            }
+        } catch (IOException ex) {
+            // Not JSON; the chat client reports the parse failure itself.
+        }
+        return new BufferedResponse(response, content);
+    }
+
+    // The cached-token count of the last chat completion on this thread, if the API reported one.
+    public OptionalLong take() {
+        Long value = LAST.get();
+        LAST.remove();
+        return value == null ? OptionalLong.empty() : OptionalLong.of(value);
+    }
+
+    private record BufferedResponse(ClientHttpResponse delegate, byte[] content) implements ClientHttpResponse {
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
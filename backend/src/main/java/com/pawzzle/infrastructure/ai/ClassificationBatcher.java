@@ -0,0 +1,198 @@
+package com.pawzzle.infrastructure.ai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Micro-batches short classification prompts (species detection, personality tags). Items for the
+// same task collect for a few milliseconds and go out as one prompt asking for a JSON object of
+// answers keyed by item index; each caller gets its own answer back. Items the batch answer does
+// not cover, or every item of a failed batch, fall back to single calls on the task's own route.
+@Component
+@RequiredArgsConstructor
+public class ClassificationBatcher {
+    private static final Logger log = LoggerFactory.getLogger(ClassificationBatcher.class);
+    private static final String BATCH_INSTRUCTIONS = """
+
+        You will receive a JSON array of items, each {"index": <number>, "input": "<text>"}.
+        Apply the instructions above to every item independently.
+        Return ONLY a JSON object with one entry per item:
+        {"answers": [{"index": <number>, "answer": <the answer the instructions ask for>}]}
+        """;
+
+    private final PromptAssembler promptAssembler;
+    private final ObjectMapper objectMapper;
+    private final LlmJsonParser llmJsonParser;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Batch> open = new ConcurrentHashMap<>();
+    private final Map<String, String> batchSystemPrompts = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(daemon("PawzzleBatchTimer"));
+    private final ExecutorService callers = Executors.newCachedThreadPool(daemon("PawzzleBatch"));
+
+    @Value("${pawzzle.llm.batch.enabled:true}")
+    private boolean enabled;
+
+    @Value("${pawzzle.llm.batch.window-ms:15}")
+    private long windowMillis;
+
+    @Value("${pawzzle.llm.batch.max-items:20}")
+    private int maxItems;
+
+    // The task doubles as the route for single calls; batches go out on "<task>-batch".
+    public CompletableFuture<String> submit(String task, String systemPrompt, String input) {
+        if (!enabled) {
+            return CompletableFuture.supplyAsync(() -> promptAssembler.callText(task, systemPrompt, input), callers);
+        }
+        Item item = new Item(input, new CompletableFuture<>());
+        String key = task + '\u0000' + systemPrompt;
+        while (true) {
+            Batch batch = open.computeIfAbsent(key, ignored -> {
+                Batch created = new Batch(task, systemPrompt);
+                timer.schedule(() -> flush(key, created), windowMillis, TimeUnit.MILLISECONDS);
+                return created;
+            });
+            int size = batch.add(item);
+            if (size < 0) {
+                continue;
+            }
+            if (size >= maxItems) {
+                flush(key, batch);
+            }
+            return item.result();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        callers.shutdownNow();
+    }
+
+    private void flush(String key, Batch batch) {
+        List<Item> items = batch.close();
+        if (items == null) {
+            return;
+        }
+        open.remove(key, batch);
+        callers.execute(() -> dispatch(batch.task, batch.systemPrompt, items));
+    }
+
+    private void dispatch(String task, String systemPrompt, List<Item> items) {
+        DistributionSummary.builder("pawzzle.llm.batch.size")
+            .tag("route", task)
+            .register(meterRegistry)
+            .record(items.size());
+        if (items.size() == 1) {
+            single(task, systemPrompt, items.get(0));
+            return;
+        }
+        Map<Integer, String> answers;
+        try {
+            answers = callBatch(task, systemPrompt, items);
+        } catch (RuntimeException ex) {
+            log.warn("Batched {} call for {} items failed, falling back to single calls", task, items.size(), ex);
+            answers = Map.of();
+        }
+        for (int i = 0; i < items.size(); i += 1) {
+            String answer = answers.get(i);
+            if (answer != null) {
+                items.get(i).result().complete(answer);
+            } else {
+                Item item = items.get(i);
+                callers.execute(() -> single(task, systemPrompt, item));
+            }
+        }
+    }
+
+    private Map<Integer, String> callBatch(String task, String systemPrompt, List<Item> items) {
+        ArrayNode payload = objectMapper.createArrayNode();
+        for (int i = 0; i < items.size(); i += 1) {
+            payload.addObject().put("index", i).put("input", items.get(i).input());
+        }
+        String batchSystemPrompt = batchSystemPrompts.computeIfAbsent(systemPrompt,
+            prompt -> prompt.strip() + "\n" + BATCH_INSTRUCTIONS);
+        String content = promptAssembler.callText(task + "-batch", batchSystemPrompt, payload.toString());
+        List<BatchAnswer> entries = llmJsonParser.readArray(content, BatchAnswer.class, null, "answers")
+            .orElseThrow(() -> new IllegalStateException("Batch answer has no answers array"));
+        Map<Integer, String> answers = new HashMap<>();
+        for (BatchAnswer entry : entries) {
+            if (entry == null || entry.index() == null || entry.answer() == null || entry.answer().isNull()) {
+                continue;
+            }
+            int i = entry.index();
+            if (i >= 0 && i < items.size()) {
+                JsonNode answer = entry.answer();
+                answers.put(i, answer.isValueNode() ? answer.asText().trim() : answer.toString());
+            }
+        }
+        return answers;
+    }
+
+    private void single(String task, String systemPrompt, Item item) {
+        try {
+            item.result().complete(promptAssembler.callText(task, systemPrompt, item.input()));
+        } catch (RuntimeException ex) {
+            item.result().completeExceptionally(ex);
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private record Item(String input, CompletableFuture<String> result) {
+    }
+
+    private record BatchAnswer(Integer index, JsonNode answer) {
+    }
+
+    // Items are added until the batch is closed by the timer or by reaching max-items; add returns
+    // -1 once closed so the caller retries on a fresh batch.
+    private static final class Batch {
+        private final String task;
+        private final String systemPrompt;
+        private List<Item> items = new ArrayList<>();
+
+        private Batch(String task, String systemPrompt) {
+            this.task = task;
+            this.systemPrompt = systemPrompt;
+        }
+
+        private synchronized int add(Item item) {
+            if (items == null) {
+                return -1;
+            }
+            items.add(item);
+            return items.size();
+        }
+
+        private synchronized List<Item> close() {
+            List<Item> closed = items;
+            items = null;
+            return closed;
+        }
+    }
+}
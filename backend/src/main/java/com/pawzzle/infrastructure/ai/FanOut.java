@@ -0,0 +1,131 @@
+package com.pawzzle.infrastructure.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Runs the same model-bound work over several items at once, so an operation over N items takes
+// about as long as its slowest item rather than the sum. At most `concurrency` items of one call
+// run at a time; an item still running after item-timeout-seconds is interrupted and reported as
+// timed out. Every item gets an outcome, in input order, whether it succeeded or not.
+@Component
+@RequiredArgsConstructor
+public class FanOut {
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService workers = Executors.newCachedThreadPool(daemon("PawzzleFanOut"));
+
+    @Value("${pawzzle.fanout.concurrency:8}")
+    private int concurrency;
+
+    @Value("${pawzzle.fanout.item-timeout-seconds:60}")
+    private long itemTimeoutSeconds;
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    public <I, R> List<Outcome<I, R>> map(String operation, List<I> items, Function<I, R> work) {
+        int size = items.size();
+        List<Outcome<I, R>> outcomes = new ArrayList<>(Collections.nCopies(size, null));
+        CompletionService<Attempt<R>> completion = new ExecutorCompletionService<>(workers);
+        Map<Integer, Future<Attempt<R>>> running = new HashMap<>();
+        long[] deadlines = new long[size];
+        long timeout = TimeUnit.SECONDS.toNanos(itemTimeoutSeconds);
+        int next = 0;
+        int settled = 0;
+        try {
+            while (settled < size) {
+                while (running.size() < Math.max(1, concurrency) && next < size) {
+                    int index = next++;
+                    I item = items.get(index);
+                    deadlines[index] = System.nanoTime() + timeout;
+                    running.put(index, completion.submit(() -> attempt(index, item, work)));
+                }
+                long earliest = running.keySet().stream().mapToLong(index -> deadlines[index]).min().orElseThrow();
+                Future<Attempt<R>> done = completion.poll(Math.max(0, earliest - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (done != null) {
+                    // Items already reported as timed out come back here once cancelled.
+                    if (!done.isCancelled()) {
+                        Attempt<R> attempt = done.get();
+                        running.remove(attempt.index());
+                        outcomes.set(attempt.index(), new Outcome<>(items.get(attempt.index()), attempt.value(), attempt.error()));
+                        record(operation, attempt.error() == null ? "ok" : "failed");
+                        settled++;
+                    }
+                    continue;
+                }
+                long now = System.nanoTime();
+                for (Map.Entry<Integer, Future<Attempt<R>>> entry : new ArrayList<>(running.entrySet())) {
+                    int index = entry.getKey();
+                    if (deadlines[index] - now <= 0 && entry.getValue().cancel(true)) {
+                        running.remove(index);
+                        outcomes.set(index, new Outcome<>(items.get(index), null, "timed out after " + itemTimeoutSeconds + "s"));
+                        record(operation, "timeout");
+                        settled++;
+                    }
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            running.values().forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Interrupted during " + operation, ex);
+        } catch (ExecutionException ex) {
+            // attempt() catches runtime failures, so only an Error from the work lands here.
+            running.values().forEach(future -> future.cancel(true));
+            throw new IllegalStateException(operation + " failed", ex.getCause());
+        }
+        return outcomes;
+    }
+
+    private static <I, R> Attempt<R> attempt(int index, I item, Function<I, R> work) {
+        try {
+            return new Attempt<>(index, work.apply(item), null);
+        } catch (RuntimeException ex) {
+            return new Attempt<>(index, null, ex.getMessage() == null ? ex.getClass().getSimpleName() : ex.getMessage());
+        }
+    }
+
+    private void record(String operation, String outcome) {
+        Counter.builder("pawzzle.fanout.items")
+            .tag("operation", operation)
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Either a value or an error; a work item that returns null succeeds with a null value.
+    public record Outcome<I, R>(I item, R value, String error) {
+        public boolean ok() {
+            return error == null;
+        }
+    }
+
+    private record Attempt<R>(int index, R value, String error) {
+    }
+}
@@ -0,0 +1,210 @@
+package com.pawzzle.infrastructure.ai;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+// Server-side state for the evaluation interview. Each session keeps its turns plus a rolling
+// summary; the model only ever sees the summary and the turns not yet folded into it, so the
+// prompt stays roughly the same size however long the interview runs.
+@Service
+@RequiredArgsConstructor
+public class InterviewSessionService {
+    private static final Logger log = LoggerFactory.getLogger(InterviewSessionService.class);
+    private static final String SUMMARY_SYSTEM_PROMPT = """
+        You maintain a compact running summary of a pet adoption interview.
+        Merge the previous summary with the new turns. Always keep which of the 4 interview steps
+        (self-description and desired pet personality, a weekend with the pet, tolerance of pet
+        behaviours, plans for major life changes) have been asked and answered, plus the user's
+        key answers and any signs of malicious intent.
+        Write in Chinese, under 150 words. Return only the summary text.
+        """;
+    private static final PromptTemplate CONVERSATION_TEMPLATE = PromptTemplate.compile("""
+        Conversation so far:
+        {turns}
+        """);
+    private static final PromptTemplate SUMMARIZED_CONVERSATION_TEMPLATE = PromptTemplate.compile("""
+        Summary of the earlier conversation:
+        {summary}
+
+        Latest turns:
+        {turns}
+        """);
+    private static final PromptTemplate SUMMARY_USER_TEMPLATE = PromptTemplate.compile("""
+        Previous summary:
+        {summary}
+
+        New turns:
+        {turns}
+        """);
+
+    private final PromptAssembler promptAssembler;
+    private final PromptBudget promptBudget;
+    private final Executor taskExecutor;
+    // Access-ordered, so iteration starts at the least recently used session; guarded by itself.
+    private final LinkedHashMap<String, InterviewSession> sessions = new LinkedHashMap<>(16, 0.75f, true);
+
+    @Value("${pawzzle.agent.session.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    @Value("${pawzzle.agent.session.max-sessions:10000}")
+    private int maxSessions;
+
+    @Value("${pawzzle.agent.session.recent-turns:6}")
+    private int recentTurns;
+
+    public InterviewSession start() {
+        InterviewSession session = new InterviewSession(UUID.randomUUID().toString());
+        synchronized (sessions) {
+            evictExpired();
+            session.touch();
+            sessions.put(session.id(), session);
+            Iterator<InterviewSession> eldest = sessions.values().iterator();
+            while (sessions.size() > Math.max(1, maxSessions) && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        return session;
+    }
+
+    // Empty when the id is unknown, expired or was evicted; the caller has to re-seed the
+    // transcript rather than continue in a session that lost its history.
+    public Optional<InterviewSession> resume(String sessionId) {
+        synchronized (sessions) {
+            evictExpired();
+            InterviewSession session = sessions.get(sessionId);
+            if (session != null) {
+                session.touch();
+            }
+            return Optional.ofNullable(session);
+        }
+    }
+
+    public void record(InterviewSession session, String role, String content) {
+        if (content == null || content.isBlank()) {
+            return;
+        }
+        synchronized (session) {
+            session.turns.add(new Turn(role, content.trim()));
+        }
+    }
+
+    // Turns that do not fit the token budget next to the summary are left out oldest first.
+    public String buildPrompt(InterviewSession session, int budget) {
+        String summary;
+        List<String> lines;
+        synchronized (session) {
+            summary = session.summary;
+            lines = lines(session.turns.subList(session.summarized, session.turns.size()));
+        }
+        if (summary == null) {
+            int available = budget == Integer.MAX_VALUE ? budget : budget - promptBudget.count(CONVERSATION_TEMPLATE.render(""));
+            return CONVERSATION_TEMPLATE.render(join(promptBudget.keepNewest(lines, available)));
+        }
+        int available = budget == Integer.MAX_VALUE
+            ? budget
+            : budget - promptBudget.count(SUMMARIZED_CONVERSATION_TEMPLATE.render(summary, ""));
+        return SUMMARIZED_CONVERSATION_TEMPLATE.render(summary, join(promptBudget.keepNewest(lines, available)));
+    }
+
+    // Folds all but the most recent turns into the summary once enough have piled up. Runs off
+    // the request path; turns that arrive meanwhile stay in the unsummarized tail.
+    public void compactIfNeeded(InterviewSession session) {
+        int from;
+        int to;
+        String previous;
+        List<Turn> batch;
+        synchronized (session) {
+            int keep = Math.max(1, recentTurns);
+            if (session.compacting || session.turns.size() - session.summarized < keep * 2) {
+                return;
+            }
+            session.compacting = true;
+            from = session.summarized;
+            to = session.turns.size() - keep;
+            previous = session.summary;
+            batch = new ArrayList<>(session.turns.subList(from, to));
+        }
+        taskExecutor.execute(() -> {
+            try {
+                String summary = summarize(previous, batch);
+                synchronized (session) {
+                    session.summary = summary;
+                    session.summarized = to;
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Interview summary failed for session {}", session.id(), ex);
+            } finally {
+                synchronized (session) {
+                    session.compacting = false;
+                }
+            }
+        });
+    }
+
+    private String summarize(String previous, List<Turn> batch) {
+        String summary = previous == null ? "(none)" : previous;
+        int budget = promptBudget.remaining("summary", SUMMARY_SYSTEM_PROMPT, SUMMARY_USER_TEMPLATE.render(summary, ""));
+        String userPrompt = SUMMARY_USER_TEMPLATE.render(summary, join(promptBudget.keepNewest(lines(batch), budget)));
+        return promptAssembler.callText("summary", SUMMARY_SYSTEM_PROMPT, userPrompt);
+    }
+
+    private List<String> lines(List<Turn> turns) {
+        List<String> lines = new ArrayList<>(turns.size());
+        for (Turn turn : turns) {
+            lines.add(turn.role() + ": " + turn.content());
+        }
+        return lines;
+    }
+
+    private String join(List<String> lines) {
+        return lines.isEmpty() ? "No conversation yet." : String.join("\n", lines);
+    }
+
+    // Sessions are touched in access order, so the expired ones are exactly a prefix of the map.
+    private void evictExpired() {
+        long cutoff = System.currentTimeMillis() - ttlMinutes * 60_000;
+        Iterator<InterviewSession> eldest = sessions.values().iterator();
+        while (eldest.hasNext() && eldest.next().lastAccess < cutoff) {
+            eldest.remove();
+        }
+    }
+
+    public record Turn(String role, String content) {
+    }
+
+    public static final class InterviewSession {
+        private final String id;
+        private final List<Turn> turns = new ArrayList<>();
+        private String summary;
+        private int summarized;
+        private boolean compacting;
+        private long lastAccess;
+
+        private InterviewSession(String id) {
+            this.id = id;
+        }
+
+        public String id() {
+            return id;
+        }
+
+        public synchronized List<Turn> turns() {
+            return List.copyOf(turns);
+        }
+
+        private void touch() {
+            lastAccess = System.currentTimeMillis();
+        }
+    }
+}
@@ -9,11 +9,6 @@ import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Set;
 import lombok.RequiredArgsConstructor;
-import org.springframework.ai.chat.ChatResponse;
-import org.springframework.ai.chat.messages.SystemMessage;
-import org.springframework.ai.chat.messages.UserMessage;
-import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.ai.openai.OpenAiChatClient;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
@@ -23,7 +18,7 @@ public class LifecyclePushService {
     private static final Set<Long> MILESTONES = Set.of(1L, 3L, 7L, 14L, 30L);
 
     private final AdoptionProcessRepository adoptionProcessRepository;
-    private final OpenAiChatClient chatClient;
+    private final PromptAssembler promptAssembler;
 
     @Scheduled(cron = "0 0 10 * * ?")
     public void sendLifecyclePushes() {
@@ -71,11 +66,6 @@ public class LifecyclePushService {
     }
 
     private String callChat(String userPrompt) {
-        Prompt prompt = new Prompt(List.of(
-            new SystemMessage("You are a supportive adoption coach."),
-            new UserMessage(userPrompt)
-        ));
-        ChatResponse response = chatClient.call(prompt);
-        return response.getResult().getOutput().getContent().trim();
+        return promptAssembler.callText("push", "You are a supportive adoption coach.", userPrompt);
     }
 }
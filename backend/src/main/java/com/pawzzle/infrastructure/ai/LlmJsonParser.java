@@ -0,0 +1,317 @@
+package com.pawzzle.infrastructure.ai;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.databind.DatabindException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+// One place that turns model output into records. Models wrap JSON in code fences, put prose in
+// front of it and leave trailing commas, so parsing starts at the first '{' or '[' and stops after
+// the first complete value; whatever follows is ignored. Values bind straight off the token stream.
+@Component
+public class LlmJsonParser {
+    private static final Logger log = LoggerFactory.getLogger(LlmJsonParser.class);
+    private static final int MAX_START_ATTEMPTS = 3;
+
+    private final ObjectMapper mapper;
+
+    public LlmJsonParser(ObjectMapper objectMapper) {
+        this.mapper = objectMapper.copy()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true)
+            .configure(JsonParser.Feature.ALLOW_COMMENTS, true)
+            .configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true)
+            .configure(JsonReadFeature.ALLOW_TRAILING_COMMA.mappedFeature(), true)
+            .configure(JsonReadFeature.ALLOW_UNESCAPED_CONTROL_CHARS.mappedFeature(), true);
+    }
+
+    public <T> Optional<T> read(String output, Class<T> type) {
+        char[] chars = output == null ? new char[0] : output.toCharArray();
+        int start = -1;
+        for (int attempt = 0; attempt < MAX_START_ATTEMPTS; attempt++) {
+            start = nextStart(chars, start + 1);
+            if (start < 0) {
+                break;
+            }
+            try (JsonParser parser = mapper.getFactory().createParser(chars, start, chars.length - start)) {
+                return Optional.ofNullable(mapper.readValue(parser, type));
+            } catch (IOException ex) {
+                log.debug("No {} at offset {}: {}", type.getSimpleName(), start, ex.getMessage());
+            }
+        }
+        return Optional.empty();
+    }
+
+    // Elements of a top-level array, or of the first array held by one of the given top-level
+    // fields. Scalar elements go through fromScalar; an element that does not bind becomes null so
+    // callers can still count it. Empty when the output holds no such array.
+    public <T> Optional<List<T>> readArray(String output, Class<T> type, Function<String, T> fromScalar, String... fields) {
+        Set<String> arrayFields = Set.of(fields);
+        char[] chars = output == null ? new char[0] : output.toCharArray();
+        int start = -1;
+        for (int attempt = 0; attempt < MAX_START_ATTEMPTS; attempt++) {
+            start = nextStart(chars, start + 1);
+            if (start < 0) {
+                break;
+            }
+            try (JsonParser parser = mapper.getFactory().createParser(chars, start, chars.length - start)) {
+                if (seekArray(parser, arrayFields)) {
+                    List<T> elements = new ArrayList<>();
+                    JsonToken token;
+                    while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                        elements.add(readElement(parser, token, type, fromScalar));
+                    }
+                    return Optional.of(elements);
+                }
+                return Optional.empty();
+            } catch (IOException ex) {
+                log.debug("No JSON array at offset {}: {}", start, ex.getMessage());
+            }
+        }
+        return Optional.empty();
+    }
+
+    // For streamed output: feed chunks as they arrive and elements of the array (top-level or under
+    // one of the given fields) are bound and handed over as soon as each one closes.
+    public <T> ChunkReader<T> chunkReader(Class<T> type, Function<String, T> fromScalar, Consumer<T> onElement, String... fields) {
+        try {
+            return new ChunkReader<>(mapper.getFactory().createNonBlockingByteArrayParser(), type, fromScalar, onElement, Set.of(fields));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot create streaming JSON parser", ex);
+        }
+    }
+
+    // Output with the surrounding code fence removed, for callers that fall back to the prose.
+    public static String stripCodeFences(String text) {
+        String trimmed = text == null ? "" : text.trim();
+        if (trimmed.startsWith("```")) {
+            int firstNewline = trimmed.indexOf('\n');
+            if (firstNewline > -1) {
+                trimmed = trimmed.substring(firstNewline + 1);
+            }
+            if (trimmed.endsWith("```")) {
+                trimmed = trimmed.substring(0, trimmed.length() - 3);
+            }
+        }
+        return trimmed.trim();
+    }
+
+    private boolean seekArray(JsonParser parser, Set<String> fields) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_ARRAY) {
+            return true;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            return false;
+        }
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            boolean wanted = fields.contains(parser.currentName());
+            token = parser.nextToken();
+            if (wanted && token == JsonToken.START_ARRAY) {
+                return true;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    private <T> T readElement(JsonParser parser, JsonToken token, Class<T> type, Function<String, T> fromScalar) throws IOException {
+        if (token.isScalarValue()) {
+            return token == JsonToken.VALUE_NULL || fromScalar == null ? null : fromScalar.apply(parser.getText());
+        }
+        JsonStreamContext array = parser.getParsingContext().getParent();
+        try {
+            return mapper.readValue(parser, type);
+        } catch (DatabindException ex) {
+            // Skip the rest of an element that does not bind and carry on with the next one.
+            log.debug("Skipping {} element: {}", type.getSimpleName(), ex.getMessage());
+            while (parser.getParsingContext() != array && parser.nextToken() != null) {
+                // Drain tokens until the parser is back at array level.
+            }
+            return null;
+        }
+    }
+
+    private <T> T bind(TokenBuffer buffer, Class<T> type) {
+        try (JsonParser parser = buffer.asParser(mapper)) {
+            return mapper.readValue(parser, type);
+        } catch (IOException ex) {
+            log.debug("Skipping {} element: {}", type.getSimpleName(), ex.getMessage());
+            return null;
+        }
+    }
+
+    private static int nextStart(char[] chars, int from) {
+        for (int i = from; i < chars.length; i++) {
+            if (chars[i] == '{' || chars[i] == '[') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Not thread-safe; one reader per streamed response.
+    public final class ChunkReader<T> {
+        private final JsonParser parser;
+        private final ByteArrayFeeder feeder;
+        private final Class<T> type;
+        private final Function<String, T> fromScalar;
+        private final Consumer<T> onElement;
+        private final Set<String> arrayFields;
+        private BiConsumer<String, String> onField = (name, value) -> {
+        };
+        private String pending = "";
+        private boolean started;
+        private boolean complete;
+        private boolean failed;
+        private int depth;
+        private int arrayDepth;
+        private boolean arraySeen;
+        private String field;
+        private TokenBuffer element;
+        private int elementDepth;
+        private int elements;
+
+        private ChunkReader(JsonParser parser, Class<T> type, Function<String, T> fromScalar, Consumer<T> onElement, Set<String> arrayFields) {
+            this.parser = parser;
+            this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+            this.type = type;
+            this.fromScalar = fromScalar;
+            this.onElement = onElement;
+            this.arrayFields = arrayFields;
+        }
+
+        // Scalar top-level fields, delivered as soon as their value has been read.
+        public ChunkReader<T> onField(BiConsumer<String, String> listener) {
+            this.onField = listener;
+            return this;
+        }
+
+        public void feed(String chunk) {
+            if (complete || failed || chunk == null || chunk.isEmpty()) {
+                return;
+            }
+            String text = pending + chunk;
+            pending = "";
+            // A surrogate pair split across chunks is encoded once its second half arrives.
+            if (Character.isHighSurrogate(text.charAt(text.length() - 1))) {
+                pending = text.substring(text.length() - 1);
+                text = text.substring(0, text.length() - 1);
+            }
+            if (!started) {
+                int start = nextStart(text.toCharArray(), 0);
+                if (start < 0) {
+                    return;
+                }
+                started = true;
+                text = text.substring(start);
+            }
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            try {
+                feeder.feedInput(bytes, 0, bytes.length);
+                drain();
+            } catch (IOException ex) {
+                fail(ex);
+            }
+        }
+
+        // True when a complete JSON value was read; callers fall back to parsing the full text otherwise.
+        public boolean finish() {
+            if (!complete && !failed && started) {
+                feeder.endOfInput();
+                try {
+                    drain();
+                } catch (IOException ex) {
+                    fail(ex);
+                }
+            }
+            closeQuietly();
+            return complete;
+        }
+
+        public int elements() {
+            return elements;
+        }
+
+        private void drain() throws IOException {
+            JsonToken token;
+            while (!complete && (token = parser.nextToken()) != JsonToken.NOT_AVAILABLE && token != null) {
+                if (element != null) {
+                    element.copyCurrentEvent(parser);
+                    if (token.isStructStart()) {
+                        elementDepth++;
+                    } else if (token.isStructEnd() && --elementDepth == 0) {
+                        emit(bind(element, type));
+                        element = null;
+                    }
+                    continue;
+                }
+                if (token.isStructStart()) {
+                    if (arrayDepth > 0 && depth == arrayDepth) {
+                        element = new TokenBuffer(parser);
+                        element.copyCurrentEvent(parser);
+                        elementDepth = 1;
+                        continue;
+                    }
+                    depth++;
+                    if (token == JsonToken.START_ARRAY && !arraySeen
+                        && (depth == 1 || (depth == 2 && arrayFields.contains(field)))) {
+                        arraySeen = true;
+                        arrayDepth = depth;
+                    }
+                } else if (token.isStructEnd()) {
+                    if (depth == arrayDepth) {
+                        arrayDepth = 0;
+                    }
+                    if (--depth == 0) {
+                        complete = true;
+                    }
+                } else if (token == JsonToken.FIELD_NAME) {
+                    if (depth == 1) {
+                        field = parser.currentName();
+                    }
+                } else if (arrayDepth > 0 && depth == arrayDepth) {
+                    emit(token == JsonToken.VALUE_NULL || fromScalar == null ? null : fromScalar.apply(parser.getText()));
+                } else if (depth == 1 && field != null) {
+                    onField.accept(field, token == JsonToken.VALUE_NULL ? null : parser.getText());
+                }
+            }
+        }
+
+        private void emit(T value) {
+            elements++;
+            onElement.accept(value);
+        }
+
+        private void fail(IOException ex) {
+            failed = true;
+            log.debug("Streamed JSON stopped after {} elements: {}", elements, ex.getMessage());
+            closeQuietly();
+        }
+
+        private void closeQuietly() {
+            try {
+                parser.close();
+            } catch (IOException ignored) {
+                // Nothing left to release.
+            }
+        }
+    }
+}
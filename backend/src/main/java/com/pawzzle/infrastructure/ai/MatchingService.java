@@ -1,26 +1,26 @@
 package com.pawzzle.infrastructure.ai;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pawzzle.domain.pet.Pet;
 import com.pawzzle.domain.pet.PetRepository;
 import com.pawzzle.domain.user.User;
+import com.pawzzle.domain.user.UserPreferenceChangedEvent;
 import com.pawzzle.domain.user.UserRepository;
 import com.pawzzle.infrastructure.ai.dto.MatchResult;
+import com.pawzzle.infrastructure.vector.UserPetTopKTable;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
-import org.springframework.ai.chat.ChatResponse;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Async;
-
-import org.springframework.ai.chat.messages.SystemMessage;
-import org.springframework.ai.chat.messages.UserMessage;
-import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.ai.embedding.EmbeddingClient;
-import org.springframework.ai.openai.OpenAiChatClient;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -34,168 +34,180 @@ public class MatchingService {
         and ideal home environment. Keep it under 120 words.
         """;
 
-    private static final String SPECIES_SYSTEM_PROMPT = """
-        You detect preferred species from user messages.
-        If the user explicitly mentions a preference for cats or dogs,
-        respond with exactly one of: CAT or DOG.
-        If no preference is mentioned, respond with NONE.
-        """;
-
         private static final String RERANK_SYSTEM_PROMPT = """
                 Act as a matchmaker. Pick the best one and explain why.
-                Return ONLY valid JSON (no markdown).
-                Format: {
-                    "bestPetId": <number>,
-                    "explanation": "...",
-                    "confidence": 0.0-1.0,
-                    "highlights": ["short reason", "short reason", "short reason"]
-                }
                 """;
 
-    private final OpenAiChatClient chatClient;
-    private final EmbeddingClient embeddingClient;
+    private static final PromptTemplate PROFILE_USER_TEMPLATE = PromptTemplate.compile("""
+        CurrentPreferenceSummary: {summary}
+        NewUserMessage: {message}
+        """);
+    private static final PromptTemplate RERANK_USER_TEMPLATE = PromptTemplate.compile("""
+        UserPreferenceSummary: {summary}
+        CandidatePets:
+        {pets}
+        """);
+    private static final PromptTemplate PET_TEMPLATE = PromptTemplate.compile("""
+        - PetId: {id}
+          Name: {name}
+          Species: {species}
+          Status: {status}
+          RawDescription: {description}
+          StructuredTags: {tags}
+        """);
+
+    private static final int CANDIDATE_LIMIT = 5;
+    private static final int DESCRIPTION_TOKENS = 120;
+
+    private final RecommendationEngine recommendationEngine;
     private final PetRepository petRepository;
+    private final UserPetTopKTable userPetTopKTable;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
     private final ObjectMapper objectMapper;
-    private final java.util.concurrent.Executor taskExecutor;
+    private final PromptBudget promptBudget;
+    private final StructuredOutput structuredOutput;
 
     @Async("taskExecutor")
     public CompletableFuture<MatchResult> recommendPets(Long userId, String userChatMessage) {
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new IllegalArgumentException("User not found: " + userId));
 
-        CompletableFuture<String> speciesFuture = CompletableFuture.supplyAsync(
-            () -> detectSpecies(userChatMessage).orElse(null), taskExecutor);
-
-        CompletableFuture<List<Double>> vectorFuture = CompletableFuture.supplyAsync(() -> {
-            String updatedSummary = callChat(PROFILE_SYSTEM_PROMPT,
-                buildProfileUserPrompt(user.getPreferenceSummary(), userChatMessage));
-            
-            // Update user state (side effect)
-            user.setPreferenceSummary(updatedSummary);
-            List<Double> newVector = embeddingClient.embed(updatedSummary);
-            user.setPreferenceVector(newVector);
-            userRepository.save(user); // transactional?
-            return newVector;
-        }, taskExecutor);
+        // A returning user opening the chat without a new message gets their precomputed list.
+        if (userChatMessage == null || userChatMessage.isBlank()) {
+            Optional<MatchResult> precomputed = precomputedMatch(userId, null);
+            if (precomputed.isPresent()) {
+                return CompletableFuture.completedFuture(precomputed.get());
+            }
+        }
 
-        CompletableFuture.allOf(speciesFuture, vectorFuture).join();
+        RecommendationContext context = new RecommendationContext(CANDIDATE_LIMIT, CANDIDATE_LIMIT);
+        context.setSpeciesText(userChatMessage);
+        return recommendationEngine.pipeline()
+            .parallel(
+                recommendationEngine.sequence("preference",
+                    RecommendationStage.of("query", ctx -> ctx.setQueryText(recommendationEngine.callChat("profile", PROFILE_SYSTEM_PROMPT,
+                        buildProfileUserPrompt(user.getPreferenceSummary(), userChatMessage)))),
+                    recommendationEngine.embedding(),
+                    RecommendationStage.of("profile-save", ctx -> savePreference(user, ctx))),
+                recommendationEngine.speciesDetection(true))
+            .then(recommendationEngine.retrieval())
+            .then(recommendationEngine.openPetsOnly())
+            .then(recommendationEngine.narrow())
+            .then(recommendationEngine.rerank(RERANK_SYSTEM_PROMPT, RerankDecision.class,
+                ctx -> ctx.getCandidates().isEmpty() ? null : buildRerankUserPrompt(user, ctx.getCandidates())))
+            .run(context)
+            .thenApply(this::toMatchResult);
+    }
 
-        String speciesFilter = speciesFuture.join();
-        List<Double> newVector = vectorFuture.join();
-        
-        List<Pet> candidates = petRepository.hybridSearch(speciesFilter, newVector, 5);
+    private void savePreference(User user, RecommendationContext context) {
+        user.setPreferenceSummary(context.getQueryText());
+        user.setPreferenceVector(context.getVector());
+        userRepository.save(user); // transactional?
+        eventPublisher.publishEvent(new UserPreferenceChangedEvent(user.getId()));
+    }
 
+    private MatchResult toMatchResult(RecommendationContext context) {
+        List<Pet> candidates = context.getCandidates();
         if (candidates.isEmpty()) {
-            return CompletableFuture.completedFuture(MatchResult.builder()
+            return MatchResult.builder()
                 .bestPet(null)
                 .explanation("No suitable pets found.")
                 .candidates(List.of())
-                .build());
+                .build();
         }
 
-        String rerankDecision = callChat(RERANK_SYSTEM_PROMPT,
-            buildRerankUserPrompt(user, candidates));
-
-        RerankDecision decision = parseDecision(rerankDecision, candidates.get(0));
+        RerankDecision decision = context.getRerankResult(RerankDecision.class);
+        if (decision == null) {
+            decision = new RerankDecision(candidates.get(0).getId(), context.getRerankResponse(), 0.5, List.of());
+        }
+        Long bestPetId = decision.bestPetId();
         Pet bestPet = candidates.stream()
-            .filter(pet -> pet.getId().equals(decision.bestPetId()))
+            .filter(pet -> pet.getId().equals(bestPetId))
             .findFirst()
             .orElse(candidates.get(0));
 
-        return CompletableFuture.completedFuture(MatchResult.builder()
+        return MatchResult.builder()
             .bestPet(bestPet)
             .explanation(decision.explanation())
             .confidence(decision.confidence())
             .highlights(decision.highlights())
             .candidates(candidates)
+            .build();
+    }
+
+    public Optional<MatchResult> precomputedMatch(Long userId, String species) {
+        Optional<UserPetTopKTable.Row> row = userPetTopKTable.find(userId);
+        if (row.isEmpty()) {
+            return Optional.empty();
+        }
+        List<Long> ids = new ArrayList<>();
+        for (long id : row.get().petIds()) {
+            ids.add(id);
+        }
+        Map<Long, Pet> byId = new HashMap<>();
+        for (Pet pet : petRepository.findAllById(ids)) {
+            byId.put(pet.getId(), pet);
+        }
+        List<Pet> candidates = ids.stream()
+            .map(byId::get)
+            .filter(pet -> pet != null && pet.getStatus() == Pet.Status.OPEN)
+            .filter(pet -> species == null || pet.getSpecies().name().equalsIgnoreCase(species))
+            .limit(5)
+            .toList();
+        if (candidates.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(MatchResult.builder()
+            .bestPet(candidates.get(0))
+            .explanation("Based on your saved preferences.")
+            .highlights(List.of())
+            .candidates(candidates)
             .build());
     }
 
     private String buildProfileUserPrompt(String currentSummary, String userChatMessage) {
-        return """
-            CurrentPreferenceSummary: %s
-            NewUserMessage: %s
-            """.formatted(nullToEmpty(currentSummary), userChatMessage);
+        String summary = nullToEmpty(currentSummary);
+        int budget = promptBudget.remaining("profile", PROFILE_SYSTEM_PROMPT, PROFILE_USER_TEMPLATE.render(summary, ""));
+        return PROFILE_USER_TEMPLATE.render(summary, promptBudget.truncate(userChatMessage, budget));
     }
 
-    private Optional<String> detectSpecies(String message) {
-        String text = message == null ? "" : message.toLowerCase(Locale.ROOT);
-        if (text.contains("cat") || text.contains("kitten") || text.contains("feline")) {
-            return Optional.of("CAT");
-        }
-        if (text.contains("dog") || text.contains("puppy") || text.contains("canine")) {
-            return Optional.of("DOG");
+    // Over the rerank budget, descriptions are shortened first and then the lowest-ranked pets dropped.
+    private String buildRerankUserPrompt(User user, List<Pet> pets) {
+        int budget = promptBudget.remaining("rerank", structuredOutput.systemPrompt(RERANK_SYSTEM_PROMPT, RerankDecision.class));
+        String prompt = renderRerankUserPrompt(user, pets, Integer.MAX_VALUE);
+        if (promptBudget.fits(prompt, budget)) {
+            return prompt;
         }
-        String response = callChat(SPECIES_SYSTEM_PROMPT, message).trim().toUpperCase(Locale.ROOT);
-        if ("CAT".equals(response) || "DOG".equals(response)) {
-            return Optional.of(response);
+        prompt = renderRerankUserPrompt(user, pets, DESCRIPTION_TOKENS);
+        if (promptBudget.fits(prompt, budget)) {
+            return prompt;
         }
-        return Optional.empty();
+        int keep = promptBudget.largestFitting(pets.size(), k -> promptBudget.fits(
+            renderRerankUserPrompt(user, pets.subList(0, k), DESCRIPTION_TOKENS), budget));
+        return renderRerankUserPrompt(user, pets.subList(0, Math.max(1, keep)), DESCRIPTION_TOKENS);
     }
 
-    private String buildRerankUserPrompt(User user, List<Pet> pets) {
+    private String renderRerankUserPrompt(User user, List<Pet> pets, int descriptionTokens) {
         String petPayload = pets.stream()
-            .map(this::formatPetForPrompt)
+            .map(pet -> formatPetForPrompt(pet, descriptionTokens))
             .collect(Collectors.joining("\n"));
 
-        return """
-            UserPreferenceSummary: %s
-            CandidatePets:
-            %s
-            """.formatted(nullToEmpty(user.getPreferenceSummary()), petPayload);
+        return RERANK_USER_TEMPLATE.render(nullToEmpty(user.getPreferenceSummary()), petPayload);
     }
 
-    private String formatPetForPrompt(Pet pet) {
+    private String formatPetForPrompt(Pet pet, int descriptionTokens) {
         String tagsJson = safeJson(pet.getStructuredTags());
-        return """
-            - PetId: %s
-              Name: %s
-              Species: %s
-              Status: %s
-              RawDescription: %s
-              StructuredTags: %s
-            """.formatted(
+        return PET_TEMPLATE.render(
             pet.getId(),
             pet.getName(),
             pet.getSpecies(),
             pet.getStatus(),
-            nullToEmpty(pet.getRawDescription()),
+            promptBudget.truncate(nullToEmpty(pet.getRawDescription()), descriptionTokens),
             tagsJson
         );
     }
 
-    private String callChat(String systemPrompt, String userPrompt) {
-        Prompt prompt = new Prompt(List.of(
-            new SystemMessage(systemPrompt),
-            new UserMessage(userPrompt)
-        ));
-        ChatResponse response = chatClient.call(prompt);
-        return response.getResult().getOutput().getContent().trim();
-    }
-
-    private RerankDecision parseDecision(String response, Pet fallback) {
-        try {
-            return objectMapper.readValue(stripCodeFences(response), RerankDecision.class);
-        } catch (JsonProcessingException ex) {
-            return new RerankDecision(fallback.getId(), response, 0.5, List.of());
-        }
-    }
-
-    private String stripCodeFences(String text) {
-        String trimmed = text == null ? "" : text.trim();
-        if (trimmed.startsWith("```")) {
-            int firstNewline = trimmed.indexOf('\n');
-            if (firstNewline > -1) {
-                trimmed = trimmed.substring(firstNewline + 1);
-            }
-            if (trimmed.endsWith("```")) {
-                trimmed = trimmed.substring(0, trimmed.length() - 3);
-            }
-        }
-        return trimmed.trim();
-    }
-
     private String nullToEmpty(String value) {
         return value == null ? "" : value;
     }
@@ -211,6 +223,11 @@ public class MatchingService {
         }
     }
 
-    private record RerankDecision(Long bestPetId, String explanation, Double confidence, List<String> highlights) {
+    private record RerankDecision(
+        @JsonProperty(required = true) @JsonPropertyDescription("PetId of the best match") Long bestPetId,
+        @JsonProperty(required = true) String explanation,
+        @JsonPropertyDescription("0.0 to 1.0") Double confidence,
+        @JsonPropertyDescription("Three short reasons") List<String> highlights
+    ) {
     }
 }
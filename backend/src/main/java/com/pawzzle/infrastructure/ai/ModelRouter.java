@@ -0,0 +1,291 @@
+package com.pawzzle.infrastructure.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.ai.chat.ChatResponse;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+// Per-task model selection. Each prompt type ("evaluate", "rerank", "tags", ...) is a route with
+// its own model, token cap and temperature under pawzzle.llm.routes.<route>.*; unset values fall
+// back to the global chat options. A route with a fallback model switches to it while its
+// in-flight calls are at max-concurrency, so bursts degrade to the faster model instead of queueing.
+// Routes with hedge=true also track recent latency so slow calls can be hedged; see PromptAssembler.
+// response-format=json_object switches a route to the API's JSON mode; see StructuredOutput.
+@Component
+public class ModelRouter {
+    private static final double MAX_HEDGE_BURST = 10;
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final String defaultModel;
+    private final Map<String, Price> prices;
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+
+    @Value("${pawzzle.llm.hedge.enabled:true}")
+    private boolean hedgeEnabled;
+
+    @Value("${pawzzle.llm.hedge.percentile:0.95}")
+    private double hedgePercentile;
+
+    @Value("${pawzzle.llm.hedge.min-delay-ms:300}")
+    private long hedgeMinDelayMillis;
+
+    @Value("${pawzzle.llm.hedge.min-samples:20}")
+    private int hedgeMinSamples;
+
+    @Value("${pawzzle.llm.hedge.budget-ratio:0.05}")
+    private double hedgeBudgetRatio;
+
+    public ModelRouter(
+        Environment environment,
+        MeterRegistry meterRegistry,
+        @Value("${spring.ai.openai.chat.options.model:gpt-4o-mini}") String defaultModel,
+        @Value("${pawzzle.llm.pricing:}") String pricing
+    ) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        this.defaultModel = defaultModel;
+        this.prices = parsePrices(pricing);
+    }
+
+    public Call begin(String routeName) {
+        Route route = routes.computeIfAbsent(routeName, this::loadRoute);
+        int inFlight = route.inFlight.incrementAndGet();
+        boolean degraded = route.fallbackModel != null && inFlight > route.maxConcurrency;
+        if (degraded) {
+            Counter.builder("pawzzle.llm.degraded")
+                .tag("route", route.name)
+                .register(meterRegistry)
+                .increment();
+        }
+        if (route.hedge) {
+            route.addHedgeBudget(hedgeBudgetRatio);
+        }
+        return open(route, degraded ? route.fallbackModel : route.model);
+    }
+
+    // The model a route is configured with, without opening a call.
+    public String model(String routeName) {
+        return routes.computeIfAbsent(routeName, this::loadRoute).model;
+    }
+
+    // How long to wait before hedging this call, or -1 when the route should not be hedged yet.
+    public long hedgeDelayMillis(Call call) {
+        Route route = call.route();
+        if (!hedgeEnabled || !route.hedge) {
+            return -1;
+        }
+        long percentile = route.latencies.percentile(hedgePercentile, hedgeMinSamples);
+        return percentile < 0 ? -1 : Math.max(hedgeMinDelayMillis, percentile);
+    }
+
+    // Takes one hedge from the route's budget, which grows by budget-ratio per call; returns null
+    // when the budget is spent.
+    public Call beginHedge(Call primary) {
+        Route route = primary.route();
+        if (!route.tryTakeHedge()) {
+            recordHedge(primary, "skipped");
+            return null;
+        }
+        route.inFlight.incrementAndGet();
+        return open(route, route.hedgeModel != null ? route.hedgeModel : primary.model());
+    }
+
+    // Outcomes: "won" when the hedge answered first, "lost" when the primary still did,
+    // "skipped" when the budget or the hedge pool did not allow a hedge.
+    public void recordHedge(Call primary, String outcome) {
+        Counter.builder("pawzzle.llm.hedge")
+            .tag("route", primary.route().name)
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private Call open(Route route, String model) {
+        OpenAiChatOptions.Builder options = OpenAiChatOptions.builder().withModel(model);
+        if (route.maxTokens != null) {
+            options.withMaxTokens(route.maxTokens);
+        }
+        if (route.temperature != null) {
+            options.withTemperature(route.temperature);
+        }
+        if (route.responseFormat != null) {
+            options.withResponseFormat(new OpenAiApi.ChatCompletionRequest.ResponseFormat(route.responseFormat));
+        }
+        return new Call(route, model, options.build(), System.nanoTime());
+    }
+
+    // Outcome is "ok", "error", "lost" (a hedged attempt that finished after the other answered; it
+    // is still billed, so it is still costed) or "rejected" (a hedge the pool had no thread for).
+    public void end(Call call, ChatResponse response, String outcome) {
+        Route route = call.route();
+        route.inFlight.decrementAndGet();
+        long elapsed = System.nanoTime() - call.startedAt();
+        Timer.builder("pawzzle.llm.latency")
+            .tag("route", route.name)
+            .tag("model", call.model())
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .record(elapsed, TimeUnit.NANOSECONDS);
+        if (response != null) {
+            route.latencies.add(TimeUnit.NANOSECONDS.toMillis(elapsed));
+        }
+        if (route.sloMillis != null && elapsed > TimeUnit.MILLISECONDS.toNanos(route.sloMillis)) {
+            Counter.builder("pawzzle.llm.slo.breaches")
+                .tag("route", route.name)
+                .tag("model", call.model())
+                .register(meterRegistry)
+                .increment();
+        }
+        Usage usage = response == null || response.getMetadata() == null ? null : response.getMetadata().getUsage();
+        Price price = prices.get(call.model());
+        if (usage == null || price == null) {
+            return;
+        }
+        double cost = tokens(usage.getPromptTokens()) / 1000.0 * price.inputPer1k()
+            + tokens(usage.getGenerationTokens()) / 1000.0 * price.outputPer1k();
+        Counter.builder("pawzzle.llm.cost")
+            .baseUnit("usd")
+            .tag("route", route.name)
+            .tag("model", call.model())
+            .register(meterRegistry)
+            .increment(cost);
+    }
+
+    private Route loadRoute(String name) {
+        String prefix = "pawzzle.llm.routes." + name + ".";
+        return new Route(
+            name,
+            environment.getProperty(prefix + "model", defaultModel),
+            environment.getProperty(prefix + "fallback-model"),
+            environment.getProperty(prefix + "max-concurrency", Integer.class, Integer.MAX_VALUE),
+            environment.getProperty(prefix + "max-tokens", Integer.class),
+            environment.getProperty(prefix + "temperature", Float.class),
+            environment.getProperty(prefix + "slo-ms", Long.class),
+            environment.getProperty(prefix + "hedge", Boolean.class, false),
+            environment.getProperty(prefix + "hedge-model"),
+            environment.getProperty(prefix + "response-format")
+        );
+    }
+
+    private static long tokens(Long value) {
+        return value == null ? 0L : value;
+    }
+
+    // "model:inputPer1k:outputPer1k,..." in USD; models without a price are not costed.
+    private static Map<String, Price> parsePrices(String pricing) {
+        Map<String, Price> parsed = new HashMap<>();
+        if (pricing == null || pricing.isBlank()) {
+            return parsed;
+        }
+        for (String entry : pricing.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid pawzzle.llm.pricing entry: " + entry);
+            }
+            parsed.put(parts[0].trim(), new Price(Double.parseDouble(parts[1].trim()), Double.parseDouble(parts[2].trim())));
+        }
+        return parsed;
+    }
+
+    public record Call(Route route, String model, OpenAiChatOptions options, long startedAt) {
+    }
+
+    private record Price(double inputPer1k, double outputPer1k) {
+    }
+
+    public static final class Route {
+        private final String name;
+        private final String model;
+        private final String fallbackModel;
+        private final int maxConcurrency;
+        private final Integer maxTokens;
+        private final Float temperature;
+        private final Long sloMillis;
+        private final boolean hedge;
+        private final String hedgeModel;
+        private final String responseFormat;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final LatencyWindow latencies = new LatencyWindow(256);
+        private double hedgeBudget;
+
+        private Route(
+            String name,
+            String model,
+            String fallbackModel,
+            int maxConcurrency,
+            Integer maxTokens,
+            Float temperature,
+            Long sloMillis,
+            boolean hedge,
+            String hedgeModel,
+            String responseFormat
+        ) {
+            this.name = name;
+            this.model = model;
+            this.fallbackModel = fallbackModel == null || fallbackModel.isBlank() ? null : fallbackModel.trim();
+            this.maxConcurrency = maxConcurrency;
+            this.maxTokens = maxTokens;
+            this.temperature = temperature;
+            this.sloMillis = sloMillis;
+            this.hedge = hedge;
+            this.hedgeModel = hedgeModel == null || hedgeModel.isBlank() ? null : hedgeModel.trim();
+            this.responseFormat = responseFormat == null || responseFormat.isBlank() ? null : responseFormat.trim();
+        }
+
+        public String name() {
+            return name;
+        }
+
+        private synchronized void addHedgeBudget(double amount) {
+            hedgeBudget = Math.min(MAX_HEDGE_BURST, hedgeBudget + amount);
+        }
+
+        private synchronized boolean tryTakeHedge() {
+            if (hedgeBudget < 1) {
+                return false;
+            }
+            hedgeBudget -= 1;
+            return true;
+        }
+    }
+
+    // Ring buffer of the most recent successful call latencies for one route.
+    private static final class LatencyWindow {
+        private final long[] samples;
+        private int next;
+        private int count;
+
+        private LatencyWindow(int capacity) {
+            this.samples = new long[capacity];
+        }
+
+        private synchronized void add(long millis) {
+            samples[next] = millis;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        private synchronized long percentile(double percentile, int minSamples) {
+            if (count < Math.max(1, minSamples)) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile * count) - 1;
+            return sorted[Math.max(0, Math.min(count - 1, index))];
+        }
+    }
+}
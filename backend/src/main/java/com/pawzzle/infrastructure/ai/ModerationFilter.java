@@ -0,0 +1,246 @@
+package com.pawzzle.infrastructure.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+// In-process prefilter for interview messages. The blocklist is compiled into an Aho-Corasick
+// automaton over normalized text, so one pass finds every listed term regardless of list size.
+// Normalization folds width, case, common homoglyphs and leet digits, and drops spacing and
+// punctuation, so "虐 猫", "ｎｕｅｍａｏ" and "t0rture c@ts" all hit their entries. Where the
+// original words started is kept alongside, so Latin terms and negations only match from the start
+// of a word: "skill the cat" does not hit "kill the cat", and "another" does not negate.
+@Component
+public class ModerationFilter {
+    private static final Logger log = LoggerFactory.getLogger(ModerationFilter.class);
+    // How far before a match (in normalized characters) a negation may end and still downgrade a
+    // block to a flag.
+    private static final int NEGATION_WINDOW = 6;
+    private static final List<String> NEGATIONS = List.of(
+        "不", "没", "别", "勿", "反对", "never", "not", "dont", "wont", "wouldnt", "against"
+    );
+    private static final Map<Character, Character> HOMOGLYPHS = Map.ofEntries(
+        Map.entry('0', 'o'), Map.entry('1', 'i'), Map.entry('3', 'e'), Map.entry('4', 'a'),
+        Map.entry('5', 's'), Map.entry('7', 't'), Map.entry('@', 'a'), Map.entry('$', 's'),
+        Map.entry('а', 'a'), Map.entry('е', 'e'), Map.entry('о', 'o'), Map.entry('р', 'p'),
+        Map.entry('с', 'c'), Map.entry('у', 'y'), Map.entry('х', 'x'), Map.entry('і', 'i'),
+        Map.entry('ј', 'j'), Map.entry('ѕ', 's'), Map.entry('ο', 'o'), Map.entry('α', 'a'),
+        Map.entry('ν', 'v'), Map.entry('τ', 't'), Map.entry('κ', 'k'), Map.entry('ü', 'u'),
+        Map.entry('ǚ', 'u'), Map.entry('ǘ', 'u'), Map.entry('ǜ', 'u'), Map.entry('ǖ', 'u')
+    );
+
+    private final MeterRegistry meterRegistry;
+    private final Node root = new Node();
+    private final boolean enabled;
+
+    public ModerationFilter(
+        MeterRegistry meterRegistry,
+        @Value("${pawzzle.agent.moderation.enabled:true}") boolean enabled,
+        @Value("${pawzzle.agent.moderation.blocklist:classpath:moderation-blocklist.txt}") Resource blocklist
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        if (enabled) {
+            int terms = compile(blocklist);
+            log.info("Moderation blocklist compiled: {} terms", terms);
+        }
+    }
+
+    public Decision check(String text) {
+        if (!enabled || text == null || text.isBlank()) {
+            return Decision.PASS;
+        }
+        Normalized normalized = normalized(text);
+        Level level = null;
+        Set<String> hits = new LinkedHashSet<>();
+        Node node = root;
+        for (int i = 0; i < normalized.text().length(); i += 1) {
+            char c = normalized.text().charAt(i);
+            while (node != root && !node.next.containsKey(c)) {
+                node = node.fail;
+            }
+            node = node.next.getOrDefault(c, root);
+            for (Node out = node; out != root; out = out.output) {
+                int start = i + 1 - (out.term == null ? 0 : out.term.length());
+                if (out.term == null || !normalized.startsWord(start, out.term)) {
+                    continue;
+                }
+                Level hit = out.level == Level.BLOCK && negated(normalized, start)
+                    ? Level.FLAG
+                    : out.level;
+                hits.add(out.term);
+                if (level == null || hit == Level.BLOCK) {
+                    level = hit;
+                }
+            }
+        }
+        Decision decision = level == null ? Decision.PASS : level == Level.BLOCK ? Decision.BLOCK : Decision.FLAG;
+        Counter.builder("pawzzle.moderation.decisions")
+            .tag("decision", decision.name().toLowerCase(Locale.ROOT))
+            .register(meterRegistry)
+            .increment();
+        if (decision != Decision.PASS) {
+            log.info("Moderation {}: terms={} length={}", decision, hits, text.length());
+        }
+        return decision;
+    }
+
+    static String normalize(String text) {
+        return normalized(text).text();
+    }
+
+    // A kept character starts a word when something was dropped before it (space, punctuation) or
+    // when it or the character before it is not a Latin letter, so every CJK character counts.
+    static Normalized normalized(String text) {
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder builder = new StringBuilder(folded.length());
+        boolean[] wordStarts = new boolean[folded.length() + 1];
+        boolean gap = true;
+        for (int i = 0; i < folded.length(); i += 1) {
+            char c = folded.charAt(i);
+            char mapped = HOMOGLYPHS.getOrDefault(c, c);
+            if (Character.isLetter(mapped)) {
+                int at = builder.length();
+                wordStarts[at] = gap || !latin(mapped) || !latin(builder.charAt(at - 1));
+                builder.append(mapped);
+                gap = false;
+            } else {
+                gap = true;
+            }
+        }
+        wordStarts[builder.length()] = true;
+        return new Normalized(builder.toString(), wordStarts);
+    }
+
+    // Latin negations must be whole words ("dont", not the "not" in "another"); CJK ones need not.
+    private static boolean negated(Normalized normalized, int matchStart) {
+        for (String negation : NEGATIONS) {
+            int from = Math.max(0, matchStart - NEGATION_WINDOW - negation.length());
+            for (int at = normalized.text().indexOf(negation, from);
+                 at >= 0 && at + negation.length() <= matchStart;
+                 at = normalized.text().indexOf(negation, at + 1)) {
+                if (normalized.startsWord(at, negation) && normalized.endsWord(at + negation.length(), negation)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean latin(char c) {
+        return c >= 'a' && c <= 'z';
+    }
+
+    private int compile(Resource blocklist) {
+        int terms = 0;
+        try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(blocklist.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String trimmed = line.strip();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                int space = trimmed.indexOf(' ');
+                if (space < 0) {
+                    throw new IllegalStateException("Invalid moderation blocklist line: " + line);
+                }
+                Level level = Level.valueOf(trimmed.substring(0, space).toUpperCase(Locale.ROOT));
+                String term = normalize(trimmed.substring(space + 1));
+                if (!term.isEmpty()) {
+                    insert(term, level);
+                    terms += 1;
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not read moderation blocklist " + blocklist, ex);
+        }
+        link();
+        return terms;
+    }
+
+    private void insert(String term, Level level) {
+        Node node = root;
+        for (int i = 0; i < term.length(); i += 1) {
+            node = node.next.computeIfAbsent(term.charAt(i), ignored -> new Node());
+        }
+        if (node.level != Level.BLOCK) {
+            node.term = term;
+            node.level = level;
+        }
+    }
+
+    // Breadth-first failure links; output links skip straight to the next node that ends a term.
+    private void link() {
+        ArrayDeque<Node> queue = new ArrayDeque<>();
+        root.fail = root;
+        root.output = root;
+        for (Node child : root.next.values()) {
+            child.fail = root;
+            child.output = root;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            for (Map.Entry<Character, Node> entry : node.next.entrySet()) {
+                char c = entry.getKey();
+                Node child = entry.getValue();
+                Node fail = node.fail;
+                while (fail != root && !fail.next.containsKey(c)) {
+                    fail = fail.fail;
+                }
+                Node target = fail.next.get(c);
+                child.fail = target != null && target != child ? target : root;
+                child.output = child.fail.term != null ? child.fail : child.fail.output;
+                queue.add(child);
+            }
+        }
+    }
+
+    record Normalized(String text, boolean[] wordStarts) {
+        boolean startsWord(int index, String term) {
+            return !latin(term.charAt(0)) || wordStarts[index];
+        }
+
+        boolean endsWord(int index, String term) {
+            return !latin(term.charAt(term.length() - 1)) || wordStarts[index];
+        }
+    }
+
+    public enum Decision {
+        PASS,
+        FLAG,
+        BLOCK
+    }
+
+    private enum Level {
+        FLAG,
+        BLOCK
+    }
+
+    private static final class Node {
+        private final Map<Character, Node> next = new HashMap<>();
+        private Node fail;
+        private Node output;
+        private String term;
+        private Level level;
+    }
+}
@@ -1,41 +1,41 @@
 package com.pawzzle.infrastructure.ai;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.pawzzle.domain.pet.Pet;
+import com.pawzzle.domain.pet.PetChangedEvent;
 import com.pawzzle.domain.pet.PetRepository;
+import com.pawzzle.domain.user.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 import lombok.RequiredArgsConstructor;
-import org.springframework.ai.chat.ChatResponse;
-import org.springframework.ai.chat.messages.SystemMessage;
-import org.springframework.ai.chat.messages.UserMessage;
-import org.springframework.ai.chat.prompt.Prompt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.ai.embedding.EmbeddingClient;
-import org.springframework.ai.openai.OpenAiChatClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 @Service
 @RequiredArgsConstructor
 public class PetIngestionService {
+    private static final Logger log = LoggerFactory.getLogger(PetIngestionService.class);
+    // Bump when the fingerprint inputs change meaning, e.g. a different embedding dimension.
+    private static final String FINGERPRINT_VERSION = "1";
     private static final String TAGS_SYSTEM_PROMPT = """
         You are a data extraction assistant for a pet adoption system.
         Extract structured tags from the provided pet description.
-        Return ONLY valid JSON (no markdown, no code fences).
-        Required keys (use null if unknown):
-        {
-          "activityLevel": "low|medium|high",
-          "friendliness": "shy|neutral|friendly",
-          "goodWithKids": true|false|null,
-          "goodWithCats": true|false|null,
-          "goodWithDogs": true|false|null,
-          "trainingLevel": "untrained|basic|advanced",
-          "healthNotes": "string or null",
-          "age": "string or null",
-          "size": "small|medium|large|giant",
-          "energyNotes": "string or null"
-        }
+        Include every key; use null if unknown.
         If the description contains special needs, include them in healthNotes.
         """;
 
@@ -46,80 +46,218 @@ public class PetIngestionService {
         and ideal home environment. Do NOT include JSON or bullet points.
         """;
 
-    private final OpenAiChatClient chatClient;
+    private static final String ENRICH_SYSTEM_PROMPT = """
+        You are a data extraction and adoption matching assistant for a pet adoption system.
+        From the provided pet description, produce two things in one answer:
+        1. structuredTags: structured tags extracted from the description. Include every key; use
+           null if unknown. If the description contains special needs, include them in healthNotes.
+        2. personalityProfile: a concise "Personality Profile" (3-6 sentences) optimized for matching.
+           Use warm, neutral language. Mention temperament, energy, social behavior, and ideal home
+           environment. Plain prose only, no JSON or bullet points.
+        """;
+
+    private static final PromptTemplate TAGS_USER_TEMPLATE = PromptTemplate.compile("""
+        Name: {name}
+        Species: {species}
+        Description: {description}
+        """);
+
+    private static final PromptTemplate PROFILE_USER_TEMPLATE = PromptTemplate.compile("""
+        Name: {name}
+        Species: {species}
+        Description: {description}
+        StructuredTags: {tags}
+        """);
+
+    private final PromptAssembler promptAssembler;
+    private final StructuredOutput structuredOutput;
+    private final PromptBudget promptBudget;
     private final EmbeddingClient embeddingClient;
     private final PetRepository petRepository;
     private final ObjectMapper objectMapper;
+    private final LlmJsonParser llmJsonParser;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ModelRouter modelRouter;
+    private final MeterRegistry meterRegistry;
 
-    public Pet processNewPet(String name, String rawDescription, String species) {
-        String tagsJson = callChat(TAGS_SYSTEM_PROMPT, buildTagsUserPrompt(name, rawDescription, species));
-        JsonNode tagsNode = parseJsonOrEmpty(tagsJson);
+    @Value("${pawzzle.ingest.combined-enrichment:true}")
+    private boolean combinedEnrichment;
 
-        String profileText = callChat(PROFILE_SYSTEM_PROMPT,
-            buildProfileUserPrompt(name, rawDescription, species, tagsJson));
+    @Value("${spring.ai.openai.embedding.options.model:text-embedding-3-small}")
+    private String embeddingModel;
 
-        List<Double> embedding = embeddingClient.embed(profileText);
+    // Re-ingesting a pet whose name, species and description are unchanged makes no model calls.
+    public Pet processNewPet(String name, String rawDescription, String species) {
+        PreparedPet prepared = preparePet(name, rawDescription, species, null);
+        if (!prepared.changed()) {
+            return prepared.pet();
+        }
+        Pet saved = petRepository.save(prepared.pet());
+        eventPublisher.publishEvent(new PetChangedEvent(saved.getId()));
+        return saved;
+    }
 
-        Pet pet = Pet.builder()
+    // The owner's pet with this name, created or brought up to date but not saved, for callers that
+    // save several at once. A pet whose fingerprint already matches is returned untouched.
+    public PreparedPet preparePet(String name, String rawDescription, String species, User owner) {
+        Pet pet = findExisting(name, owner).orElseGet(() -> Pet.builder()
             .name(name)
-            .species(Pet.Species.valueOf(species.trim().toUpperCase()))
             .status(Pet.Status.OPEN)
-            .rawDescription(rawDescription)
-            .structuredTags(tagsNode)
-            .personalityVector(embedding)
-            .build();
+            .owner(owner)
+            .build());
+        String fingerprint = fingerprint(name, rawDescription, species);
+        if (fingerprint.equals(pet.getEnrichmentFingerprint())) {
+            return new PreparedPet(pet, false);
+        }
+        Profile profile = profile(name, rawDescription, species);
+        pet.setSpecies(Pet.Species.valueOf(species.trim().toUpperCase()));
+        pet.setRawDescription(rawDescription);
+        pet.setStructuredTags(profile.tags());
+        pet.setPersonalityVector(profile.vector());
+        pet.setEnrichmentFingerprint(profile.fingerprint());
+        return new PreparedPet(pet, true);
+    }
+
+    public Optional<Pet> findExisting(String name, User owner) {
+        return owner == null
+            ? petRepository.findFirstByNameAndOwnerIsNullOrderByIdAsc(name)
+            : petRepository.findFirstByNameAndOwnerIdOrderByIdAsc(name, owner.getId());
+    }
+
+    // Structured tags and the personality vector, ready to set on a pet. Copied from any pet already
+    // enriched from the same inputs when there is one.
+    public Profile profile(String name, String rawDescription, String species) {
+        String fingerprint = fingerprint(name, rawDescription, species);
+        Optional<Profile> stored = storedProfile(fingerprint);
+        if (stored.isPresent()) {
+            return stored.get();
+        }
+        Enrichment enrichment = enrich(name, rawDescription, species);
+        return new Profile(enrichment.tags(), embeddingClient.embed(enrichment.profileText()), fingerprint);
+    }
+
+    public Optional<Profile> storedProfile(String fingerprint) {
+        Optional<Profile> stored = petRepository.findFirstByEnrichmentFingerprint(fingerprint)
+            .filter(pet -> pet.getPersonalityVector() != null)
+            .map(pet -> new Profile(pet.getStructuredTags(), pet.getPersonalityVector(), fingerprint));
+        Counter.builder("pawzzle.ingest.enrichment")
+            .tag("outcome", stored.isPresent() ? "reused" : "computed")
+            .register(meterRegistry)
+            .increment();
+        return stored;
+    }
+
+    // SHA-256 over everything the enrichment depends on: the pet's inputs, the prompts with their
+    // schemas, and the models. Editing a prompt or switching a model changes every fingerprint, so
+    // pets are re-enriched the next time they are ingested.
+    public String fingerprint(String name, String rawDescription, String species) {
+        String inputs = String.join("\u0000",
+            FINGERPRINT_VERSION,
+            normalize(name),
+            normalize(species).toUpperCase(Locale.ROOT),
+            normalize(rawDescription),
+            String.valueOf(combinedEnrichment),
+            structuredOutput.systemPrompt(ENRICH_SYSTEM_PROMPT, PetEnrichment.class),
+            structuredOutput.systemPrompt(TAGS_SYSTEM_PROMPT, PetTags.class),
+            PROFILE_SYSTEM_PROMPT,
+            modelRouter.model("enrich"),
+            modelRouter.model("tags"),
+            modelRouter.model("profile"),
+            embeddingModel);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(inputs.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
 
-        return petRepository.save(pet);
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim();
     }
 
-    private String buildTagsUserPrompt(String name, String rawDescription, String species) {
-        return """
-            Name: %s
-            Species: %s
-            Description: %s
-            """.formatted(name, species, rawDescription);
+    // Tags and the profile text that gets embedded. One call returns both; an answer that does not
+    // validate falls back to the original two calls, tags first and then the profile built on them.
+    public Enrichment enrich(String name, String rawDescription, String species) {
+        if (combinedEnrichment) {
+            String userPrompt = buildDescriptionUserPrompt("enrich", ENRICH_SYSTEM_PROMPT, PetEnrichment.class,
+                name, rawDescription, species);
+            StructuredOutput.Result<PetEnrichment> combined = structuredOutput.call(
+                "enrich", ENRICH_SYSTEM_PROMPT, null, userPrompt, PetEnrichment.class);
+            if (combined.valid() && !combined.value().personalityProfile().isBlank()) {
+                return new Enrichment(objectMapper.valueToTree(combined.value().structuredTags()),
+                    combined.value().personalityProfile().trim());
+            }
+            log.debug("Combined enrichment for {} did not validate; using separate tag and profile calls", name);
+        }
+        return enrichInTwoCalls(name, rawDescription, species);
+    }
+
+    private Enrichment enrichInTwoCalls(String name, String rawDescription, String species) {
+        String userPrompt = buildDescriptionUserPrompt("tags", TAGS_SYSTEM_PROMPT, PetTags.class,
+            name, rawDescription, species);
+        StructuredOutput.Result<PetTags> tags = structuredOutput.call(
+            "tags", TAGS_SYSTEM_PROMPT, null, userPrompt, PetTags.class);
+        JsonNode tagsNode = tags.valid() ? objectMapper.valueToTree(tags.value()) : parseJsonOrEmpty(tags.content());
+        String tagsJson = tagsNode.toString();
+
+        String profileText = callChat("profile", PROFILE_SYSTEM_PROMPT,
+            buildProfileUserPrompt(name, rawDescription, species, tagsJson));
+        return new Enrichment(tagsNode, profileText);
+    }
+
+    // The description is the only unbounded section, so it is what gets cut to the route budget.
+    private String buildDescriptionUserPrompt(String route, String systemPrompt, Class<?> type,
+                                              String name, String rawDescription, String species) {
+        int budget = promptBudget.remaining(route, structuredOutput.systemPrompt(systemPrompt, type),
+            TAGS_USER_TEMPLATE.render(name, species, ""));
+        return TAGS_USER_TEMPLATE.render(name, species, promptBudget.truncate(rawDescription, budget));
     }
 
     private String buildProfileUserPrompt(String name, String rawDescription, String species, String tagsJson) {
-        return """
-            Name: %s
-            Species: %s
-            Description: %s
-            StructuredTags: %s
-            """.formatted(name, species, rawDescription, tagsJson);
+        int budget = promptBudget.remaining("profile", PROFILE_SYSTEM_PROMPT,
+            PROFILE_USER_TEMPLATE.render(name, species, "", tagsJson));
+        return PROFILE_USER_TEMPLATE.render(name, species, promptBudget.truncate(rawDescription, budget), tagsJson);
     }
 
-    private String callChat(String systemPrompt, String userPrompt) {
-        Prompt prompt = new Prompt(List.of(
-            new SystemMessage(systemPrompt),
-            new UserMessage(userPrompt)
-        ));
-        ChatResponse response = chatClient.call(prompt);
-        return response.getResult().getOutput().getContent().trim();
+    private String callChat(String name, String systemPrompt, String userPrompt) {
+        return promptAssembler.callText(name, systemPrompt, userPrompt);
     }
 
     private JsonNode parseJsonOrEmpty(String text) {
-        String cleaned = stripCodeFences(text);
-        try {
-            return objectMapper.readTree(cleaned);
-        } catch (JsonProcessingException ex) {
+        return llmJsonParser.read(text, JsonNode.class).orElseGet(() -> {
             ObjectNode fallback = objectMapper.createObjectNode();
-            fallback.put("raw", cleaned);
+            fallback.put("raw", LlmJsonParser.stripCodeFences(text));
             return fallback;
-        }
+        });
     }
 
-    private String stripCodeFences(String text) {
-        String trimmed = text.trim();
-        if (trimmed.startsWith("```")) {
-            int firstNewline = trimmed.indexOf('\n');
-            if (firstNewline > -1) {
-                trimmed = trimmed.substring(firstNewline + 1);
-            }
-            if (trimmed.endsWith("```")) {
-                trimmed = trimmed.substring(0, trimmed.length() - 3);
-            }
-        }
-        return trimmed.trim();
+    public record Enrichment(JsonNode tags, String profileText) {
+    }
+
+    public record Profile(JsonNode tags, List<Double> vector, String fingerprint) {
+    }
+
+    public record PreparedPet(Pet pet, boolean changed) {
+    }
+
+    private record PetEnrichment(
+        @JsonProperty(required = true) PetTags structuredTags,
+        @JsonProperty(required = true) String personalityProfile
+    ) {
+    }
+
+    private record PetTags(
+        @JsonPropertyDescription("low, medium or high") String activityLevel,
+        @JsonPropertyDescription("shy, neutral or friendly") String friendliness,
+        Boolean goodWithKids,
+        Boolean goodWithCats,
+        Boolean goodWithDogs,
+        @JsonPropertyDescription("untrained, basic or advanced") String trainingLevel,
+        String healthNotes,
+        String age,
+        @JsonPropertyDescription("small, medium, large or giant") String size,
+        String energyNotes
+    ) {
     }
 }
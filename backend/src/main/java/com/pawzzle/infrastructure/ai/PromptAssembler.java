@@ -0,0 +1,243 @@
+package com.pawzzle.infrastructure.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.chat.ChatResponse;
+import org.springframework.ai.chat.Generation;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.openai.OpenAiChatClient;
+import org.springframework.stereotype.Component;
+
+// Builds every chat prompt as [static system prompt, dynamic user message]. The system message is
+// a constant and always first, so the provider's automatic prefix cache can match it across
+// calls; per-request context is moved into the user message instead of being appended to it.
+@Component
+@RequiredArgsConstructor
+public class PromptAssembler {
+    private static final PromptTemplate CONTEXT_TEMPLATE = PromptTemplate.compile("""
+        Additional conversation context:
+        {context}
+
+        {body}""");
+    private static final int HEDGE_THREADS = 64;
+    private final OpenAiChatClient chatClient;
+    private final ModelRouter modelRouter;
+    private final PromptBudget promptBudget;
+    private final MeterRegistry meterRegistry;
+    private final CachedTokenInterceptor cachedTokens;
+    // Hedged attempts run here rather than on taskExecutor, whose threads are the ones waiting on them.
+    // Bounded: when it is full, calls go out unhedged on the caller's thread instead.
+    private final ThreadPoolExecutor hedgeExecutor = new ThreadPoolExecutor(
+        0, HEDGE_THREADS, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "PawzzleHedge");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    public String userMessage(String contextPrompt, String body) {
+        String context = contextPrompt == null ? null : contextPrompt.trim();
+        if (context == null || context.isEmpty()) {
+            return body;
+        }
+        return CONTEXT_TEMPLATE.render(context, body);
+    }
+
+    public Prompt assemble(String systemPrompt, String contextPrompt, String body) {
+        return new Prompt(List.of(
+            new SystemMessage(systemPrompt),
+            new UserMessage(userMessage(contextPrompt, body))
+        ));
+    }
+
+    // The route picks model and generation options; see ModelRouter.
+    public ChatResponse call(String route, Prompt prompt) {
+        ModelRouter.Call call = modelRouter.begin(route);
+        long hedgeAfter = modelRouter.hedgeDelayMillis(call);
+        ChatResponse response = hedgeAfter < 0 ? attempt(call, prompt, null) : hedged(call, prompt, hedgeAfter);
+        record(route, prompt, response);
+        return response;
+    }
+
+    // Sends a second identical request once the first has run past the route's latency percentile
+    // and returns whichever answers first. A blocking chat call cannot be interrupted, so the other
+    // attempt runs to completion and is recorded, cost included, with outcome "lost".
+    private ChatResponse hedged(ModelRouter.Call primary, Prompt prompt, long delayMillis) {
+        AtomicBoolean decided = new AtomicBoolean();
+        CompletableFuture<Attempt> first;
+        try {
+            first = launch(primary, prompt, false, decided);
+        } catch (RejectedExecutionException ex) {
+            return attempt(primary, prompt, null);
+        }
+        try {
+            try {
+                return first.get(delayMillis, TimeUnit.MILLISECONDS).response();
+            } catch (TimeoutException ex) {
+                // Past the hedge delay; fall through and consider a second attempt.
+            }
+            ModelRouter.Call hedge = modelRouter.beginHedge(primary);
+            if (hedge == null) {
+                return first.get().response();
+            }
+            CompletableFuture<Attempt> second;
+            try {
+                second = launch(hedge, prompt, true, decided);
+            } catch (RejectedExecutionException ex) {
+                modelRouter.end(hedge, null, "rejected");
+                modelRouter.recordHedge(primary, "skipped");
+                return first.get().response();
+            }
+            Attempt attempt = firstSuccessful(first, second).get();
+            modelRouter.recordHedge(primary, attempt.hedge() ? "won" : "lost");
+            return attempt.response();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Chat call failed", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for chat response", ex);
+        }
+    }
+
+    private CompletableFuture<Attempt> launch(ModelRouter.Call call, Prompt prompt, boolean hedge, AtomicBoolean decided) {
+        return CompletableFuture.supplyAsync(() -> new Attempt(attempt(call, prompt, decided), hedge), hedgeExecutor);
+    }
+
+    // Fails only once both attempts have failed, with the later failure.
+    private static CompletableFuture<Attempt> firstSuccessful(CompletableFuture<Attempt> first, CompletableFuture<Attempt> second) {
+        CompletableFuture<Attempt> result = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<Attempt> attempt : List.of(first, second)) {
+            attempt.whenComplete((value, ex) -> {
+                if (ex == null) {
+                    result.complete(value);
+                } else if (failures.incrementAndGet() == 2) {
+                    result.completeExceptionally(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+                }
+            });
+        }
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hedgeExecutor.shutdownNow();
+    }
+
+    // Of the hedged attempts, the first to succeed claims the race; one that succeeds later is "lost".
+    private ChatResponse attempt(ModelRouter.Call call, Prompt prompt, AtomicBoolean decided) {
+        ChatResponse response = null;
+        try {
+            response = chatClient.call(new Prompt(prompt.getInstructions(), call.options()));
+            recordCached(call, response);
+            return response;
+        } finally {
+            String outcome = response == null ? "error" : decided == null || decided.compareAndSet(false, true) ? "ok" : "lost";
+            modelRouter.end(call, response, outcome);
+        }
+    }
+
+    // Hands each content delta to onChunk as it arrives, on the calling thread, and returns the whole
+    // answer once the stream ends. Streams are not hedged since the first attempt is already
+    // producing output, and carry no usage block, so token metrics use the local counts.
+    public ChatResponse stream(String route, Prompt prompt, Consumer<String> onChunk) {
+        ModelRouter.Call call = modelRouter.begin(route);
+        ChatResponse response = null;
+        try {
+            StringBuilder content = new StringBuilder();
+            // Closing the stream cancels the request if onChunk gives up part way.
+            try (Stream<ChatResponse> chunks = chatClient.stream(new Prompt(prompt.getInstructions(), call.options())).toStream()) {
+                chunks.forEach(chunk -> {
+                    String delta = chunk.getResult() == null ? null : chunk.getResult().getOutput().getContent();
+                    if (delta != null && !delta.isEmpty()) {
+                        content.append(delta);
+                        onChunk.accept(delta);
+                    }
+                });
+            }
+            response = new ChatResponse(List.of(new Generation(content.toString())));
+        } finally {
+            modelRouter.end(call, response, response != null ? "ok" : "error");
+        }
+        record(route, prompt, response);
+        return response;
+    }
+
+    public String callText(String route, String systemPrompt, String userPrompt) {
+        ChatResponse response = call(route, assemble(systemPrompt, null, userPrompt));
+        String content = response.getResult().getOutput().getContent();
+        return content == null ? "" : content.trim();
+    }
+
+    // Token counts come from the API usage block, or from the local tokenizer when it is missing.
+    private void record(String route, Prompt prompt, ChatResponse response) {
+        Usage usage = response.getMetadata() == null ? null : response.getMetadata().getUsage();
+        Long reportedPrompt = usage == null ? null : usage.getPromptTokens();
+        Long reportedCompletion = usage == null ? null : usage.getGenerationTokens();
+        long promptTokens = reportedPrompt != null && reportedPrompt > 0
+            ? reportedPrompt
+            : promptBudget.count(prompt.getInstructions());
+        String completion = response.getResult() == null ? null : response.getResult().getOutput().getContent();
+        long completionTokens = reportedCompletion != null && reportedCompletion > 0
+            ? reportedCompletion
+            : promptBudget.count(completion);
+        DistributionSummary.builder("pawzzle.llm.prompt.tokens")
+            .baseUnit("tokens")
+            .tag("route", route)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(promptTokens);
+        DistributionSummary.builder("pawzzle.llm.completion.tokens")
+            .baseUnit("tokens")
+            .tag("route", route)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(completionTokens);
+    }
+
+    // Prompt-cache hits as reported by the API, for every attempt including hedges; calls whose
+    // response carries no cached-token count, such as streams, are not recorded.
+    private void recordCached(ModelRouter.Call call, ChatResponse response) {
+        OptionalLong cached = cachedTokens.take();
+        Usage usage = response.getMetadata() == null ? null : response.getMetadata().getUsage();
+        Long promptTokens = usage == null ? null : usage.getPromptTokens();
+        if (cached.isEmpty() || promptTokens == null || promptTokens <= 0) {
+            return;
+        }
+        Counter.builder("pawzzle.llm.prompt.cached.tokens")
+            .description("Prompt tokens served from the provider's prompt cache")
+            .tag("route", call.route().name())
+            .register(meterRegistry)
+            .increment(cached.getAsLong());
+        DistributionSummary.builder("pawzzle.llm.prompt.cached.ratio")
+            .description("Share of the prompt served from the provider's prompt cache")
+            .tag("route", call.route().name())
+            .register(meterRegistry)
+            .record((double) cached.getAsLong() / promptTokens);
+    }
+
+    private record Attempt(ChatResponse response, boolean hedge) {
+    }
+}
@@ -0,0 +1,127 @@
+package com.pawzzle.infrastructure.ai;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingResult;
+import com.knuddels.jtokkit.api.EncodingType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntPredicate;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+// Token counting with the chat model's own BPE encoding, plus per-route input budgets from
+// pawzzle.llm.routes.<route>.prompt-budget. Prompt builders use it to trim their variable
+// sections, lowest priority first, until the rendered prompt fits the route's budget.
+@Component
+public class PromptBudget {
+    // Role markers and separators the chat format adds around each message.
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+    private static final int REPLY_PRIMING_TOKENS = 3;
+
+    private final Encoding encoding;
+    private final Environment environment;
+
+    public PromptBudget(
+        Environment environment,
+        @Value("${spring.ai.openai.chat.options.model:gpt-4o-mini}") String model
+    ) {
+        EncodingRegistry registry = Encodings.newLazyEncodingRegistry();
+        this.encoding = registry.getEncodingForModel(model)
+            .orElseGet(() -> registry.getEncoding(EncodingType.O200K_BASE));
+        this.environment = environment;
+    }
+
+    public int count(String text) {
+        return text == null || text.isEmpty() ? 0 : encoding.countTokens(text);
+    }
+
+    public int count(List<Message> messages) {
+        int total = REPLY_PRIMING_TOKENS;
+        for (Message message : messages) {
+            total += MESSAGE_OVERHEAD_TOKENS + count(message.getContent());
+        }
+        return total;
+    }
+
+    public boolean fits(String text, int budget) {
+        return budget == Integer.MAX_VALUE || count(text) <= budget;
+    }
+
+    // Tokens left for a route's user message once its fixed parts (system prompt, context) are
+    // counted; Integer.MAX_VALUE when the route has no budget.
+    public int remaining(String route, String... fixedParts) {
+        Integer limit = environment.getProperty("pawzzle.llm.routes." + route + ".prompt-budget", Integer.class);
+        if (limit == null) {
+            return Integer.MAX_VALUE;
+        }
+        int used = REPLY_PRIMING_TOKENS + MESSAGE_OVERHEAD_TOKENS * 2;
+        for (String part : fixedParts) {
+            used += count(part);
+        }
+        return Math.max(0, limit - used);
+    }
+
+    public String truncate(String text, int maxTokens) {
+        if (text == null || maxTokens == Integer.MAX_VALUE) {
+            return text;
+        }
+        EncodingResult result = encoding.encode(text, Math.max(0, maxTokens));
+        if (!result.isTruncated()) {
+            return text;
+        }
+        // A cut inside a multi-byte character decodes to a replacement character.
+        String decoded = encoding.decode(result.getTokens());
+        int end = decoded.length();
+        while (end > 0 && decoded.charAt(end - 1) == '�') {
+            end -= 1;
+        }
+        return decoded.substring(0, end) + "…";
+    }
+
+    // Drops lines from the front (the oldest) until the rest, joined by newlines, fits. The newest
+    // line is truncated rather than dropped when it alone is over budget.
+    public List<String> keepNewest(List<String> lines, int budget) {
+        if (budget == Integer.MAX_VALUE) {
+            return lines;
+        }
+        if (lines.isEmpty() || budget <= 1) {
+            return List.of();
+        }
+        if (count(lines.get(lines.size() - 1)) + 1 > budget) {
+            return List.of(truncate(lines.get(lines.size() - 1), budget - 1));
+        }
+        List<String> kept = new ArrayList<>();
+        int used = 0;
+        for (int i = lines.size() - 1; i >= 0; i -= 1) {
+            int cost = count(lines.get(i)) + 1;
+            if (used + cost > budget) {
+                break;
+            }
+            kept.add(lines.get(i));
+            used += cost;
+        }
+        Collections.reverse(kept);
+        return kept;
+    }
+
+    // Largest k in [0, n] for which fits(k) holds, assuming fewer items always fit; used to cut
+    // ranked lists from the tail with a logarithmic number of renders.
+    public int largestFitting(int n, IntPredicate fits) {
+        int low = 0;
+        int high = n;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (fits.test(mid)) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+}
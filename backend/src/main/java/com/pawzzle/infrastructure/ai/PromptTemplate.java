@@ -0,0 +1,63 @@
+package com.pawzzle.infrastructure.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// A prompt template parsed once into literal segments and {name} slots. Rendering is a single
+// append pass into a presized builder instead of re-parsing a format string on every call.
+public final class PromptTemplate {
+    private final String[] literals;
+    private final String[] slots;
+    private final int literalLength;
+
+    private PromptTemplate(String[] literals, String[] slots) {
+        this.literals = literals;
+        this.slots = slots;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    public static PromptTemplate compile(String template) {
+        List<String> literals = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+        int position = 0;
+        while (true) {
+            int open = template.indexOf('{', position);
+            int close = open < 0 ? -1 : template.indexOf('}', open);
+            if (close < 0) {
+                literals.add(template.substring(position));
+                break;
+            }
+            String name = template.substring(open + 1, close);
+            if (!name.matches("[A-Za-z][A-Za-z0-9]*")) {
+                throw new IllegalArgumentException("Invalid prompt slot: {" + name + "}");
+            }
+            literals.add(template.substring(position, open));
+            slots.add(name);
+            position = close + 1;
+        }
+        return new PromptTemplate(literals.toArray(String[]::new), slots.toArray(String[]::new));
+    }
+
+    // Values are bound to slots in the order the slots appear in the template.
+    public String render(Object... values) {
+        if (values.length != slots.length) {
+            throw new IllegalArgumentException("Expected " + slots.length + " values for " + List.of(slots)
+                + " but got " + values.length);
+        }
+        String[] rendered = new String[values.length];
+        int length = literalLength;
+        for (int i = 0; i < values.length; i += 1) {
+            rendered[i] = String.valueOf(values[i]);
+            length += rendered[i].length();
+        }
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < rendered.length; i += 1) {
+            builder.append(literals[i]).append(rendered[i]);
+        }
+        return builder.append(literals[literals.length - 1]).toString();
+    }
+}
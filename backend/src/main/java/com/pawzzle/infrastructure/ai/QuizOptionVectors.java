@@ -0,0 +1,207 @@
+package com.pawzzle.infrastructure.ai;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pawzzle.domain.vector.VectorSqlUtils;
+import com.pawzzle.domain.vector.VectorStringConverter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+// Embeddings of the fixed quiz options, computed once and kept in quiz_option_vectors. Rows are
+// keyed by a hash of the embedding model and the option text, so editing quiz-options.json
+// re-embeds only what changed and switching models re-embeds everything.
+// A quiz-only query vector is then a normalized weighted sum of the chosen options.
+@Component
+@RequiredArgsConstructor
+public class QuizOptionVectors {
+    private static final Logger log = LoggerFactory.getLogger(QuizOptionVectors.class);
+    private static final VectorStringConverter CONVERTER = new VectorStringConverter();
+
+    private final EmbeddingClient embeddingClient;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Map<String, WeightedVector> options = new ConcurrentHashMap<>();
+
+    @Value("${pawzzle.agent.quiz.options:classpath:quiz-options.json}")
+    private Resource catalogue;
+
+    @Value("${spring.ai.openai.embedding.options.model:}")
+    private String embeddingModel;
+
+    @Async("taskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            load();
+        } catch (RuntimeException | IOException ex) {
+            log.warn("Quiz option vectors unavailable, quiz answers will be embedded per request", ex);
+        }
+    }
+
+    public synchronized void load() throws IOException {
+        jdbcTemplate.execute("""
+            create table if not exists quiz_option_vectors (
+                option_key varchar(64) primary key,
+                question text not null,
+                answer text not null,
+                vector vector not null,
+                created_at timestamp not null default now()
+            )
+            """);
+        List<QuizQuestion> questions;
+        try (InputStream input = catalogue.getInputStream()) {
+            questions = objectMapper.readValue(input, new TypeReference<List<QuizQuestion>>() {
+            });
+        }
+
+        Map<String, List<Double>> stored = new HashMap<>();
+        jdbcTemplate.query("select option_key, vector::text as vector from quiz_option_vectors", (RowCallbackHandler) rs ->
+            stored.put(rs.getString("option_key"), CONVERTER.convertToEntityAttribute(rs.getString("vector"))));
+
+        List<String> missingKeys = new ArrayList<>();
+        List<String> missingTexts = new ArrayList<>();
+        List<String[]> missingPairs = new ArrayList<>();
+        for (QuizQuestion question : questions) {
+            for (String answer : question.answers()) {
+                String key = key(question.question(), answer);
+                if (!stored.containsKey(key)) {
+                    missingKeys.add(key);
+                    missingTexts.add(optionText(question.question(), answer));
+                    missingPairs.add(new String[] { question.question(), answer });
+                }
+            }
+        }
+        if (!missingTexts.isEmpty()) {
+            List<List<Double>> embedded = embeddingClient.embed(missingTexts);
+            for (int i = 0; i < embedded.size(); i += 1) {
+                jdbcTemplate.update("""
+                    insert into quiz_option_vectors (option_key, question, answer, vector)
+                    values (?, ?, ?, cast(? as vector))
+                    on conflict (option_key) do update set vector = excluded.vector
+                    """, missingKeys.get(i), missingPairs.get(i)[0], missingPairs.get(i)[1],
+                    VectorSqlUtils.toVector(embedded.get(i)));
+                stored.put(missingKeys.get(i), embedded.get(i));
+            }
+        }
+
+        Map<String, WeightedVector> loaded = new HashMap<>();
+        int dimensions = -1;
+        for (QuizQuestion question : questions) {
+            double weight = question.weight() == null ? 1.0 : question.weight();
+            for (String answer : question.answers()) {
+                String key = key(question.question(), answer);
+                List<Double> vector = stored.get(key);
+                if (dimensions >= 0 && vector.size() != dimensions) {
+                    throw new IllegalStateException("Quiz option vectors disagree on dimensions: "
+                        + dimensions + " and " + vector.size());
+                }
+                dimensions = vector.size();
+                loaded.put(key, new WeightedVector(vector, weight));
+            }
+        }
+        // Rows for edited options or a previous model are never read again.
+        jdbcTemplate.update(
+            "delete from quiz_option_vectors where option_key <> all(?)",
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", loaded.keySet().toArray()))
+        );
+        options.clear();
+        options.putAll(loaded);
+        log.info("Quiz option vectors ready: {} options ({} newly embedded)", loaded.size(), missingTexts.size());
+    }
+
+    // Known options are summed from the table; anything else is embedded once as a single block
+    // of free text. Returns null when no answer matches a known option.
+    public List<Double> compose(List<Answer> answers) {
+        double[] sum = null;
+        List<String> freeText = new ArrayList<>();
+        for (Answer answer : answers) {
+            WeightedVector option = options.get(key(answer.question(), answer.answer()));
+            if (option == null) {
+                freeText.add(optionText(answer.question(), answer.answer()));
+                continue;
+            }
+            sum = add(sum, option.vector(), option.weight());
+        }
+        if (sum == null) {
+            return null;
+        }
+        if (!freeText.isEmpty()) {
+            sum = add(sum, embeddingClient.embed(String.join("\n", freeText)), freeText.size());
+        }
+        return normalize(sum);
+    }
+
+    private static double[] add(double[] sum, List<Double> vector, double weight) {
+        double[] target = sum == null ? new double[vector.size()] : sum;
+        if (vector.size() != target.length) {
+            throw new IllegalStateException("Embedding has " + vector.size()
+                + " dimensions but the quiz option vectors have " + target.length);
+        }
+        double norm = 0;
+        for (Double value : vector) {
+            norm += value * value;
+        }
+        double scale = norm == 0 ? 0 : weight / Math.sqrt(norm);
+        for (int i = 0; i < target.length; i += 1) {
+            target[i] += vector.get(i) * scale;
+        }
+        return target;
+    }
+
+    private static List<Double> normalize(double[] sum) {
+        double norm = 0;
+        for (double value : sum) {
+            norm += value * value;
+        }
+        double scale = norm == 0 ? 0 : 1 / Math.sqrt(norm);
+        List<Double> result = new ArrayList<>(sum.length);
+        for (double value : sum) {
+            result.add(value * scale);
+        }
+        return result;
+    }
+
+    private static String optionText(String question, String answer) {
+        return "Q: " + question.trim() + "\nA: " + answer.trim();
+    }
+
+    private String key(String question, String answer) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((embeddingModel + "\n" + optionText(question, answer)).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    public record Answer(String question, String answer) {
+    }
+
+    private record QuizQuestion(String question, Double weight, List<String> answers) {
+    }
+
+    private record WeightedVector(List<Double> vector, double weight) {
+    }
+}
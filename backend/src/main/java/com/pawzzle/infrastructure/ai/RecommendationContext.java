@@ -0,0 +1,55 @@
+package com.pawzzle.infrastructure.ai;
+
+import com.pawzzle.domain.pet.Pet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+import lombok.Setter;
+
+// State handed from stage to stage. Fields are volatile because stages in a parallel step run
+// on different executor threads.
+@Getter
+@Setter
+public class RecommendationContext {
+    private final int retrievalLimit;
+    private final int narrowTo;
+    private final Map<String, Long> stageMillis = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    private volatile String queryText;
+    private volatile String speciesText;
+    private volatile String species;
+    private volatile List<Double> vector;
+    private volatile List<Pet> candidates = List.of();
+    private volatile String rerankPrompt;
+    private volatile String rerankResponse;
+    private volatile Object rerankResult;
+
+    public RecommendationContext(int retrievalLimit, int narrowTo) {
+        this.retrievalLimit = retrievalLimit;
+        this.narrowTo = narrowTo;
+    }
+
+    public boolean hasVector() {
+        return vector != null && !vector.isEmpty();
+    }
+
+    // The bound rerank answer, or null when the stage did not run or the answer did not validate.
+    public <T> T getRerankResult(Class<T> type) {
+        return type.isInstance(rerankResult) ? type.cast(rerankResult) : null;
+    }
+
+    void recordTiming(String stage, long millis) {
+        stageMillis.put(stage, millis);
+    }
+
+    public String formatTimings() {
+        StringBuilder timings = new StringBuilder();
+        synchronized (stageMillis) {
+            stageMillis.forEach((stage, millis) ->
+                timings.append("stage.").append(stage).append(".ms=").append(millis).append('\n'));
+        }
+        return timings.toString();
+    }
+}
@@ -0,0 +1,183 @@
+package com.pawzzle.infrastructure.ai;
+
+import com.pawzzle.domain.pet.Pet;
+import com.pawzzle.infrastructure.vector.PetRetrievalService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingClient;
+import org.springframework.stereotype.Service;
+
+// Shared recommendation pipeline: query building, embedding, retrieval, filtering, narrowing and
+// rerank as composable stages. Endpoints assemble a pipeline from these stages plus their own
+// query and prompt stages, so an improvement to a shared stage reaches every caller.
+@Service
+@RequiredArgsConstructor
+public class RecommendationEngine {
+    private static final Logger log = LoggerFactory.getLogger(RecommendationEngine.class);
+    private static final String SPECIES_SYSTEM_PROMPT = """
+        You detect preferred species from user messages.
+        If the user explicitly mentions a preference for cats or dogs,
+        respond with exactly one of: CAT or DOG.
+        If no preference is mentioned, respond with NONE.
+        """;
+
+    private final PromptAssembler promptAssembler;
+    private final StructuredOutput structuredOutput;
+    private final PromptBudget promptBudget;
+    private final ClassificationBatcher classificationBatcher;
+    private final EmbeddingClient embeddingClient;
+    private final PetRetrievalService petRetrievalService;
+    private final Executor taskExecutor;
+
+    public Pipeline pipeline() {
+        return new Pipeline();
+    }
+
+    public RecommendationStage embedding() {
+        return RecommendationStage.of("embedding", context -> {
+            if (context.getQueryText() != null) {
+                context.setVector(embeddingClient.embed(context.getQueryText()));
+            }
+        });
+    }
+
+    // Keyword match first; the model is only asked when the caller allows the extra round trip.
+    public RecommendationStage speciesDetection(boolean modelFallback) {
+        return RecommendationStage.of("species", context -> {
+            String text = context.getSpeciesText() != null ? context.getSpeciesText() : context.getQueryText();
+            String species = detectSpeciesByKeyword(text);
+            if (species == null && modelFallback && text != null) {
+                String message = promptBudget.truncate(text, promptBudget.remaining("species", SPECIES_SYSTEM_PROMPT));
+                String response = classificationBatcher.submit("species", SPECIES_SYSTEM_PROMPT, message)
+                    .join()
+                    .toUpperCase(Locale.ROOT);
+                if ("CAT".equals(response) || "DOG".equals(response)) {
+                    species = response;
+                }
+            }
+            context.setSpecies(species);
+        });
+    }
+
+    public RecommendationStage retrieval() {
+        return RecommendationStage.of("retrieval", context -> {
+            if (context.hasVector()) {
+                context.setCandidates(petRetrievalService.search(
+                    context.getSpecies(), context.getVector(), context.getRetrievalLimit()));
+            }
+        });
+    }
+
+    public RecommendationStage openPetsOnly() {
+        return RecommendationStage.of("filter", context -> {
+            Set<Long> seen = new HashSet<>();
+            List<Pet> kept = new ArrayList<>();
+            for (Pet pet : context.getCandidates()) {
+                if (pet != null && pet.getId() != null && pet.getStatus() == Pet.Status.OPEN && seen.add(pet.getId())) {
+                    kept.add(pet);
+                }
+            }
+            context.setCandidates(kept);
+        });
+    }
+
+    public RecommendationStage narrow() {
+        return RecommendationStage.of("narrow", context -> {
+            List<Pet> candidates = context.getCandidates();
+            if (candidates.size() > context.getNarrowTo()) {
+                context.setCandidates(new ArrayList<>(candidates.subList(0, context.getNarrowTo())));
+            }
+        });
+    }
+
+    // The prompt function returns null to skip the model call, e.g. when nothing is left to rank.
+    // The answer is bound to the given record; see StructuredOutput.
+    public RecommendationStage rerank(String systemPrompt, Class<?> answerType, Function<RecommendationContext, String> userPrompt) {
+        return RecommendationStage.of("rerank", context -> {
+            String prompt = userPrompt.apply(context);
+            if (prompt == null) {
+                return;
+            }
+            context.setRerankPrompt(prompt);
+            StructuredOutput.Result<?> result = structuredOutput.call("rerank", systemPrompt, null, prompt, answerType);
+            context.setRerankResponse(result.content());
+            context.setRerankResult(result.value());
+        });
+    }
+
+    // Runs the given stages one after another inside a single pipeline step, timing each.
+    public RecommendationStage sequence(String name, RecommendationStage... stages) {
+        return RecommendationStage.of(name, context -> {
+            for (RecommendationStage stage : stages) {
+                timed(stage, context);
+            }
+        });
+    }
+
+    public String callChat(String name, String systemPrompt, String userPrompt) {
+        return promptAssembler.callText(name, systemPrompt, userPrompt);
+    }
+
+    private String detectSpeciesByKeyword(String text) {
+        if (text == null) {
+            return null;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        if (lower.contains("cat") || lower.contains("kitten") || lower.contains("feline") || text.contains("猫")) {
+            return "CAT";
+        }
+        if (lower.contains("dog") || lower.contains("puppy") || lower.contains("canine") || text.contains("狗")) {
+            return "DOG";
+        }
+        return null;
+    }
+
+    private void timed(RecommendationStage stage, RecommendationContext context) {
+        long start = System.nanoTime();
+        try {
+            stage.apply(context);
+        } finally {
+            context.recordTiming(stage.name(), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    // Steps run in order; the stages inside one step run concurrently on the shared executor.
+    public final class Pipeline {
+        private final List<List<RecommendationStage>> steps = new ArrayList<>();
+
+        private Pipeline() {
+        }
+
+        public Pipeline then(RecommendationStage stage) {
+            steps.add(List.of(stage));
+            return this;
+        }
+
+        public Pipeline parallel(RecommendationStage... stages) {
+            steps.add(List.of(stages));
+            return this;
+        }
+
+        public CompletableFuture<RecommendationContext> run(RecommendationContext context) {
+            CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+            for (List<RecommendationStage> step : steps) {
+                chain = chain.thenCompose(ignored -> CompletableFuture.allOf(step.stream()
+                    .map(stage -> CompletableFuture.runAsync(() -> timed(stage, context), taskExecutor))
+                    .toArray(CompletableFuture[]::new)));
+            }
+            return chain.thenApply(ignored -> {
+                log.debug("Recommendation pipeline timings:\n{}", context.formatTimings());
+                return context;
+            });
+        }
+    }
+}
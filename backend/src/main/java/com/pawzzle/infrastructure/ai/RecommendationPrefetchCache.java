@@ -0,0 +1,63 @@
+package com.pawzzle.infrastructure.ai;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Short-lived store of recommendation pipelines started ahead of time, keyed by a hash of the
+// evaluation profile they were built from. Entries hold the in-flight future, so a request that
+// arrives before the prefetch finishes simply waits for it instead of starting over.
+@Component
+public class RecommendationPrefetchCache {
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    @Value("${pawzzle.agent.prefetch.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${pawzzle.agent.prefetch.max-entries:1000}")
+    private int maxEntries;
+
+    public void put(String profile, CompletableFuture<RecommendationContext> future) {
+        evictExpired();
+        if (entries.size() >= maxEntries) {
+            return;
+        }
+        entries.put(key(profile), new Entry(future, System.currentTimeMillis() + ttlSeconds * 1000));
+    }
+
+    public Optional<CompletableFuture<RecommendationContext>> get(String profile) {
+        Entry entry = entries.get(key(profile));
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (entry.expiresAt() < System.currentTimeMillis()) {
+            entries.remove(key(profile), entry);
+            return Optional.empty();
+        }
+        return Optional.of(entry.future());
+    }
+
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAt() < now);
+    }
+
+    private String key(String profile) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(profile.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    private record Entry(CompletableFuture<RecommendationContext> future, long expiresAt) {
+    }
+}
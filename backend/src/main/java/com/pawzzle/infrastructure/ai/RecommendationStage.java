@@ -0,0 +1,25 @@
+package com.pawzzle.infrastructure.ai;
+
+import java.util.function.Consumer;
+
+// One step of a recommendation pipeline. Stages read and write the shared context; the engine
+// runs them on the task executor and records how long each one took.
+public interface RecommendationStage {
+    String name();
+
+    void apply(RecommendationContext context);
+
+    static RecommendationStage of(String name, Consumer<RecommendationContext> action) {
+        return new RecommendationStage() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public void apply(RecommendationContext context) {
+                action.accept(context);
+            }
+        };
+    }
+}
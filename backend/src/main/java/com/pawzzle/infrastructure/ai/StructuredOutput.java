@@ -0,0 +1,225 @@
+package com.pawzzle.infrastructure.ai;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.chat.ChatResponse;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// JSON-returning prompts describe their answer with a record. The record's JSON Schema is appended
+// to the static system prompt, the route runs in the API's JSON mode (response-format=json_object),
+// and the answer must bind to the record with every @JsonProperty(required = true) component set.
+// A rejected answer is sent back once with the reason; what still fails is returned without a value
+// so the caller can degrade. Rejections are counted per route as pawzzle.llm.structured.malformed.
+@Component
+@RequiredArgsConstructor
+public class StructuredOutput {
+    private static final String SCHEMA_INSTRUCTIONS = """
+
+
+        Respond with a single JSON object, and nothing else, that conforms to this JSON Schema:
+        """;
+    private static final PromptTemplate RETRY_TEMPLATE = PromptTemplate.compile("""
+        Your previous reply was rejected: {problem}.
+        Reply again with only a JSON object that conforms to the schema.""");
+
+    private final PromptAssembler promptAssembler;
+    private final LlmJsonParser llmJsonParser;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Map<Class<?>, String> schemas = new ConcurrentHashMap<>();
+    private final Map<PromptKey, String> systemPrompts = new ConcurrentHashMap<>();
+
+    @Value("${pawzzle.llm.structured.max-retries:1}")
+    private int maxRetries;
+
+    // The system prompt to send for this answer type; built once per prompt so it stays cacheable.
+    public String systemPrompt(String basePrompt, Class<?> type) {
+        return systemPrompts.computeIfAbsent(new PromptKey(basePrompt, type),
+            key -> basePrompt.strip() + SCHEMA_INSTRUCTIONS + schema(type));
+    }
+
+    public String schema(Class<?> type) {
+        return schemas.computeIfAbsent(type, key -> objectSchema(key).toString());
+    }
+
+    public <T> Result<T> call(String route, String basePrompt, String contextPrompt, String userPrompt, Class<T> type) {
+        String systemPrompt = systemPrompt(basePrompt, type);
+        return call(route, systemPrompt, promptAssembler.assemble(systemPrompt, contextPrompt, userPrompt), type);
+    }
+
+    // For prompts the caller assembles itself, e.g. with image media; the system message in the
+    // prompt must come from systemPrompt(basePrompt, type).
+    public <T> Result<T> call(String route, String systemPrompt, Prompt prompt, Class<T> type) {
+        List<Message> messages = new ArrayList<>(prompt.getInstructions());
+        for (int attempt = 0; ; attempt++) {
+            ChatResponse response = promptAssembler.call(route, new Prompt(messages));
+            String content = response.getResult().getOutput().getContent();
+            content = content == null ? "" : content.trim();
+            Optional<T> value = llmJsonParser.read(content, type);
+            String problem = value.isEmpty() ? "it is not a JSON object matching the schema" : violation(value.get());
+            if (problem == null) {
+                return new Result<>(value.get(), content);
+            }
+            boolean retry = attempt < maxRetries;
+            Counter.builder("pawzzle.llm.structured.malformed")
+                .tag("route", route)
+                .tag("outcome", retry ? "retried" : "exhausted")
+                .register(meterRegistry)
+                .increment();
+            if (!retry) {
+                return new Result<>(null, content);
+            }
+            messages.add(new AssistantMessage(content));
+            messages.add(new UserMessage(RETRY_TEMPLATE.render(problem)));
+        }
+    }
+
+    // Binds and validates an answer that arrived some other way, e.g. through a batch.
+    public <T> Optional<T> parse(String content, Class<T> type) {
+        return llmJsonParser.read(content, type).filter(value -> violation(value) == null);
+    }
+
+    private ObjectNode objectSchema(Class<?> type) {
+        if (!type.isRecord()) {
+            throw new IllegalArgumentException("Structured output types must be records: " + type.getName());
+        }
+        ObjectNode schema = objectMapper.createObjectNode().put("type", "object");
+        ObjectNode properties = schema.putObject("properties");
+        ArrayNode required = objectMapper.createArrayNode();
+        for (RecordComponent component : type.getRecordComponents()) {
+            ObjectNode property = typeSchema(component.getGenericType());
+            JsonPropertyDescription description = component.getAccessor().getAnnotation(JsonPropertyDescription.class);
+            if (description != null) {
+                property.put("description", description.value());
+            }
+            String name = propertyName(component);
+            properties.set(name, property);
+            if (isRequired(component)) {
+                required.add(name);
+            }
+        }
+        if (!required.isEmpty()) {
+            schema.set("required", required);
+        }
+        return schema.put("additionalProperties", false);
+    }
+
+    private ObjectNode typeSchema(Type type) {
+        if (type instanceof ParameterizedType parameterized && parameterized.getRawType() instanceof Class<?> raw
+            && Collection.class.isAssignableFrom(raw)) {
+            ObjectNode schema = objectMapper.createObjectNode().put("type", "array");
+            schema.set("items", typeSchema(parameterized.getActualTypeArguments()[0]));
+            return schema;
+        }
+        if (!(type instanceof Class<?> raw)) {
+            return objectMapper.createObjectNode();
+        }
+        if (raw == String.class) {
+            return objectMapper.createObjectNode().put("type", "string");
+        }
+        if (raw == Integer.class || raw == int.class || raw == Long.class || raw == long.class) {
+            return objectMapper.createObjectNode().put("type", "integer");
+        }
+        if (raw == Double.class || raw == double.class || raw == Float.class || raw == float.class || raw == BigDecimal.class) {
+            return objectMapper.createObjectNode().put("type", "number");
+        }
+        if (raw == Boolean.class || raw == boolean.class) {
+            return objectMapper.createObjectNode().put("type", "boolean");
+        }
+        if (raw.isEnum()) {
+            ObjectNode schema = objectMapper.createObjectNode().put("type", "string");
+            ArrayNode values = schema.putArray("enum");
+            for (Object constant : raw.getEnumConstants()) {
+                values.add(((Enum<?>) constant).name());
+            }
+            return schema;
+        }
+        if (raw.isRecord()) {
+            return objectSchema(raw);
+        }
+        // Anything else (JsonNode, Object) is left unconstrained.
+        return objectMapper.createObjectNode();
+    }
+
+    // The first missing required value, walking into nested records and lists of records.
+    private String violation(Object value) {
+        if (value == null || !value.getClass().isRecord()) {
+            return null;
+        }
+        for (RecordComponent component : value.getClass().getRecordComponents()) {
+            Object field = read(component.getAccessor(), value);
+            if (field == null) {
+                if (isRequired(component)) {
+                    return "missing required field \"" + propertyName(component) + "\"";
+                }
+                continue;
+            }
+            String nested = null;
+            if (field instanceof Collection<?> elements) {
+                for (Object element : elements) {
+                    nested = violation(element);
+                    if (nested != null) {
+                        break;
+                    }
+                }
+            } else {
+                nested = violation(field);
+            }
+            if (nested != null) {
+                return nested + " in \"" + propertyName(component) + "\"";
+            }
+        }
+        return null;
+    }
+
+    private static Object read(Method accessor, Object target) {
+        try {
+            accessor.setAccessible(true);
+            return accessor.invoke(target);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Cannot read " + accessor.getName(), ex);
+        }
+    }
+
+    private static boolean isRequired(RecordComponent component) {
+        JsonProperty property = component.getAccessor().getAnnotation(JsonProperty.class);
+        return property != null && property.required();
+    }
+
+    private static String propertyName(RecordComponent component) {
+        JsonProperty property = component.getAccessor().getAnnotation(JsonProperty.class);
+        return property != null && !property.value().isEmpty() ? property.value() : component.getName();
+    }
+
+    // A value is null when the answer could not be bound or validated even after the retry.
+    public record Result<T>(T value, String content) {
+        public boolean valid() {
+            return value != null;
+        }
+    }
+
+    private record PromptKey(String basePrompt, Class<?> type) {
+    }
+}
@@ -0,0 +1,314 @@
+package com.pawzzle.infrastructure.jobs;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+// Runs long AI work off the request thread. Callers enqueue a typed payload and get a job id back;
+// every node polls ai_jobs for the types it has handlers for and runs at most
+// pawzzle.jobs.types.<type>.concurrency of each at once. Failed attempts are retried with
+// exponential backoff up to max-attempts, and a job whose node dies is picked up by another node
+// once its visibility timeout lapses.
+@Component
+@Order(2)
+@RequiredArgsConstructor
+public class AiJobQueue implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(AiJobQueue.class);
+    private static final Duration CLEANUP_INTERVAL = Duration.ofMinutes(10);
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final AiJobTable table;
+    private final ObjectMapper objectMapper;
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final String workerId = workerId();
+    private final Map<String, JobType<?>> types = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(daemon("PawzzleJobPoller"));
+    private Instant lastCleanup = Instant.EPOCH;
+
+    @Value("${pawzzle.jobs.enabled:true}")
+    private boolean enabled;
+
+    @Value("${pawzzle.jobs.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${pawzzle.jobs.backoff-ms:5000}")
+    private long backoffMs;
+
+    @Value("${pawzzle.jobs.max-backoff-ms:300000}")
+    private long maxBackoffMs;
+
+    @Value("${pawzzle.jobs.retention-hours:72}")
+    private long retentionHours;
+
+    // Handlers are registered at startup; a node only claims types it has a handler for.
+    public <P> void register(String type, Class<P> payloadType, Handler<P> handler) {
+        int concurrency = Math.max(1, setting(type, "concurrency", 2));
+        long visibilitySeconds = Math.max(10, setting(type, "visibility-timeout-seconds", 300));
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency, daemon("PawzzleJob-" + type));
+        if (types.putIfAbsent(type, new JobType<>(type, payloadType, handler, concurrency, visibilitySeconds, workers)) != null) {
+            workers.shutdown();
+            throw new IllegalStateException("Job type already registered: " + type);
+        }
+    }
+
+    public JobView enqueue(String type, Object payload, Long ownerId) {
+        if (!types.containsKey(type)) {
+            throw new IllegalArgumentException("Unknown job type: " + type);
+        }
+        UUID id = UUID.randomUUID();
+        table.insert(id, type, write(payload), ownerId, Math.max(1, setting(type, "max-attempts", 3)));
+        record(type, "enqueued");
+        // Lets this node start the job right away when it has a free worker instead of waiting for the next poll.
+        if (enabled) {
+            poller.execute(this::poll);
+        }
+        Instant now = Instant.now();
+        return new JobView(id, type, AiJobTable.QUEUED, 0, null, null, now, now);
+    }
+
+    // Jobs without an owner are visible to any signed-in user; owned jobs only to their owner.
+    public Optional<JobView> status(UUID id, long requesterId) {
+        return table.find(id)
+            .filter(row -> row.ownerId() == null || row.ownerId() == requesterId)
+            .map(this::view);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            poller.scheduleWithFixedDelay(this::poll, 0, Math.max(100, pollIntervalMs), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        poller.shutdownNow();
+        types.values().forEach(type -> type.workers().shutdownNow());
+        try {
+            int released = table.release(workerId);
+            if (released > 0) {
+                log.info("Released {} running job(s) back to the queue", released);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Could not release running jobs; they will be retried after their visibility timeout", ex);
+        }
+    }
+
+    // Always runs on the single poller thread, so claims and lease renewals never race each other.
+    private void poll() {
+        try {
+            table.failAbandoned();
+            for (JobType<?> type : types.values()) {
+                renewLeases(type);
+                int free = type.concurrency() - type.active().get();
+                if (free > 0) {
+                    for (AiJobTable.Claimed job : table.claim(type.name(), free, workerId, type.visibilitySeconds())) {
+                        type.active().incrementAndGet();
+                        type.running().add(job.id());
+                        type.workers().execute(() -> execute(type, job));
+                    }
+                }
+            }
+            cleanUp();
+        } catch (RuntimeException ex) {
+            log.warn("Job poll failed: {}", ex.getMessage());
+        }
+    }
+
+    private void renewLeases(JobType<?> type) {
+        Instant now = Instant.now();
+        if (type.running().isEmpty() || now.isBefore(type.nextRenewal().get())) {
+            return;
+        }
+        table.extend(new ArrayList<>(type.running()), workerId, type.visibilitySeconds());
+        type.nextRenewal().set(now.plusSeconds(type.visibilitySeconds() / 3));
+    }
+
+    private void cleanUp() {
+        Instant now = Instant.now();
+        if (now.isBefore(lastCleanup.plus(CLEANUP_INTERVAL))) {
+            return;
+        }
+        lastCleanup = now;
+        int deleted = table.deleteFinishedBefore(now.minus(Duration.ofHours(retentionHours)));
+        if (deleted > 0) {
+            log.info("Deleted {} finished job(s) older than {}h", deleted, retentionHours);
+        }
+    }
+
+    private <P> void execute(JobType<P> type, AiJobTable.Claimed job) {
+        try {
+            P payload = objectMapper.readValue(job.payload(), type.payloadType());
+            Object result = type.handler().run(payload, job.ownerId());
+            if (table.succeed(job.id(), workerId, job.attempts(), write(result))) {
+                record(type.name(), "succeeded");
+            } else {
+                log.warn("Job {} ({}) finished after its lease was taken over; result dropped", job.id(), type.name());
+            }
+        } catch (Exception ex) {
+            String error = message(ex);
+            if (job.attempts() < job.maxAttempts() && retryable(ex)) {
+                long delay = backoff(job.attempts());
+                table.retry(job.id(), workerId, job.attempts(), error, delay);
+                record(type.name(), "retried");
+                log.info("Job {} ({}) attempt {} failed, retrying in {} ms: {}", job.id(), type.name(), job.attempts(), delay, error);
+            } else {
+                table.fail(job.id(), workerId, job.attempts(), error);
+                record(type.name(), "failed");
+                log.warn("Job {} ({}) failed after {} attempt(s): {}", job.id(), type.name(), job.attempts(), error);
+            }
+        } finally {
+            type.running().remove(job.id());
+            type.active().decrementAndGet();
+            if (!poller.isShutdown()) {
+                poller.execute(this::poll);
+            }
+        }
+    }
+
+    // A payload that does not parse or a request the handler rejects as invalid fails the same way every
+    // time, and a handler throws NotRetryable once a retry would repeat side effects it already made.
+    private static boolean retryable(Exception ex) {
+        if (ex instanceof JsonProcessingException || ex instanceof IllegalArgumentException || ex instanceof NotRetryable) {
+            return false;
+        }
+        return !(ex instanceof ResponseStatusException status && status.getStatusCode().is4xxClientError());
+    }
+
+    // Exponential from backoff-ms, capped at max-backoff-ms, with +/-20% jitter so jobs that failed
+    // together against a struggling model do not all come back at the same moment.
+    private long backoff(int attempt) {
+        long base = Math.min(maxBackoffMs, backoffMs << Math.min(20, attempt - 1));
+        return (long) (base * ThreadLocalRandom.current().nextDouble(0.8, 1.2));
+    }
+
+    private int setting(String type, String key, int fallback) {
+        Integer global = environment.getProperty("pawzzle.jobs." + key, Integer.class, fallback);
+        return environment.getProperty("pawzzle.jobs.types." + type + "." + key, Integer.class, global);
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Job value is not serializable to JSON", ex);
+        }
+    }
+
+    private JobView view(AiJobTable.Row row) {
+        JsonNode result = null;
+        if (row.result() != null) {
+            try {
+                result = objectMapper.readTree(row.result());
+            } catch (JsonProcessingException ex) {
+                log.warn("Stored result of job {} is not valid JSON", row.id());
+            }
+        }
+        return new JobView(row.id(), row.type(), row.state(), row.attempts(), result, row.error(), row.createdAt(), row.updatedAt());
+    }
+
+    private void record(String type, String outcome) {
+        Counter.builder("pawzzle.jobs")
+            .tag("type", type)
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private static String message(Exception ex) {
+        String message = ex.getMessage() == null ? ex.getClass().getSimpleName() : ex.getMessage();
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+
+    private static String workerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException ex) {
+            host = "unknown";
+        }
+        return host + ":" + ManagementFactory.getRuntimeMXBean().getName() + ":" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @FunctionalInterface
+    public interface Handler<P> {
+        Object run(P payload, Long ownerId) throws Exception;
+    }
+
+    public static class NotRetryable extends RuntimeException {
+        public NotRetryable(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    public record JobView(
+        UUID id,
+        String type,
+        String state,
+        int attempts,
+        JsonNode result,
+        String error,
+        Instant createdAt,
+        Instant updatedAt
+    ) {
+    }
+
+    private record JobType<P>(
+        String name,
+        Class<P> payloadType,
+        Handler<P> handler,
+        int concurrency,
+        long visibilitySeconds,
+        ExecutorService workers,
+        AtomicInteger active,
+        Set<UUID> running,
+        AtomicReference<Instant> nextRenewal
+    ) {
+        private JobType(String name, Class<P> payloadType, Handler<P> handler, int concurrency, long visibilitySeconds, ExecutorService workers) {
+            this(name, payloadType, handler, concurrency, visibilitySeconds, workers,
+                new AtomicInteger(), ConcurrentHashMap.newKeySet(), new AtomicReference<>(Instant.EPOCH));
+        }
+    }
+}
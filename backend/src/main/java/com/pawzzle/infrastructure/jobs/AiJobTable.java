@@ -0,0 +1,215 @@
+package com.pawzzle.infrastructure.jobs;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Durable queue rows for long-running AI work. Workers on any node claim rows with
+// FOR UPDATE SKIP LOCKED and hold them until locked_until; a row whose lease runs out is claimable
+// again. Every write after the claim is fenced on (locked_by, attempts) so a worker that lost its
+// lease cannot overwrite the outcome of the attempt that replaced it.
+@Component
+@Order(1)
+@RequiredArgsConstructor
+public class AiJobTable implements ApplicationRunner {
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String SUCCEEDED = "SUCCEEDED";
+    public static final String FAILED = "FAILED";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        jdbcTemplate.execute("""
+            create table if not exists ai_jobs (
+                id uuid primary key,
+                type varchar(64) not null,
+                state varchar(16) not null,
+                payload jsonb not null,
+                result jsonb,
+                error text,
+                owner_id bigint references users(id) on delete cascade,
+                attempts int not null default 0,
+                max_attempts int not null,
+                run_at timestamp not null default now(),
+                locked_by varchar(128),
+                locked_until timestamp,
+                created_at timestamp not null default now(),
+                updated_at timestamp not null default now()
+            )
+            """);
+        jdbcTemplate.execute("""
+            create index if not exists idx_ai_jobs_claimable on ai_jobs (type, run_at)
+            where state in ('QUEUED', 'RUNNING')
+            """);
+        jdbcTemplate.execute("create index if not exists idx_ai_jobs_updated_at on ai_jobs (updated_at)");
+    }
+
+    public void insert(UUID id, String type, String payload, Long ownerId, int maxAttempts) {
+        jdbcTemplate.update(
+            "insert into ai_jobs (id, type, state, payload, owner_id, max_attempts) values (?, ?, ?, ?::jsonb, ?, ?)",
+            id, type, QUEUED, payload, ownerId, maxAttempts
+        );
+    }
+
+    // Claims up to `limit` due jobs of one type that still have attempts left: queued jobs whose
+    // run_at has passed, and running jobs whose worker stopped renewing the lease.
+    public List<Claimed> claim(String type, int limit, String worker, long visibilitySeconds) {
+        return jdbcTemplate.query("""
+            update ai_jobs set state = 'RUNNING', attempts = attempts + 1, locked_by = ?,
+                locked_until = now() + make_interval(secs => ?), updated_at = now()
+            where id in (
+                select id from ai_jobs
+                where type = ? and attempts < max_attempts
+                  and ((state = 'QUEUED' and run_at <= now())
+                    or (state = 'RUNNING' and locked_until < now()))
+                order by run_at
+                limit ?
+                for update skip locked
+            )
+            returning id, type, payload::text as payload, owner_id, attempts, max_attempts
+            """,
+            (rs, rowNum) -> new Claimed(
+                rs.getObject("id", UUID.class),
+                rs.getString("type"),
+                rs.getString("payload"),
+                rs.getObject("owner_id", Long.class),
+                rs.getInt("attempts"),
+                rs.getInt("max_attempts")
+            ),
+            worker, (double) visibilitySeconds, type, limit
+        );
+    }
+
+    // Lease renewal for jobs this worker is still executing.
+    public int extend(Collection<UUID> ids, String worker, long visibilitySeconds) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(
+            """
+            update ai_jobs set locked_until = now() + make_interval(secs => ?)
+            where id = any(?) and locked_by = ? and state = 'RUNNING'
+            """,
+            ps -> {
+                ps.setDouble(1, visibilitySeconds);
+                ps.setArray(2, ps.getConnection().createArrayOf("uuid", ids.toArray()));
+                ps.setString(3, worker);
+            }
+        );
+    }
+
+    public boolean succeed(UUID id, String worker, int attempt, String result) {
+        return jdbcTemplate.update("""
+            update ai_jobs set state = 'SUCCEEDED', result = ?::jsonb, error = null,
+                locked_by = null, locked_until = null, updated_at = now()
+            where id = ? and locked_by = ? and attempts = ? and state = 'RUNNING'
+            """,
+            result, id, worker, attempt
+        ) == 1;
+    }
+
+    public boolean retry(UUID id, String worker, int attempt, String error, long delayMillis) {
+        return jdbcTemplate.update("""
+            update ai_jobs set state = 'QUEUED', error = ?, run_at = now() + make_interval(secs => ?),
+                locked_by = null, locked_until = null, updated_at = now()
+            where id = ? and locked_by = ? and attempts = ? and state = 'RUNNING'
+            """,
+            error, delayMillis / 1000.0, id, worker, attempt
+        ) == 1;
+    }
+
+    public boolean fail(UUID id, String worker, int attempt, String error) {
+        return jdbcTemplate.update("""
+            update ai_jobs set state = 'FAILED', error = ?,
+                locked_by = null, locked_until = null, updated_at = now()
+            where id = ? and locked_by = ? and attempts = ? and state = 'RUNNING'
+            """,
+            error, id, worker, attempt
+        ) == 1;
+    }
+
+    // Jobs that have used up their attempts are never claimed again; close them out. That covers a
+    // last attempt that lost its lease and queued rows left over from before release() checked.
+    public int failAbandoned() {
+        return jdbcTemplate.update("""
+            update ai_jobs set state = 'FAILED', error = coalesce(error, 'worker lease expired'),
+                locked_by = null, locked_until = null, updated_at = now()
+            where attempts >= max_attempts
+              and ((state = 'RUNNING' and locked_until < now()) or state = 'QUEUED')
+            """);
+    }
+
+    // Hands this worker's running jobs back to the queue on shutdown instead of waiting out the lease.
+    // The interrupted attempt still counts, so a job that was on its last attempt fails instead.
+    public int release(String worker) {
+        return jdbcTemplate.update("""
+            update ai_jobs set
+                state = case when attempts < max_attempts then 'QUEUED' else 'FAILED' end,
+                error = case when attempts < max_attempts then error else coalesce(error, 'worker shut down') end,
+                run_at = now(), locked_by = null, locked_until = null, updated_at = now()
+            where locked_by = ? and state = 'RUNNING'
+            """,
+            worker
+        );
+    }
+
+    public int deleteFinishedBefore(Instant cutoff) {
+        return jdbcTemplate.update(
+            "delete from ai_jobs where state in ('SUCCEEDED', 'FAILED') and updated_at < ?",
+            Timestamp.from(cutoff)
+        );
+    }
+
+    public Optional<Row> find(UUID id) {
+        return jdbcTemplate.query("""
+            select id, type, state, result::text as result, error, owner_id, attempts, created_at, updated_at
+            from ai_jobs where id = ?
+            """,
+            (rs, rowNum) -> map(rs),
+            id
+        ).stream().findFirst();
+    }
+
+    private Row map(ResultSet rs) throws SQLException {
+        return new Row(
+            rs.getObject("id", UUID.class),
+            rs.getString("type"),
+            rs.getString("state"),
+            rs.getString("result"),
+            rs.getString("error"),
+            rs.getObject("owner_id", Long.class),
+            rs.getInt("attempts"),
+            rs.getTimestamp("created_at").toInstant(),
+            rs.getTimestamp("updated_at").toInstant()
+        );
+    }
+
+    public record Claimed(UUID id, String type, String payload, Long ownerId, int attempts, int maxAttempts) {
+    }
+
+    public record Row(
+        UUID id,
+        String type,
+        String state,
+        String result,
+        String error,
+        Long ownerId,
+        int attempts,
+        Instant createdAt,
+        Instant updatedAt
+    ) {
+    }
+}
@@ -0,0 +1,50 @@
+package com.pawzzle.infrastructure.vector;
+
+import com.pawzzle.domain.vector.TopK;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Blocked (queries x vectors) top-K product over one shard. The query range is halved across the
+// fork/join pool down to QUERY_BLOCK queries; each leaf walks the shard's blocks once and scores
+// its whole query block against each block while it is cache-resident.
+final class BlockedTopKScorer {
+    private static final int QUERY_BLOCK = 32;
+
+    private BlockedTopKScorer() {
+    }
+
+    static void score(ScanKernel kernel, OffHeapVectorShard shard, float[][] queries, TopK[] tops) {
+        ForkJoinPool.commonPool().invoke(new Task(kernel, shard, queries, tops, 0, queries.length));
+    }
+
+    private static final class Task extends RecursiveAction {
+        private final ScanKernel kernel;
+        private final OffHeapVectorShard shard;
+        private final float[][] queries;
+        private final TopK[] tops;
+        private final int from;
+        private final int to;
+
+        private Task(ScanKernel kernel, OffHeapVectorShard shard, float[][] queries, TopK[] tops, int from, int to) {
+            this.kernel = kernel;
+            this.shard = shard;
+            this.queries = queries;
+            this.tops = tops;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= QUERY_BLOCK) {
+                shard.scanBatch(kernel, queries, from, to, tops);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(
+                new Task(kernel, shard, queries, tops, from, middle),
+                new Task(kernel, shard, queries, tops, middle, to)
+            );
+        }
+    }
+}
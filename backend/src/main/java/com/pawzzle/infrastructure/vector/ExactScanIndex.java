@@ -0,0 +1,308 @@
+package com.pawzzle.infrastructure.vector;
+
+import com.pawzzle.domain.pet.Pet;
+import com.pawzzle.domain.pet.PetRepository;
+import com.pawzzle.domain.vector.TopK;
+import com.pawzzle.domain.vector.VectorMath;
+import com.pawzzle.domain.vector.VectorStorageProfile;
+import com.pawzzle.infrastructure.vector.PetVectorReader.PetChange;
+import com.pawzzle.infrastructure.vector.PetVectorReader.PetVector;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Exact brute-force search over OPEN pets, one shard per species. Vectors live off-heap in
+// column-major blocks; with a snapshot directory configured the shards are memory-mapped files,
+// so a restart maps the previous snapshot and only replays pets changed since its watermark.
+// Result pets are hydrated from a cache of OPEN pets without their vectors, kept in step by refresh.
+@Component
+public class ExactScanIndex {
+    private static final Logger log = LoggerFactory.getLogger(ExactScanIndex.class);
+    // Covers commits that were in flight, and clock drift, around the time a watermark was taken.
+    private static final Duration WATERMARK_MARGIN = Duration.ofMinutes(5);
+
+    private final PetVectorReader petVectorReader;
+    private final PetRepository petRepository;
+    private final int dimensions;
+    private final ScanKernel kernel;
+    private final Path snapshotDir;
+
+    private final Map<Long, Pet> pets = new ConcurrentHashMap<>();
+    // Bumped on every invalidation so a read that raced a refresh does not re-cache the old row.
+    private final AtomicLong invalidations = new AtomicLong();
+    private volatile Map<Pet.Species, OffHeapVectorShard> shards;
+    private Instant syncedAt;
+
+    public ExactScanIndex(
+        PetVectorReader petVectorReader,
+        PetRepository petRepository,
+        VectorStorageProfile vectorStorageProfile,
+        @Value("${pawzzle.retrieval.exact.snapshot-dir:}") String snapshotDir
+    ) {
+        this.petVectorReader = petVectorReader;
+        this.petRepository = petRepository;
+        this.dimensions = vectorStorageProfile.dimensions();
+        this.kernel = ScanKernel.detect();
+        this.snapshotDir = snapshotDir == null || snapshotDir.isBlank() ? null : Path.of(snapshotDir.trim());
+    }
+
+    public boolean isReady() {
+        return shards != null;
+    }
+
+    // Maps the existing snapshot and catches up on changes since it was written; falls back to a
+    // full rebuild when there is no usable snapshot.
+    public synchronized void load() {
+        if (snapshotDir == null) {
+            rebuild();
+            return;
+        }
+        long start = System.nanoTime();
+        Map<Pet.Species, OffHeapVectorShard> opened = new EnumMap<>(Pet.Species.class);
+        try {
+            for (Pet.Species species : Pet.Species.values()) {
+                OffHeapVectorShard shard = OffHeapVectorShard.open(snapshotFile(species), dimensions);
+                if (shard == null || shard.watermark() == 0L || shard.removed() > shard.size() / 4) {
+                    if (shard != null) {
+                        shard.close();
+                    }
+                    close(opened);
+                    rebuild();
+                    return;
+                }
+                opened.put(species, shard);
+            }
+        } catch (IOException ex) {
+            close(opened);
+            log.warn("Exact scan snapshot in {} is unreadable, rebuilding", snapshotDir, ex);
+            rebuild();
+            return;
+        }
+
+        long watermark = opened.values().stream().mapToLong(OffHeapVectorShard::watermark).min().orElse(0L);
+        Instant since = Instant.ofEpochMilli(watermark).minus(WATERMARK_MARGIN);
+        Instant now = Instant.now();
+        List<PetChange> changes = new ArrayList<>();
+        petVectorReader.forEachChangedSince(since, changes::add);
+        Set<Long> changedIds = new HashSet<>();
+        for (PetChange change : changes) {
+            changedIds.add(change.id());
+        }
+        for (OffHeapVectorShard shard : opened.values()) {
+            shard.removeAll(changedIds);
+        }
+        for (PetChange change : changes) {
+            if (change.open() != null) {
+                append(opened, change.open());
+            }
+        }
+        checkpoint(opened, now);
+        invalidate(null);
+        shards = opened;
+        syncedAt = now;
+        log.info("Exact scan index mapped from {}: {} pets, replayed {} changes since {}, {} ms",
+            snapshotDir, liveCount(opened), changes.size(), since, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        Instant now = Instant.now();
+        Map<Pet.Species, OffHeapVectorShard> previous = shards;
+        Map<Pet.Species, OffHeapVectorShard> next = new EnumMap<>(Pet.Species.class);
+        try {
+            for (Pet.Species species : Pet.Species.values()) {
+                next.put(species, snapshotDir == null
+                    ? OffHeapVectorShard.inMemory(dimensions)
+                    : OffHeapVectorShard.create(snapshotFile(species), dimensions));
+            }
+        } catch (IOException ex) {
+            close(next);
+            throw new UncheckedIOException("Could not create exact scan snapshot in " + snapshotDir, ex);
+        }
+        petVectorReader.forEachOpen(pet -> append(next, pet));
+        checkpoint(next, now);
+        invalidate(null);
+        shards = next;
+        syncedAt = now;
+        close(previous);
+        log.info("Exact scan index built: {} pets x {} dims, kernel={}, storage={}, {} ms",
+            liveCount(next), dimensions, kernel.name(), snapshotDir == null ? "direct" : snapshotDir,
+            (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public synchronized void refresh(long petId) {
+        Map<Pet.Species, OffHeapVectorShard> current = shards;
+        if (current == null) {
+            load();
+            return;
+        }
+        for (OffHeapVectorShard shard : current.values()) {
+            shard.removeAll(Set.of(petId));
+        }
+        invalidate(petId);
+        petVectorReader.findOpen(petId).ifPresent(pet -> append(current, pet));
+    }
+
+    public List<Pet> search(String species, List<Double> queryVector, int limit) {
+        Map<Pet.Species, OffHeapVectorShard> current = shards;
+        float[] query = prepare(VectorMath.toFloatArray(queryVector));
+        if (current == null || limit <= 0 || query.length != dimensions) {
+            return List.of();
+        }
+        TopK top = new TopK(limit);
+        if (species != null) {
+            current.get(Pet.Species.valueOf(species)).scan(kernel, query, top);
+        } else {
+            for (OffHeapVectorShard shard : current.values()) {
+                shard.scan(kernel, query, top);
+            }
+        }
+        return loadInOrder(top.drain().ids());
+    }
+
+    // Individual refreshes are not checkpointed; they fall inside the replay window on the next
+    // start because the watermark only advances on a full load or rebuild.
+    @PreDestroy
+    public synchronized void shutdown() {
+        Map<Pet.Species, OffHeapVectorShard> current = shards;
+        if (current == null) {
+            return;
+        }
+        checkpoint(current, syncedAt);
+        close(current);
+        shards = null;
+        invalidate(null);
+    }
+
+    private void append(Map<Pet.Species, OffHeapVectorShard> target, PetVector pet) {
+        float[] vector = prepare(pet.vector());
+        if (vector.length != dimensions) {
+            return;
+        }
+        try {
+            target.get(pet.species()).append(pet.id(), vector);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not grow exact scan snapshot in " + snapshotDir, ex);
+        }
+    }
+
+    private float[] prepare(float[] vector) {
+        return VectorMath.normalize(VectorMath.truncate(vector, dimensions));
+    }
+
+    private Path snapshotFile(Pet.Species species) {
+        return snapshotDir.resolve("pets-" + species.name().toLowerCase(Locale.ROOT) + ".vec");
+    }
+
+    private static void checkpoint(Map<Pet.Species, OffHeapVectorShard> target, Instant watermark) {
+        for (OffHeapVectorShard shard : target.values()) {
+            shard.checkpoint(watermark.toEpochMilli());
+        }
+    }
+
+    private static int liveCount(Map<Pet.Species, OffHeapVectorShard> target) {
+        int count = 0;
+        for (OffHeapVectorShard shard : target.values()) {
+            count += shard.size() - shard.removed();
+        }
+        return count;
+    }
+
+    private static void close(Map<Pet.Species, OffHeapVectorShard> target) {
+        if (target == null) {
+            return;
+        }
+        for (OffHeapVectorShard shard : target.values()) {
+            try {
+                shard.close();
+            } catch (IOException ex) {
+                log.debug("Failed to close exact scan snapshot", ex);
+            }
+        }
+    }
+
+    // Only ids missing from the cache go to the database, so steady-state searches never do.
+    private List<Pet> loadInOrder(long[] ids) {
+        if (ids.length == 0) {
+            return List.of();
+        }
+        List<Long> missing = new ArrayList<>();
+        for (long id : ids) {
+            if (!pets.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        Map<Long, Pet> loaded = new HashMap<>();
+        if (!missing.isEmpty()) {
+            long seen = invalidations.get();
+            for (Pet pet : petRepository.findAllById(missing)) {
+                if (pet.getStatus() == Pet.Status.OPEN) {
+                    loaded.put(pet.getId(), withoutVector(pet));
+                }
+            }
+            if (invalidations.get() == seen) {
+                pets.putAll(loaded);
+            }
+        }
+        List<Pet> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Pet pet = pets.getOrDefault(id, loaded.get(id));
+            if (pet != null) {
+                result.add(pet);
+            }
+        }
+        return result;
+    }
+
+    private void invalidate(Long petId) {
+        invalidations.incrementAndGet();
+        if (petId == null) {
+            pets.clear();
+        } else {
+            pets.remove(petId);
+        }
+    }
+
+    // A detached copy: the vector is already in the shard, and callers must not share a managed entity.
+    private static Pet withoutVector(Pet pet) {
+        return Pet.builder()
+            .id(pet.getId())
+            .name(pet.getName())
+            .species(pet.getSpecies())
+            .status(pet.getStatus())
+            .breed(pet.getBreed())
+            .gender(pet.getGender())
+            .neutered(pet.getNeutered())
+            .healthStatus(pet.getHealthStatus())
+            .age(pet.getAge())
+            .energy(pet.getEnergy())
+            .trait(pet.getTrait())
+            .distance(pet.getDistance())
+            .icon(pet.getIcon())
+            .tone(pet.getTone())
+            .imageUrl(pet.getImageUrl())
+            .rawDescription(pet.getRawDescription())
+            .structuredTags(pet.getStructuredTags())
+            .enrichmentFingerprint(pet.getEnrichmentFingerprint())
+            .owner(pet.getOwner())
+            .updatedAt(pet.getUpdatedAt())
+            .build();
+    }
+}
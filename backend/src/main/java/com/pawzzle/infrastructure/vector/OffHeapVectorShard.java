@@ -0,0 +1,294 @@
+package com.pawzzle.infrastructure.vector;
+
+import com.pawzzle.domain.vector.TopK;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+// Vectors of one species outside the GC heap, either in direct memory or memory-mapped from a
+// snapshot file. File layout: a 4 KiB header, then fixed-size segments of SEGMENT_PETS pets,
+// each holding the pet ids followed by column-major blocks of BLOCK_SIZE vectors.
+final class OffHeapVectorShard {
+    static final int BLOCK_SIZE = 64;
+    static final int SEGMENT_PETS = 4096;
+    private static final int MAGIC = 0x505A5653;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4096;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int DIMENSIONS_OFFSET = 8;
+    private static final int SIZE_OFFSET = 12;
+    private static final int REMOVED_OFFSET = 16;
+    private static final int WATERMARK_OFFSET = 24;
+    private static final int PARALLEL_THRESHOLD = 16_384;
+    private static final int BLOCKS_PER_SEGMENT = SEGMENT_PETS / BLOCK_SIZE;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer header;
+    private final int dimensions;
+    private final int blockBytes;
+    private final int idsBytes;
+    private final long segmentBytes;
+
+    private volatile ByteBuffer[] segments = new ByteBuffer[0];
+    private volatile int size;
+    private int removed;
+    private long watermark;
+
+    private OffHeapVectorShard(Path file, FileChannel channel, ByteBuffer header, int dimensions) {
+        this.file = file;
+        this.channel = channel;
+        this.header = header;
+        this.dimensions = dimensions;
+        this.blockBytes = dimensions * BLOCK_SIZE * Float.BYTES;
+        this.idsBytes = SEGMENT_PETS * Long.BYTES;
+        this.segmentBytes = (long) idsBytes + (long) blockBytes * BLOCKS_PER_SEGMENT;
+    }
+
+    static OffHeapVectorShard inMemory(int dimensions) {
+        ByteBuffer header = ByteBuffer.allocateDirect(HEADER_BYTES).order(ByteOrder.nativeOrder());
+        return new OffHeapVectorShard(null, null, header, dimensions);
+    }
+
+    // Starts an empty snapshot; until the first checkpoint its header records zero pets and a zero
+    // watermark, so a crash mid-build is detected as an empty snapshot on the next start.
+    static OffHeapVectorShard create(Path file, int dimensions) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Files.deleteIfExists(file);
+        FileChannel channel = FileChannel.open(file,
+            StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        header.order(ByteOrder.nativeOrder());
+        header.putInt(MAGIC_OFFSET, MAGIC);
+        header.putInt(VERSION_OFFSET, VERSION);
+        header.putInt(DIMENSIONS_OFFSET, dimensions);
+        header.putInt(SIZE_OFFSET, 0);
+        header.putInt(REMOVED_OFFSET, 0);
+        header.putLong(WATERMARK_OFFSET, 0L);
+        return new OffHeapVectorShard(file, channel, header, dimensions);
+    }
+
+    // Maps an existing snapshot; returns null when it is missing or was written with another layout.
+    static OffHeapVectorShard open(Path file, int dimensions) throws IOException {
+        if (!Files.isRegularFile(file) || Files.size(file) < HEADER_BYTES) {
+            return null;
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        header.order(ByteOrder.nativeOrder());
+        if (header.getInt(MAGIC_OFFSET) != MAGIC
+            || header.getInt(VERSION_OFFSET) != VERSION
+            || header.getInt(DIMENSIONS_OFFSET) != dimensions) {
+            channel.close();
+            return null;
+        }
+        OffHeapVectorShard shard = new OffHeapVectorShard(file, channel, header, dimensions);
+        int persisted = header.getInt(SIZE_OFFSET);
+        int segmentCount = (persisted + SEGMENT_PETS - 1) / SEGMENT_PETS;
+        if (channel.size() < HEADER_BYTES + shard.segmentBytes * segmentCount) {
+            channel.close();
+            return null;
+        }
+        ByteBuffer[] mapped = new ByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i += 1) {
+            mapped[i] = shard.mapSegment(i);
+        }
+        shard.segments = mapped;
+        shard.removed = header.getInt(REMOVED_OFFSET);
+        shard.watermark = header.getLong(WATERMARK_OFFSET);
+        shard.size = persisted;
+        return shard;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int removed() {
+        return removed;
+    }
+
+    long watermark() {
+        return watermark;
+    }
+
+    void append(long id, float[] vector) throws IOException {
+        int slot = size;
+        int segmentIndex = slot / SEGMENT_PETS;
+        if (segmentIndex == segments.length) {
+            ByteBuffer[] next = new ByteBuffer[segments.length + 1];
+            System.arraycopy(segments, 0, next, 0, segments.length);
+            next[segments.length] = file == null
+                ? ByteBuffer.allocateDirect((int) segmentBytes).order(ByteOrder.nativeOrder())
+                : mapSegment(segmentIndex);
+            segments = next;
+        }
+        ByteBuffer segment = segments[segmentIndex];
+        int inSegment = slot % SEGMENT_PETS;
+        int blockOffset = idsBytes + (inSegment / BLOCK_SIZE) * blockBytes;
+        int column = inSegment % BLOCK_SIZE;
+        for (int d = 0; d < dimensions; d += 1) {
+            segment.putFloat(blockOffset + (d * BLOCK_SIZE + column) * Float.BYTES, vector[d]);
+        }
+        segment.putLong(inSegment * Long.BYTES, id);
+        size = slot + 1;
+    }
+
+    int removeAll(Set<Long> ids) {
+        int count = size;
+        ByteBuffer[] current = segments;
+        int hits = 0;
+        for (int slot = 0; slot < count; slot += 1) {
+            ByteBuffer segment = current[slot / SEGMENT_PETS];
+            int offset = (slot % SEGMENT_PETS) * Long.BYTES;
+            long id = segment.getLong(offset);
+            if (id >= 0 && ids.contains(id)) {
+                segment.putLong(offset, -1L);
+                hits += 1;
+            }
+        }
+        removed += hits;
+        return hits;
+    }
+
+    void scan(ScanKernel kernel, float[] query, TopK top) {
+        int count = size;
+        ByteBuffer[] current = segments;
+        int blockCount = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        if (count < PARALLEL_THRESHOLD) {
+            scanRange(kernel, query, current, count, 0, blockCount, top);
+            return;
+        }
+        int chunks = Math.min(blockCount, Runtime.getRuntime().availableProcessors());
+        List<TopK> partials = IntStream.range(0, chunks)
+            .parallel()
+            .mapToObj(chunk -> {
+                TopK partial = new TopK(top.capacity());
+                int from = (int) ((long) blockCount * chunk / chunks);
+                int to = (int) ((long) blockCount * (chunk + 1) / chunks);
+                scanRange(kernel, query, current, count, from, to, partial);
+                return partial;
+            })
+            .toList();
+        for (TopK partial : partials) {
+            top.merge(partial);
+        }
+    }
+
+    // Scores a batch of queries block by block, so each block is reused by every query while it is
+    // still in cache; this is the inner loop of a blocked (queries x vectors) matrix product.
+    void scanBatch(ScanKernel kernel, float[][] queries, int fromQuery, int toQuery, TopK[] tops) {
+        int count = size;
+        ByteBuffer[] current = segments;
+        int blockCount = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        float[] scores = new float[BLOCK_SIZE];
+        for (int b = 0; b < blockCount; b += 1) {
+            int first = b * BLOCK_SIZE;
+            int inBlock = Math.min(BLOCK_SIZE, count - first);
+            ByteBuffer segment = current[b / BLOCKS_PER_SEGMENT];
+            int blockOffset = idsBytes + (b % BLOCKS_PER_SEGMENT) * blockBytes;
+            int idBase = (first % SEGMENT_PETS) * Long.BYTES;
+            for (int q = fromQuery; q < toQuery; q += 1) {
+                kernel.score(segment, blockOffset, BLOCK_SIZE, dimensions, queries[q], scores, inBlock);
+                TopK top = tops[q];
+                for (int i = 0; i < inBlock; i += 1) {
+                    long id = segment.getLong(idBase + i * Long.BYTES);
+                    if (id >= 0) {
+                        top.offer(id, scores[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    // Hands every live row's score against every query to the visitor, block by block, for callers
+    // that compare each row against its own threshold rather than keeping a top-K per query.
+    void scoreAll(ScanKernel kernel, float[][] queries, ScoreVisitor visitor) {
+        int count = size;
+        ByteBuffer[] current = segments;
+        int blockCount = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        float[] scores = new float[BLOCK_SIZE];
+        for (int b = 0; b < blockCount; b += 1) {
+            int first = b * BLOCK_SIZE;
+            int inBlock = Math.min(BLOCK_SIZE, count - first);
+            ByteBuffer segment = current[b / BLOCKS_PER_SEGMENT];
+            int blockOffset = idsBytes + (b % BLOCKS_PER_SEGMENT) * blockBytes;
+            int idBase = (first % SEGMENT_PETS) * Long.BYTES;
+            for (int q = 0; q < queries.length; q += 1) {
+                kernel.score(segment, blockOffset, BLOCK_SIZE, dimensions, queries[q], scores, inBlock);
+                for (int i = 0; i < inBlock; i += 1) {
+                    long id = segment.getLong(idBase + i * Long.BYTES);
+                    if (id >= 0) {
+                        visitor.accept(id, q, scores[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    // Flushes vectors before the header so a persisted size never points at unwritten slots.
+    void checkpoint(long newWatermark) {
+        if (file == null) {
+            return;
+        }
+        for (ByteBuffer segment : segments) {
+            ((MappedByteBuffer) segment).force();
+        }
+        header.putInt(SIZE_OFFSET, size);
+        header.putInt(REMOVED_OFFSET, removed);
+        header.putLong(WATERMARK_OFFSET, newWatermark);
+        ((MappedByteBuffer) header).force();
+        watermark = newWatermark;
+    }
+
+    void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private void scanRange(
+        ScanKernel kernel,
+        float[] query,
+        ByteBuffer[] current,
+        int count,
+        int fromBlock,
+        int toBlock,
+        TopK top
+    ) {
+        float[] scores = new float[BLOCK_SIZE];
+        for (int b = fromBlock; b < toBlock; b += 1) {
+            int first = b * BLOCK_SIZE;
+            int inBlock = Math.min(BLOCK_SIZE, count - first);
+            ByteBuffer segment = current[b / BLOCKS_PER_SEGMENT];
+            int blockOffset = idsBytes + (b % BLOCKS_PER_SEGMENT) * blockBytes;
+            kernel.score(segment, blockOffset, BLOCK_SIZE, dimensions, query, scores, inBlock);
+            int idBase = (first % SEGMENT_PETS) * Long.BYTES;
+            for (int i = 0; i < inBlock; i += 1) {
+                long id = segment.getLong(idBase + i * Long.BYTES);
+                if (id >= 0) {
+                    top.offer(id, scores[i]);
+                }
+            }
+        }
+    }
+
+    private ByteBuffer mapSegment(int index) throws IOException {
+        long position = HEADER_BYTES + segmentBytes * index;
+        return channel.map(FileChannel.MapMode.READ_WRITE, position, segmentBytes).order(ByteOrder.nativeOrder());
+    }
+
+    @FunctionalInterface
+    interface ScoreVisitor {
+        void accept(long id, int query, float score);
+    }
+}
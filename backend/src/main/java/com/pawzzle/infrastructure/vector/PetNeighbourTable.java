@@ -0,0 +1,102 @@
+package com.pawzzle.infrastructure.vector;
+
+import com.pawzzle.domain.vector.TopK;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// One row per pet holding its most similar pets as parallel arrays, so a "similar pets" lookup is
+// a single primary-key read and survives restarts while the graph is rebuilt.
+@Component
+@Order(1)
+@RequiredArgsConstructor
+public class PetNeighbourTable implements ApplicationRunner {
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        jdbcTemplate.execute("""
+            create table if not exists pet_neighbours (
+                pet_id bigint primary key references pets(id) on delete cascade,
+                neighbour_ids bigint[] not null,
+                scores real[] not null,
+                computed_at timestamp not null default now()
+            )
+            """);
+    }
+
+    public Optional<long[]> find(long petId) {
+        return jdbcTemplate.query(
+            "select neighbour_ids from pet_neighbours where pet_id = ?",
+            (rs, rowNum) -> {
+                Object[] values = (Object[]) rs.getArray("neighbour_ids").getArray();
+                long[] ids = new long[values.length];
+                for (int i = 0; i < ids.length; i += 1) {
+                    ids[i] = ((Number) values[i]).longValue();
+                }
+                return ids;
+            },
+            petId
+        ).stream().findFirst();
+    }
+
+    public void saveAll(Map<Long, TopK.Result> results) {
+        List<Map.Entry<Long, TopK.Result>> entries = new ArrayList<>(results.entrySet());
+        for (int start = 0; start < entries.size(); start += BATCH_SIZE) {
+            List<Map.Entry<Long, TopK.Result>> batch = entries.subList(start, Math.min(entries.size(), start + BATCH_SIZE));
+            jdbcTemplate.batchUpdate("""
+                insert into pet_neighbours (pet_id, neighbour_ids, scores, computed_at)
+                values (?, ?, ?, now())
+                on conflict (pet_id) do update
+                set neighbour_ids = excluded.neighbour_ids, scores = excluded.scores, computed_at = excluded.computed_at
+                """, batch, batch.size(), (PreparedStatement ps, Map.Entry<Long, TopK.Result> entry) -> {
+                TopK.Result result = entry.getValue();
+                Long[] ids = new Long[result.ids().length];
+                Float[] scores = new Float[result.scores().length];
+                for (int i = 0; i < ids.length; i += 1) {
+                    ids[i] = result.ids()[i];
+                    scores[i] = result.scores()[i];
+                }
+                ps.setLong(1, entry.getKey());
+                ps.setArray(2, ps.getConnection().createArrayOf("bigint", ids));
+                ps.setArray(3, ps.getConnection().createArrayOf("real", scores));
+            });
+        }
+    }
+
+    public void deleteAll(Collection<Long> petIds) {
+        if (petIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(
+            "delete from pet_neighbours where pet_id = any(?)",
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", petIds.toArray()))
+        );
+    }
+
+    public void clear() {
+        jdbcTemplate.update("delete from pet_neighbours");
+    }
+
+    // Database clock, so cut-offs compare against computed_at without JVM clock skew.
+    public Instant now() {
+        return jdbcTemplate.queryForObject("select now()", Timestamp.class).toInstant();
+    }
+
+    public void deleteComputedBefore(Instant cutoff) {
+        jdbcTemplate.update("delete from pet_neighbours where computed_at < ?", Timestamp.from(cutoff));
+    }
+}
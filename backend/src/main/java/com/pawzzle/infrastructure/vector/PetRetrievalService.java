@@ -0,0 +1,87 @@
+package com.pawzzle.infrastructure.vector;
+
+import com.pawzzle.domain.pet.Pet;
+import com.pawzzle.domain.pet.PetChangedEvent;
+import com.pawzzle.domain.pet.PetRepository;
+import java.util.List;
+import java.util.Locale;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Service
+@RequiredArgsConstructor
+public class PetRetrievalService {
+    private static final Logger log = LoggerFactory.getLogger(PetRetrievalService.class);
+
+    public enum Engine {
+        DATABASE,
+        QUANTIZED,
+        EXACT
+    }
+
+    private final PetRepository petRepository;
+    private final QuantizedPetIndex quantizedPetIndex;
+    private final ExactScanIndex exactScanIndex;
+
+    @Value("${pawzzle.retrieval.engine:database}")
+    private String engine;
+
+    public List<Pet> search(String species, List<Double> vector, int limit) {
+        Engine current = engine();
+        if (current == Engine.QUANTIZED && quantizedPetIndex.isReady()) {
+            return quantizedPetIndex.search(species, vector, limit);
+        }
+        if (current == Engine.EXACT && exactScanIndex.isReady()) {
+            return exactScanIndex.search(species, vector, limit);
+        }
+        return petRepository.hybridSearch(species, vector, limit);
+    }
+
+    @Async("taskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        Engine current = engine();
+        try {
+            if (current == Engine.QUANTIZED) {
+                quantizedPetIndex.rebuild();
+            } else if (current == Engine.EXACT) {
+                exactScanIndex.load();
+            }
+        } catch (RuntimeException ex) {
+            log.warn("{} pet index build failed, falling back to database search", current, ex);
+        }
+    }
+
+    @Async("taskExecutor")
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPetChanged(PetChangedEvent event) {
+        Engine current = engine();
+        if (event.petId() == null) {
+            return;
+        }
+        try {
+            if (current == Engine.QUANTIZED) {
+                quantizedPetIndex.refresh(event.petId());
+            } else if (current == Engine.EXACT) {
+                exactScanIndex.refresh(event.petId());
+            }
+        } catch (RuntimeException ex) {
+            log.warn("{} pet index refresh failed for pet {}", current, event.petId(), ex);
+        }
+    }
+
+    private Engine engine() {
+        try {
+            return Engine.valueOf(engine.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException ex) {
+            return Engine.DATABASE;
+        }
+    }
+}
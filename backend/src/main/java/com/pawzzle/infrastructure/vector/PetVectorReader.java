@@ -0,0 +1,73 @@
+package com.pawzzle.infrastructure.vector;
+
+import com.pawzzle.domain.pet.Pet;
+import com.pawzzle.domain.vector.VectorMath;
+import com.pawzzle.domain.vector.VectorStringConverter;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class PetVectorReader {
+    private static final String OPEN_VECTORS = """
+        select id, species, personality_vector::text as vector
+        from pets
+        where status = 'OPEN' and personality_vector is not null
+        """;
+    private static final String CHANGED_SINCE = """
+        select id, species, status, personality_vector::text as vector
+        from pets
+        where updated_at >= ?
+        order by id
+        """;
+    private static final VectorStringConverter CONVERTER = new VectorStringConverter();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void forEachOpen(Consumer<PetVector> consumer) {
+        jdbcTemplate.query(OPEN_VECTORS + " order by id", (RowCallbackHandler) rs -> consumer.accept(map(rs)));
+    }
+
+    public List<PetVector> sampleOpen(int limit) {
+        return jdbcTemplate.query(OPEN_VECTORS + " order by random() limit ?", (rs, rowNum) -> map(rs), limit);
+    }
+
+    public Optional<PetVector> findOpen(long id) {
+        return jdbcTemplate.query(OPEN_VECTORS + " and id = ?", (rs, rowNum) -> map(rs), id)
+            .stream()
+            .findFirst();
+    }
+
+    // Every pet touched since the given instant; non-OPEN or vectorless pets are reported so callers
+    // can drop them.
+    public void forEachChangedSince(Instant since, Consumer<PetChange> consumer) {
+        jdbcTemplate.query(CHANGED_SINCE, (RowCallbackHandler) rs -> {
+            boolean open = "OPEN".equals(rs.getString("status")) && rs.getString("vector") != null;
+            consumer.accept(new PetChange(rs.getLong("id"), open ? map(rs) : null));
+        }, Timestamp.from(since));
+    }
+
+    private PetVector map(ResultSet rs) throws SQLException {
+        float[] vector = VectorMath.toFloatArray(CONVERTER.convertToEntityAttribute(rs.getString("vector")));
+        return new PetVector(
+            rs.getLong("id"),
+            Pet.Species.valueOf(rs.getString("species")),
+            VectorMath.normalize(vector)
+        );
+    }
+
+    public record PetVector(long id, Pet.Species species, float[] vector) {
+    }
+
+    public record PetChange(long id, PetVector open) {
+    }
+}
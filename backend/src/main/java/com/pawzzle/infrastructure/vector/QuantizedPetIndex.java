@@ -0,0 +1,224 @@
+package com.pawzzle.infrastructure.vector;
+
+import com.pawzzle.domain.pet.Pet;
+import com.pawzzle.domain.pet.PetRepository;
+import com.pawzzle.domain.vector.ProductQuantizer;
+import com.pawzzle.domain.vector.TopK;
+import com.pawzzle.domain.vector.VectorMath;
+import com.pawzzle.infrastructure.vector.PetVectorReader.PetVector;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// In-memory first-pass index over OPEN pets: each vector is kept as a product-quantized code
+// (one byte per subspace), scored approximately, and only the shortlist is re-scored exactly
+// against the full vectors held off-heap beside the codes. Only the final ids are loaded as pets.
+@Component
+@RequiredArgsConstructor
+public class QuantizedPetIndex {
+    private static final Logger log = LoggerFactory.getLogger(QuantizedPetIndex.class);
+    private static final byte REMOVED = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int TRAINING_ITERATIONS = 8;
+    private static final long TRAINING_SEED = 42L;
+
+    private final PetVectorReader petVectorReader;
+    private final PetRepository petRepository;
+
+    @Value("${pawzzle.retrieval.quantized.subspaces:96}")
+    private int subspaces;
+
+    @Value("${pawzzle.retrieval.quantized.training-sample:20000}")
+    private int trainingSample;
+
+    @Value("${pawzzle.retrieval.quantized.rescore-depth:256}")
+    private int rescoreDepth;
+
+    private volatile Codes codes;
+    private int trainedOn;
+    private int live;
+
+    public boolean isReady() {
+        return codes != null;
+    }
+
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        List<PetVector> samples = petVectorReader.sampleOpen(Math.max(1, trainingSample));
+        if (samples.isEmpty()) {
+            codes = null;
+            trainedOn = 0;
+            live = 0;
+            return;
+        }
+        float[][] matrix = new float[samples.size()][];
+        for (int i = 0; i < matrix.length; i += 1) {
+            matrix[i] = samples.get(i).vector();
+        }
+        ProductQuantizer quantizer = ProductQuantizer.train(matrix, subspaces, TRAINING_ITERATIONS, TRAINING_SEED);
+
+        Codes[] building = { new Codes(quantizer, INITIAL_CAPACITY) };
+        petVectorReader.forEachOpen(pet -> building[0] = building[0].append(pet));
+        codes = building[0];
+        trainedOn = matrix.length;
+        live = building[0].size;
+        log.info("Quantized pet index built: {} pets, {} bytes/code, {} ms",
+            live, quantizer.codeSize(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public synchronized void refresh(long petId) {
+        Codes current = codes;
+        if (current == null) {
+            rebuild();
+            return;
+        }
+        live -= current.remove(petId);
+        PetVector pet = petVectorReader.findOpen(petId).orElse(null);
+        if (pet != null && pet.vector().length == current.quantizer.dimensions()) {
+            codes = current.append(pet);
+            live += 1;
+        }
+        // Codebooks trained on a much smaller catalogue lose resolution; retrain as it grows.
+        if (trainedOn < trainingSample && live > trainedOn * 2) {
+            rebuild();
+        }
+    }
+
+    public List<Pet> search(String species, List<Double> queryVector, int limit) {
+        Codes current = codes;
+        float[] query = VectorMath.normalize(VectorMath.toFloatArray(queryVector));
+        if (current == null || limit <= 0 || query.length != current.quantizer.dimensions()) {
+            return List.of();
+        }
+        int wanted = species == null ? -1 : Pet.Species.valueOf(species).ordinal();
+        ProductQuantizer quantizer = current.quantizer;
+        float[] table = quantizer.lookupTable(query);
+        int codeSize = quantizer.codeSize();
+        int size = current.size;
+
+        TopK shortlist = new TopK(Math.max(limit, rescoreDepth));
+        for (int i = 0; i < size; i += 1) {
+            byte petSpecies = current.species[i];
+            if (petSpecies == REMOVED || (wanted >= 0 && petSpecies != wanted)) {
+                continue;
+            }
+            // Slots rather than ids, so the re-score can find the full vector.
+            shortlist.offer(i, quantizer.score(table, current.codes, i * codeSize));
+        }
+        TopK exact = new TopK(limit);
+        for (long slot : shortlist.drain().ids()) {
+            exact.offer(current.ids[(int) slot], current.exactScore((int) slot, query));
+        }
+        return hydrate(exact.drain().ids());
+    }
+
+    private List<Pet> hydrate(long[] ids) {
+        if (ids.length == 0) {
+            return List.of();
+        }
+        List<Long> boxed = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            boxed.add(id);
+        }
+        Map<Long, Pet> byId = new HashMap<>();
+        for (Pet pet : petRepository.findAllById(boxed)) {
+            byId.put(pet.getId(), pet);
+        }
+        List<Pet> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Pet pet = byId.get(id);
+            if (pet != null && pet.getStatus() == Pet.Status.OPEN) {
+                result.add(pet);
+            }
+        }
+        return result;
+    }
+
+    // Append-only columns published through a volatile size; growth copies into a new instance
+    // so concurrent scans always see consistent arrays. Full vectors live row-major in off-heap
+    // segments that are written once and shared with the grown copy instead of being copied.
+    private static final class Codes {
+        private static final int VECTOR_SEGMENT = 4096;
+
+        private final ProductQuantizer quantizer;
+        private final long[] ids;
+        private final byte[] species;
+        private final byte[] codes;
+        private final ByteBuffer[] vectors;
+        private volatile int size;
+
+        private Codes(ProductQuantizer quantizer, int capacity) {
+            this.quantizer = quantizer;
+            this.ids = new long[capacity];
+            this.species = new byte[capacity];
+            this.codes = new byte[capacity * quantizer.codeSize()];
+            this.vectors = new ByteBuffer[(capacity + VECTOR_SEGMENT - 1) / VECTOR_SEGMENT];
+        }
+
+        private Codes(Codes source, int capacity) {
+            this(source.quantizer, capacity);
+            int count = source.size;
+            System.arraycopy(source.ids, 0, ids, 0, count);
+            System.arraycopy(source.species, 0, species, 0, count);
+            System.arraycopy(source.codes, 0, codes, 0, count * quantizer.codeSize());
+            System.arraycopy(source.vectors, 0, vectors, 0, source.vectors.length);
+            this.size = count;
+        }
+
+        private Codes append(PetVector pet) {
+            Codes target = size < ids.length ? this : new Codes(this, ids.length * 2);
+            int slot = target.size;
+            target.ids[slot] = pet.id();
+            target.species[slot] = (byte) pet.species().ordinal();
+            target.quantizer.encode(pet.vector(), target.codes, slot * target.quantizer.codeSize());
+            target.storeVector(slot, pet.vector());
+            target.size = slot + 1;
+            return target;
+        }
+
+        private void storeVector(int slot, float[] vector) {
+            int dimensions = quantizer.dimensions();
+            int index = slot / VECTOR_SEGMENT;
+            if (vectors[index] == null) {
+                vectors[index] = ByteBuffer.allocateDirect(VECTOR_SEGMENT * dimensions * Float.BYTES)
+                    .order(ByteOrder.nativeOrder());
+            }
+            ByteBuffer segment = vectors[index];
+            int base = (slot % VECTOR_SEGMENT) * dimensions * Float.BYTES;
+            for (int d = 0; d < dimensions; d += 1) {
+                segment.putFloat(base + d * Float.BYTES, vector[d]);
+            }
+        }
+
+        // Stored vectors and the query are both normalized, so the dot product is the cosine.
+        private float exactScore(int slot, float[] query) {
+            ByteBuffer segment = vectors[slot / VECTOR_SEGMENT];
+            int base = (slot % VECTOR_SEGMENT) * query.length * Float.BYTES;
+            float sum = 0;
+            for (int d = 0; d < query.length; d += 1) {
+                sum += segment.getFloat(base + d * Float.BYTES) * query[d];
+            }
+            return sum;
+        }
+
+        private int remove(long id) {
+            int removed = 0;
+            int count = size;
+            for (int i = 0; i < count; i += 1) {
+                if (ids[i] == id && species[i] != REMOVED) {
+                    species[i] = REMOVED;
+                    removed += 1;
+                }
+            }
+            return removed;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.pawzzle.infrastructure.vector;
+
+import com.pawzzle.domain.notification.AdopterNotification;
+import com.pawzzle.domain.notification.AdopterNotificationRepository;
+import com.pawzzle.domain.pet.Pet;
+import com.pawzzle.domain.pet.PetChangedEvent;
+import com.pawzzle.domain.pet.PetRepository;
+import com.pawzzle.domain.user.UserRepository;
+import com.pawzzle.domain.user.UserVectorSearch.AdopterCandidate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+// Finds the adopters whose stored preference vector is closest to a newly listed pet and queues
+// a notification for each. Pet changes are collected and processed in batches off the request path.
+@Service
+@RequiredArgsConstructor
+public class ReverseMatchService {
+    private static final Logger log = LoggerFactory.getLogger(ReverseMatchService.class);
+
+    private final PetRepository petRepository;
+    private final UserRepository userRepository;
+    private final AdopterNotificationRepository adopterNotificationRepository;
+    private final Queue<Long> pendingPets = new ConcurrentLinkedQueue<>();
+
+    @Value("${pawzzle.matching.reverse.enabled:true}")
+    private boolean enabled;
+
+    @Value("${pawzzle.matching.reverse.top-n:50}")
+    private int topN;
+
+    @Value("${pawzzle.matching.reverse.min-score:0.3}")
+    private double minScore;
+
+    @Value("${pawzzle.matching.reverse.batch-size:20}")
+    private int batchSize;
+
+    @Async("taskExecutor")
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPetChanged(PetChangedEvent event) {
+        if (!enabled || event.petId() == null) {
+            return;
+        }
+        pendingPets.add(event.petId());
+        try {
+            drain();
+        } catch (RuntimeException ex) {
+            log.warn("Reverse matching failed", ex);
+        }
+    }
+
+    // Events that arrive while a batch is running are picked up by the same drain loop.
+    private synchronized void drain() {
+        List<Long> batch = new ArrayList<>();
+        Long next;
+        while ((next = pendingPets.poll()) != null) {
+            batch.add(next);
+            if (batch.size() >= Math.max(1, batchSize)) {
+                process(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            process(batch);
+        }
+    }
+
+    private void process(List<Long> petIds) {
+        Set<String> existing = new HashSet<>();
+        for (AdopterNotification notification : adopterNotificationRepository.findByPetIdIn(petIds)) {
+            existing.add(notification.getUserId() + ":" + notification.getPetId());
+        }
+        List<AdopterNotification> queued = new ArrayList<>();
+        for (Pet pet : petRepository.findAllById(new HashSet<>(petIds))) {
+            if (pet.getStatus() != Pet.Status.OPEN || pet.getPersonalityVector() == null) {
+                continue;
+            }
+            Long ownerId = pet.getOwner() == null ? null : pet.getOwner().getId();
+            for (AdopterCandidate candidate : userRepository.findInterestedAdopters(pet.getPersonalityVector(), ownerId, topN)) {
+                if (candidate.score() < minScore || !existing.add(candidate.userId() + ":" + pet.getId())) {
+                    continue;
+                }
+                queued.add(AdopterNotification.builder()
+                    .userId(candidate.userId())
+                    .petId(pet.getId())
+                    .score(candidate.score())
+                    .status(AdopterNotification.Status.PENDING)
+                    .build());
+            }
+        }
+        adopterNotificationRepository.saveAll(queued);
+        if (!queued.isEmpty()) {
+            log.info("Reverse matching queued {} adopter notifications for {} pets", queued.size(), petIds.size());
+        }
+    }
+}
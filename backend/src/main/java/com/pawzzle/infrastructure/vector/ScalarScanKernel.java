@@ -0,0 +1,31 @@
+package com.pawzzle.infrastructure.vector;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+class ScalarScanKernel implements ScanKernel {
+    @Override
+    public void score(
+        ByteBuffer buffer,
+        int blockOffset,
+        int blockSize,
+        int dimensions,
+        float[] query,
+        float[] out,
+        int count
+    ) {
+        Arrays.fill(out, 0, count, 0f);
+        for (int d = 0; d < dimensions; d += 1) {
+            float q = query[d];
+            int base = blockOffset + d * blockSize * Float.BYTES;
+            for (int i = 0; i < count; i += 1) {
+                out[i] += q * buffer.getFloat(base + i * Float.BYTES);
+            }
+        }
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,31 @@
+package com.pawzzle.infrastructure.vector;
+
+import java.nio.ByteBuffer;
+
+// Scores one column-major block (dimension-major, blockSize pets per dimension) stored
+// as native-order floats at byte offset blockOffset of an off-heap buffer.
+interface ScanKernel {
+    void score(
+        ByteBuffer buffer,
+        int blockOffset,
+        int blockSize,
+        int dimensions,
+        float[] query,
+        float[] out,
+        int count
+    );
+
+    String name();
+
+    // The Vector API lives in an incubator module, so the SIMD kernel is only compiled with -Psimd
+    // and only links under --add-modules jdk.incubator.vector; otherwise the scalar kernel is used.
+    static ScanKernel detect() {
+        try {
+            return (ScanKernel) Class.forName("com.pawzzle.infrastructure.vector.VectorApiScanKernel")
+                .getDeclaredConstructor()
+                .newInstance();
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            return new ScalarScanKernel();
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.pawzzle.infrastructure.vector;
+
+import com.pawzzle.domain.pet.Pet;
+import com.pawzzle.domain.pet.PetChangedEvent;
+import com.pawzzle.domain.pet.PetRepository;
+import com.pawzzle.domain.vector.TopK;
+import com.pawzzle.domain.vector.VectorMath;
+import com.pawzzle.domain.vector.VectorStorageProfile;
+import com.pawzzle.infrastructure.vector.PetVectorReader.PetVector;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+// k-nearest-neighbour graph over OPEN pets of the same species. Built in the background as a
+// blocked self-join, patched as pets change, and written through to pet_neighbours so a "similar
+// pets" lookup is a primary-key read. The build is quadratic in the catalogue size, so above
+// pawzzle.similar.max-pets it is skipped; pets without a stored row use a live vector query.
+@Component
+public class SimilarPetIndex {
+    private static final Logger log = LoggerFactory.getLogger(SimilarPetIndex.class);
+
+    private final PetVectorReader petVectorReader;
+    private final PetRepository petRepository;
+    private final PetNeighbourTable petNeighbourTable;
+    private final int dimensions;
+    private final ScanKernel kernel;
+    private volatile Map<Long, Neighbours> neighbours = new ConcurrentHashMap<>();
+
+    @Value("${pawzzle.similar.enabled:true}")
+    private boolean enabled;
+
+    @Value("${pawzzle.similar.neighbours:12}")
+    private int k;
+
+    @Value("${pawzzle.similar.max-pets:20000}")
+    private long maxPets;
+
+    private Map<Pet.Species, OffHeapVectorShard> shards;
+    private volatile boolean ready;
+
+    public SimilarPetIndex(
+        PetVectorReader petVectorReader,
+        PetRepository petRepository,
+        PetNeighbourTable petNeighbourTable,
+        VectorStorageProfile vectorStorageProfile
+    ) {
+        this.petVectorReader = petVectorReader;
+        this.petRepository = petRepository;
+        this.petNeighbourTable = petNeighbourTable;
+        this.dimensions = vectorStorageProfile.dimensions();
+        this.kernel = ScanKernel.detect();
+    }
+
+    @Async("taskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (RuntimeException ex) {
+            log.warn("Similar pet graph build failed, serving live queries", ex);
+        }
+    }
+
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        long open = petRepository.countByStatus(Pet.Status.OPEN);
+        if (open > maxPets) {
+            // Rows from a smaller catalogue would go stale without updates; serve live queries instead.
+            shards = null;
+            neighbours = new ConcurrentHashMap<>();
+            ready = false;
+            petNeighbourTable.clear();
+            log.warn("Similar pet graph skipped: {} open pets exceeds pawzzle.similar.max-pets={}", open, maxPets);
+            return;
+        }
+        Instant startedAt = petNeighbourTable.now();
+        Map<Pet.Species, OffHeapVectorShard> next = new EnumMap<>(Pet.Species.class);
+        Map<Pet.Species, List<PetVector>> members = new EnumMap<>(Pet.Species.class);
+        for (Pet.Species species : Pet.Species.values()) {
+            next.put(species, OffHeapVectorShard.inMemory(dimensions));
+            members.put(species, new ArrayList<>());
+        }
+        petVectorReader.forEachOpen(pet -> {
+            PetVector prepared = prepare(pet);
+            if (prepared != null) {
+                append(next.get(pet.species()), prepared);
+                members.get(pet.species()).add(prepared);
+            }
+        });
+
+        Map<Long, Neighbours> graph = new HashMap<>();
+        for (Pet.Species species : Pet.Species.values()) {
+            graph.putAll(computeNeighbours(next.get(species), members.get(species)));
+        }
+        // Updates keep patching the graph they started with; the new one replaces it in a single write.
+        shards = next;
+        neighbours = new ConcurrentHashMap<>(graph);
+        ready = true;
+        petNeighbourTable.saveAll(results(graph));
+        petNeighbourTable.deleteComputedBefore(startedAt);
+        log.info("Similar pet graph built: {} pets, k={}, {} ms",
+            graph.size(), k, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Async("taskExecutor")
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPetChanged(PetChangedEvent event) {
+        if (!enabled || event.petId() == null) {
+            return;
+        }
+        try {
+            update(event.petId());
+        } catch (RuntimeException ex) {
+            log.warn("Similar pet graph update failed for pet {}", event.petId(), ex);
+        }
+    }
+
+    public List<Pet> similar(Long petId, int limit) {
+        Optional<long[]> stored = enabled ? petNeighbourTable.find(petId) : Optional.empty();
+        if (stored.isEmpty()) {
+            return liveSimilar(petId, limit);
+        }
+        List<Long> ids = new ArrayList<>(stored.get().length);
+        for (long id : stored.get()) {
+            ids.add(id);
+        }
+        Map<Long, Pet> byId = new HashMap<>();
+        for (Pet pet : petRepository.findAllById(ids)) {
+            byId.put(pet.getId(), pet);
+        }
+        return ids.stream()
+            .map(byId::get)
+            .filter(pet -> pet != null && pet.getStatus() == Pet.Status.OPEN)
+            .limit(limit)
+            .toList();
+    }
+
+    // A changed pet is dropped from the graph and re-inserted if still OPEN. Its new scores against
+    // every pet of its species patch their lists; lists that pointed at the old version are rebuilt.
+    private synchronized void update(long petId) {
+        if (!ready) {
+            return;
+        }
+        Map<Long, Neighbours> changed = new HashMap<>();
+        Set<Long> dropped = new HashSet<>();
+        dropped.add(petId);
+        Set<Long> removed = Set.of(petId);
+        for (OffHeapVectorShard shard : shards.values()) {
+            shard.removeAll(removed);
+        }
+        neighbours.remove(petId);
+        Set<Long> stale = new HashSet<>();
+        for (Map.Entry<Long, Neighbours> entry : neighbours.entrySet()) {
+            if (entry.getValue().contains(petId)) {
+                stale.add(entry.getKey());
+            }
+        }
+
+        Optional<PetVector> open = petVectorReader.findOpen(petId).map(this::prepare);
+        if (open.isPresent()) {
+            PetVector pet = open.get();
+            OffHeapVectorShard shard = shards.get(pet.species());
+            TopK all = new TopK(Math.max(1, shard.size()));
+            shard.scan(kernel, pet.vector(), all);
+            append(shard, pet);
+            TopK.Result scores = all.drain();
+            TopK own = new TopK(k);
+            for (int i = 0; i < scores.ids().length; i += 1) {
+                long other = scores.ids()[i];
+                own.offer(other, scores.scores()[i]);
+                Neighbours current = neighbours.get(other);
+                if (current != null && !stale.contains(other)) {
+                    Neighbours patched = current.with(petId, scores.scores()[i], k);
+                    if (patched != current) {
+                        changed.put(other, patched);
+                    }
+                }
+            }
+            changed.put(petId, Neighbours.of(own.drain()));
+            dropped.remove(petId);
+        }
+
+        List<PetVector> rescore = new ArrayList<>();
+        for (Long id : stale) {
+            petVectorReader.findOpen(id).map(this::prepare).ifPresentOrElse(rescore::add, () -> dropped.add(id));
+        }
+        for (Pet.Species species : Pet.Species.values()) {
+            List<PetVector> group = rescore.stream().filter(pet -> pet.species() == species).toList();
+            if (!group.isEmpty()) {
+                changed.putAll(computeNeighbours(shards.get(species), group));
+            }
+        }
+        neighbours.putAll(changed);
+        dropped.forEach(neighbours::remove);
+        petNeighbourTable.saveAll(results(changed));
+        petNeighbourTable.deleteAll(dropped);
+    }
+
+    private Map<Long, Neighbours> computeNeighbours(OffHeapVectorShard shard, List<PetVector> pets) {
+        float[][] queries = new float[pets.size()][];
+        TopK[] tops = new TopK[pets.size()];
+        for (int i = 0; i < queries.length; i += 1) {
+            queries[i] = pets.get(i).vector();
+            // One extra slot because every pet finds itself first.
+            tops[i] = new TopK(k + 1);
+        }
+        BlockedTopKScorer.score(kernel, shard, queries, tops);
+        Map<Long, Neighbours> result = new HashMap<>();
+        for (int i = 0; i < tops.length; i += 1) {
+            result.put(pets.get(i).id(), Neighbours.of(tops[i].drain()).without(pets.get(i).id(), k));
+        }
+        return result;
+    }
+
+    private static Map<Long, TopK.Result> results(Map<Long, Neighbours> graph) {
+        Map<Long, TopK.Result> results = new HashMap<>(graph.size());
+        graph.forEach((id, entry) -> results.put(id, new TopK.Result(entry.ids(), entry.scores())));
+        return results;
+    }
+
+    private List<Pet> liveSimilar(Long petId, int limit) {
+        Pet pet = petRepository.findById(petId).orElse(null);
+        if (pet == null || pet.getPersonalityVector() == null) {
+            return List.of();
+        }
+        return petRepository.hybridSearch(pet.getSpecies().name(), pet.getPersonalityVector(), limit + 1)
+            .stream()
+            .filter(candidate -> !candidate.getId().equals(petId))
+            .limit(limit)
+            .toList();
+    }
+
+    private PetVector prepare(PetVector pet) {
+        float[] vector = VectorMath.normalize(VectorMath.truncate(pet.vector(), dimensions));
+        return vector.length == dimensions ? new PetVector(pet.id(), pet.species(), vector) : null;
+    }
+
+    private static void append(OffHeapVectorShard shard, PetVector pet) {
+        try {
+            shard.append(pet.id(), pet.vector());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    // Neighbour ids in descending similarity, with their scores.
+    private record Neighbours(long[] ids, float[] scores) {
+        static Neighbours of(TopK.Result result) {
+            return new Neighbours(result.ids(), result.scores());
+        }
+
+        boolean contains(long id) {
+            for (long candidate : ids) {
+                if (candidate == id) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Neighbours without(long id, int limit) {
+            TopK top = new TopK(limit);
+            for (int i = 0; i < ids.length; i += 1) {
+                if (ids[i] != id) {
+                    top.offer(ids[i], scores[i]);
+                }
+            }
+            return of(top.drain());
+        }
+
+        Neighbours with(long id, float score, int limit) {
+            if (ids.length >= limit && score <= scores[ids.length - 1]) {
+                return this;
+            }
+            TopK top = new TopK(limit);
+            for (int i = 0; i < ids.length; i += 1) {
+                top.offer(ids[i], scores[i]);
+            }
+            top.offer(id, score);
+            return of(top.drain());
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package com.pawzzle.infrastructure.vector;
+
+import com.pawzzle.domain.pet.PetChangedEvent;
+import com.pawzzle.domain.user.UserPreferenceChangedEvent;
+import com.pawzzle.domain.vector.TopK;
+import com.pawzzle.domain.vector.VectorMath;
+import com.pawzzle.domain.vector.VectorStorageProfile;
+import com.pawzzle.infrastructure.vector.PetVectorReader.PetVector;
+import com.pawzzle.infrastructure.vector.UserPetTopKTable.Row;
+import com.pawzzle.infrastructure.vector.UserVectorReader.UserVector;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+// Scores every user with a preference vector against every OPEN pet and stores each user's
+// best pets in user_pet_topk. The full run is a blocked (users x pets) product split across
+// the fork/join pool (see BlockedTopKScorer); afterwards pet and preference changes are folded in
+// incrementally against resident pet and user shards, without rereading either table.
+@Component
+public class UserPetTopKJob {
+    private static final Logger log = LoggerFactory.getLogger(UserPetTopKJob.class);
+
+    private final PetVectorReader petVectorReader;
+    private final UserVectorReader userVectorReader;
+    private final UserPetTopKTable userPetTopKTable;
+    private final Executor taskExecutor;
+    private final int dimensions;
+    private final ScanKernel kernel;
+    private final Set<Long> dirtyPets = ConcurrentHashMap.newKeySet();
+    private final Set<Long> dirtyUsers = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService drainScheduler = Executors.newSingleThreadScheduledExecutor(daemon("PawzzleTopKDrain"));
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final AtomicBoolean fullRunning = new AtomicBoolean();
+    // Lowest stored score per user once their list is full; a new pet must beat it to enter.
+    private final Map<Long, Float> floors = new HashMap<>();
+
+    @Value("${pawzzle.recommendation.precompute.enabled:false}")
+    private boolean enabled;
+
+    @Value("${pawzzle.recommendation.precompute.top-k:20}")
+    private int topK;
+
+    @Value("${pawzzle.recommendation.precompute.debounce-ms:500}")
+    private long debounceMs;
+
+    private OffHeapVectorShard pets;
+    private OffHeapVectorShard users;
+    private volatile RunReport lastRun;
+
+    public UserPetTopKJob(
+        PetVectorReader petVectorReader,
+        UserVectorReader userVectorReader,
+        UserPetTopKTable userPetTopKTable,
+        VectorStorageProfile vectorStorageProfile,
+        Executor taskExecutor
+    ) {
+        this.petVectorReader = petVectorReader;
+        this.userVectorReader = userVectorReader;
+        this.userPetTopKTable = userPetTopKTable;
+        this.taskExecutor = taskExecutor;
+        this.dimensions = vectorStorageProfile.dimensions();
+        this.kernel = ScanKernel.detect();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (enabled) {
+            startFull();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        drainScheduler.shutdownNow();
+    }
+
+    // Runs a full precompute on the task executor; false when one is already running.
+    public boolean startFull() {
+        if (!fullRunning.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            taskExecutor.execute(() -> {
+                try {
+                    runFull();
+                } catch (RuntimeException ex) {
+                    log.warn("User/pet top-K precompute failed", ex);
+                } finally {
+                    fullRunning.set(false);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            fullRunning.set(false);
+            throw ex;
+        }
+        return true;
+    }
+
+    public Status status() {
+        return new Status(fullRunning.get(), lastRun);
+    }
+
+    public synchronized RunReport runFull() {
+        long start = System.nanoTime();
+        Instant startedAt = userPetTopKTable.now();
+        OffHeapVectorShard petShard = OffHeapVectorShard.inMemory(dimensions);
+        petVectorReader.forEachOpen(pet -> append(petShard, pet.id(), pet.vector()));
+
+        List<UserVector> userVectors = new ArrayList<>();
+        userVectorReader.forEach(userVectors::add);
+        OffHeapVectorShard userShard = OffHeapVectorShard.inMemory(dimensions);
+        userVectors.forEach(user -> append(userShard, user.id(), user.vector()));
+        Map<Long, TopK.Result> results = score(petShard, userVectors);
+        userPetTopKTable.saveAll(results);
+        userPetTopKTable.deleteComputedBefore(startedAt);
+        pets = petShard;
+        users = userShard;
+        floors.clear();
+        results.forEach((userId, result) -> floors.put(userId, floor(result)));
+
+        RunReport report = new RunReport(userVectors.size(), petShard.size(), (System.nanoTime() - start) / 1_000_000);
+        lastRun = report;
+        log.info("User/pet top-K precomputed: {} users x {} pets, kernel={}, {} ms",
+            report.users(), report.pets(), kernel.name(), report.millis());
+        // Changes that arrived while the run was reading are folded in now that the shards exist.
+        if (!dirtyPets.isEmpty() || !dirtyUsers.isEmpty()) {
+            scheduleDrain();
+        }
+        return report;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPetChanged(PetChangedEvent event) {
+        if (!enabled || event.petId() == null) {
+            return;
+        }
+        dirtyPets.add(event.petId());
+        scheduleDrain();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPreferenceChanged(UserPreferenceChangedEvent event) {
+        if (!enabled || event.userId() == null) {
+            return;
+        }
+        dirtyUsers.add(event.userId());
+        scheduleDrain();
+    }
+
+    // Events arriving within debounce-ms of the first are folded into one drain, so an import that
+    // publishes one event per inserted pet costs one refresh rather than one per pet.
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            drainScheduler.schedule(() -> {
+                drainScheduled.set(false);
+                drainSafely();
+            }, debounceMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void drainSafely() {
+        try {
+            drain();
+        } catch (RuntimeException ex) {
+            log.warn("User/pet top-K incremental refresh failed", ex);
+        }
+    }
+
+    // Changed pets are swapped in the resident pet shard and changed preferences in the resident
+    // user shard. Users whose stored list mentions a changed pet, or whose preference changed, are
+    // rescored in full; everyone else is scored against the reopened pets only, and only users
+    // whose floor a new pet beats have their stored row read and rewritten.
+    private synchronized void drain() {
+        if (pets == null) {
+            return;
+        }
+        Set<Long> petIds = take(dirtyPets);
+        Set<Long> changedUsers = take(dirtyUsers);
+        if (petIds.isEmpty() && changedUsers.isEmpty()) {
+            return;
+        }
+        Set<Long> userIds = new HashSet<>(changedUsers);
+        List<PetVector> reopened = new ArrayList<>();
+        if (!petIds.isEmpty()) {
+            pets.removeAll(petIds);
+            for (Long petId : petIds) {
+                petVectorReader.findOpen(petId).ifPresent(pet -> {
+                    if (append(pets, pet.id(), pet.vector())) {
+                        reopened.add(pet);
+                    }
+                });
+            }
+            userIds.addAll(userPetTopKTable.findUsersContaining(petIds));
+        }
+        if (!reopened.isEmpty()) {
+            mergeNewPets(reopened, userIds);
+        }
+        if (!userIds.isEmpty()) {
+            List<UserVector> rescored = userVectorReader.findAll(userIds);
+            Set<Long> withoutVector = new HashSet<>(userIds);
+            for (UserVector user : rescored) {
+                withoutVector.remove(user.id());
+            }
+            if (!changedUsers.isEmpty()) {
+                users.removeAll(changedUsers);
+                for (UserVector user : rescored) {
+                    if (changedUsers.contains(user.id())) {
+                        append(users, user.id(), user.vector());
+                    }
+                }
+            }
+            Map<Long, TopK.Result> results = score(pets, rescored);
+            userPetTopKTable.saveAll(results);
+            userPetTopKTable.deleteAll(withoutVector);
+            withoutVector.forEach(floors::remove);
+            results.forEach((userId, result) -> floors.put(userId, floor(result)));
+        }
+        compactUsers();
+    }
+
+    private void mergeNewPets(List<PetVector> reopened, Set<Long> skipUsers) {
+        float[][] petVectors = new float[reopened.size()][];
+        for (int i = 0; i < petVectors.length; i += 1) {
+            petVectors[i] = prepare(reopened.get(i).vector());
+        }
+        Map<Long, TopK> improved = new HashMap<>();
+        users.scoreAll(kernel, petVectors, (userId, pet, score) -> {
+            if (skipUsers.contains(userId) || score <= floors.getOrDefault(userId, Float.NEGATIVE_INFINITY)) {
+                return;
+            }
+            improved.computeIfAbsent(userId, id -> new TopK(topK)).offer(reopened.get(pet).id(), score);
+        });
+        if (improved.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Row> rows = userPetTopKTable.findAll(improved.keySet());
+        Map<Long, TopK.Result> merged = new HashMap<>();
+        for (Map.Entry<Long, TopK> entry : improved.entrySet()) {
+            TopK top = entry.getValue();
+            Row row = rows.get(entry.getKey());
+            if (row != null) {
+                for (int i = 0; i < row.petIds().length; i += 1) {
+                    top.offer(row.petIds()[i], row.scores()[i]);
+                }
+            }
+            TopK.Result result = top.drain();
+            merged.put(entry.getKey(), result);
+            floors.put(entry.getKey(), floor(result));
+        }
+        userPetTopKTable.saveAll(merged);
+    }
+
+    // Every preference change leaves a dead slot in the user shard; once they outnumber the live
+    // ones the shard is rebuilt from the table.
+    private void compactUsers() {
+        if (users.removed() * 2 <= users.size()) {
+            return;
+        }
+        OffHeapVectorShard shard = OffHeapVectorShard.inMemory(dimensions);
+        userVectorReader.forEach(user -> append(shard, user.id(), user.vector()));
+        users = shard;
+    }
+
+    private float floor(TopK.Result result) {
+        float[] scores = result.scores();
+        return scores.length < topK ? Float.NEGATIVE_INFINITY : scores[scores.length - 1];
+    }
+
+    private Map<Long, TopK.Result> score(OffHeapVectorShard shard, List<UserVector> users) {
+        List<Long> ids = new ArrayList<>(users.size());
+        List<float[]> vectors = new ArrayList<>(users.size());
+        for (UserVector user : users) {
+            float[] query = prepare(user.vector());
+            if (query.length == dimensions) {
+                ids.add(user.id());
+                vectors.add(query);
+            }
+        }
+        float[][] queries = vectors.toArray(new float[0][]);
+        TopK[] tops = new TopK[queries.length];
+        for (int i = 0; i < tops.length; i += 1) {
+            tops[i] = new TopK(topK);
+        }
+        BlockedTopKScorer.score(kernel, shard, queries, tops);
+
+        Map<Long, TopK.Result> results = new HashMap<>();
+        for (int i = 0; i < tops.length; i += 1) {
+            results.put(ids.get(i), tops[i].drain());
+        }
+        return results;
+    }
+
+    private boolean append(OffHeapVectorShard shard, long id, float[] raw) {
+        float[] vector = prepare(raw);
+        if (vector.length != dimensions) {
+            return false;
+        }
+        try {
+            shard.append(id, vector);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return true;
+    }
+
+    private float[] prepare(float[] vector) {
+        return VectorMath.normalize(VectorMath.truncate(vector, dimensions));
+    }
+
+    private static Set<Long> take(Set<Long> source) {
+        Set<Long> taken = new HashSet<>();
+        for (Long id : source) {
+            if (source.remove(id)) {
+                taken.add(id);
+            }
+        }
+        return taken;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public record RunReport(int users, int pets, long millis) {
+    }
+
+    public record Status(boolean running, RunReport lastRun) {
+    }
+}
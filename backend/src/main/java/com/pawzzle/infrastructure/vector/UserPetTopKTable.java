@@ -0,0 +1,144 @@
+package com.pawzzle.infrastructure.vector;
+
+import com.pawzzle.domain.vector.TopK;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// One row per user holding their precomputed best pets as parallel arrays, so serving a
+// returning user is a single primary-key lookup.
+@Component
+@Order(1)
+@RequiredArgsConstructor
+public class UserPetTopKTable implements ApplicationRunner {
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        jdbcTemplate.execute("""
+            create table if not exists user_pet_topk (
+                user_id bigint primary key references users(id) on delete cascade,
+                pet_ids bigint[] not null,
+                scores real[] not null,
+                computed_at timestamp not null default now()
+            )
+            """);
+        jdbcTemplate.execute("create index if not exists idx_user_pet_topk_pet_ids on user_pet_topk using gin (pet_ids)");
+    }
+
+    public Optional<Row> find(long userId) {
+        return jdbcTemplate.query(
+            "select user_id, pet_ids, scores from user_pet_topk where user_id = ?",
+            (rs, rowNum) -> map(rs),
+            userId
+        ).stream().findFirst();
+    }
+
+    public Map<Long, Row> findAll(Collection<Long> userIds) {
+        Map<Long, Row> rows = new HashMap<>();
+        for (List<Long> chunk : chunks(userIds)) {
+            jdbcTemplate.query(
+                "select user_id, pet_ids, scores from user_pet_topk where user_id = any(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", chunk.toArray())),
+                rs -> {
+                    Row row = map(rs);
+                    rows.put(row.userId(), row);
+                }
+            );
+        }
+        return rows;
+    }
+
+    public List<Long> findUsersContaining(Collection<Long> petIds) {
+        if (petIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(
+            "select user_id from user_pet_topk where pet_ids && ?",
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", petIds.toArray())),
+            (rs, rowNum) -> rs.getLong("user_id")
+        );
+    }
+
+    public void saveAll(Map<Long, TopK.Result> results) {
+        List<Map.Entry<Long, TopK.Result>> entries = new ArrayList<>(results.entrySet());
+        for (int start = 0; start < entries.size(); start += BATCH_SIZE) {
+            List<Map.Entry<Long, TopK.Result>> batch = entries.subList(start, Math.min(entries.size(), start + BATCH_SIZE));
+            jdbcTemplate.batchUpdate("""
+                insert into user_pet_topk (user_id, pet_ids, scores, computed_at)
+                values (?, ?, ?, now())
+                on conflict (user_id) do update
+                set pet_ids = excluded.pet_ids, scores = excluded.scores, computed_at = excluded.computed_at
+                """, batch, batch.size(), (PreparedStatement ps, Map.Entry<Long, TopK.Result> entry) -> {
+                TopK.Result result = entry.getValue();
+                Long[] petIds = new Long[result.ids().length];
+                Float[] scores = new Float[result.scores().length];
+                for (int i = 0; i < petIds.length; i += 1) {
+                    petIds[i] = result.ids()[i];
+                    scores[i] = result.scores()[i];
+                }
+                ps.setLong(1, entry.getKey());
+                ps.setArray(2, ps.getConnection().createArrayOf("bigint", petIds));
+                ps.setArray(3, ps.getConnection().createArrayOf("real", scores));
+            });
+        }
+    }
+
+    public void deleteAll(Collection<Long> userIds) {
+        for (List<Long> chunk : chunks(userIds)) {
+            jdbcTemplate.update(
+                "delete from user_pet_topk where user_id = any(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", chunk.toArray()))
+            );
+        }
+    }
+
+    // Database clock, so cut-offs compare against computed_at without JVM clock skew.
+    public Instant now() {
+        return jdbcTemplate.queryForObject("select now()", Timestamp.class).toInstant();
+    }
+
+    public void deleteComputedBefore(Instant cutoff) {
+        jdbcTemplate.update("delete from user_pet_topk where computed_at < ?", Timestamp.from(cutoff));
+    }
+
+    private Row map(ResultSet rs) throws SQLException {
+        Object[] petIds = (Object[]) rs.getArray("pet_ids").getArray();
+        Object[] scores = (Object[]) rs.getArray("scores").getArray();
+        long[] ids = new long[petIds.length];
+        float[] values = new float[scores.length];
+        for (int i = 0; i < ids.length; i += 1) {
+            ids[i] = ((Number) petIds[i]).longValue();
+            values[i] = ((Number) scores[i]).floatValue();
+        }
+        return new Row(rs.getLong("user_id"), ids, values);
+    }
+
+    private static List<List<Long>> chunks(Collection<Long> ids) {
+        List<Long> all = new ArrayList<>(ids);
+        List<List<Long>> result = new ArrayList<>();
+        for (int start = 0; start < all.size(); start += BATCH_SIZE) {
+            result.add(all.subList(start, Math.min(all.size(), start + BATCH_SIZE)));
+        }
+        return result;
+    }
+
+    public record Row(long userId, long[] petIds, float[] scores) {
+    }
+}
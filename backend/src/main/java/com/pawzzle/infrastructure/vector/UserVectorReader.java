@@ -0,0 +1,49 @@
+package com.pawzzle.infrastructure.vector;
+
+import com.pawzzle.domain.vector.VectorMath;
+import com.pawzzle.domain.vector.VectorStringConverter;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class UserVectorReader {
+    private static final String PREFERENCE_VECTORS = """
+        select id, preference_vector::text as vector
+        from users
+        where preference_vector is not null
+        """;
+    private static final VectorStringConverter CONVERTER = new VectorStringConverter();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void forEach(Consumer<UserVector> consumer) {
+        jdbcTemplate.query(PREFERENCE_VECTORS + " order by id", (RowCallbackHandler) rs -> consumer.accept(map(rs)));
+    }
+
+    public List<UserVector> findAll(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(
+            PREFERENCE_VECTORS + " and id = any(?) order by id",
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())),
+            (rs, rowNum) -> map(rs)
+        );
+    }
+
+    private UserVector map(ResultSet rs) throws SQLException {
+        float[] vector = VectorMath.toFloatArray(CONVERTER.convertToEntityAttribute(rs.getString("vector")));
+        return new UserVector(rs.getLong("id"), VectorMath.normalize(vector));
+    }
+
+    public record UserVector(long id, float[] vector) {
+    }
+}
@@ -0,0 +1,50 @@
+package com.pawzzle.infrastructure.vector;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+
+class VectorApiScanKernel implements ScanKernel {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final ByteOrder ORDER = ByteOrder.nativeOrder();
+
+    @Override
+    public void score(
+        ByteBuffer buffer,
+        int blockOffset,
+        int blockSize,
+        int dimensions,
+        float[] query,
+        float[] out,
+        int count
+    ) {
+        int lanes = SPECIES.length();
+        int rowBytes = blockSize * Float.BYTES;
+        int i = 0;
+        for (; i + lanes <= count; i += lanes) {
+            FloatVector acc = FloatVector.zero(SPECIES);
+            int offset = blockOffset + i * Float.BYTES;
+            for (int d = 0; d < dimensions; d += 1) {
+                FloatVector column = FloatVector.fromByteBuffer(SPECIES, buffer, offset, ORDER);
+                acc = column.fma(FloatVector.broadcast(SPECIES, query[d]), acc);
+                offset += rowBytes;
+            }
+            acc.intoArray(out, i);
+        }
+        for (; i < count; i += 1) {
+            float sum = 0f;
+            int offset = blockOffset + i * Float.BYTES;
+            for (int d = 0; d < dimensions; d += 1) {
+                sum += query[d] * buffer.getFloat(offset);
+                offset += rowBytes;
+            }
+            out[i] = sum;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "vector-api-" + SPECIES.vectorBitSize();
+    }
+}
@@ -0,0 +1,160 @@
+package com.pawzzle.infrastructure.vector;
+
+import com.pawzzle.domain.vector.VectorSqlUtils;
+import com.pawzzle.domain.vector.VectorStorageProfile;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Service
+@RequiredArgsConstructor
+public class VectorRecallEvaluator {
+    private static final String EXACT_SQL = """
+        select p.id
+        from pets p, pets q
+        where q.id = ? and p.id <> q.id and p.status = 'OPEN' and p.personality_vector is not null %s
+        order by p.personality_vector <=> q.personality_vector
+        limit ?
+        """;
+    private static final String COMPACT_SQL = """
+        select p.id
+        from pets p, pets q
+        where q.id = ? and p.id <> q.id and p.status = 'OPEN' and p.personality_compact is not null %s
+        order by p.personality_compact <=> q.personality_compact
+        limit ?
+        """;
+    // Production search filters on species, and filters apply after the HNSW candidate list is cut.
+    private static final String SAME_SPECIES = "and p.species = q.species";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VectorStorageProfile vectorStorageProfile;
+    private final TransactionTemplate transactionTemplate;
+
+    // Uses existing pets as queries: the full-precision scan is the ground truth,
+    // the compact column (through its index, with the ef_search production search sets) is what
+    // production search would return. The filtered pass also reports how many of the k rows the
+    // index path returned at all, which is where an ef_search cap shows up.
+    public RecallReport evaluate(int samples, int k) {
+        String columnType = vectorStorageProfile.columnType();
+        String efSearch = VectorSqlUtils.efSearch(k);
+        if (!vectorStorageProfile.isCompact()) {
+            return new RecallReport(columnType, 0, k, efSearch, 1.0, 1.0, 1.0, 0, 0, 0, 0, 0);
+        }
+        List<Long> queryIds = jdbcTemplate.queryForList("""
+            select id from pets
+            where personality_vector is not null and personality_compact is not null
+            order by random()
+            limit ?
+            """, Long.class, samples);
+
+        Pass unfiltered = new Pass();
+        Pass filtered = new Pass();
+        for (Long queryId : queryIds) {
+            unfiltered.measure(queryId, k, "", efSearch);
+            filtered.measure(queryId, k, SAME_SPECIES, efSearch);
+        }
+
+        int evaluated = queryIds.size();
+        double fullBytes = averageColumnBytes("personality_vector");
+        double compactBytes = averageColumnBytes("personality_compact");
+        Long indexBytes = jdbcTemplate.queryForObject(
+            "select coalesce(pg_relation_size(to_regclass('idx_pets_personality_compact')), 0)", Long.class);
+        return new RecallReport(
+            columnType,
+            evaluated,
+            k,
+            efSearch,
+            unfiltered.recall(evaluated),
+            filtered.recall(evaluated),
+            filtered.returned(evaluated),
+            fullBytes,
+            compactBytes,
+            indexBytes == null ? 0 : indexBytes,
+            unfiltered.exactMillis(evaluated),
+            unfiltered.compactMillis(evaluated)
+        );
+    }
+
+    private List<Long> compactNeighbours(long queryId, int k, String filter, String efSearch) {
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.queryForObject("select set_config('hnsw.ef_search', ?, true)", String.class, efSearch);
+            return jdbcTemplate.queryForList(COMPACT_SQL.formatted(filter), Long.class, queryId, k);
+        });
+    }
+
+    private double averageColumnBytes(String column) {
+        Double value = jdbcTemplate.queryForObject(
+            "select coalesce(avg(pg_column_size(" + column + ")), 0) from pets where " + column + " is not null",
+            Double.class
+        );
+        return value == null ? 0 : value;
+    }
+
+    private final class Pass {
+        private double recallSum;
+        private double returnedSum;
+        private long exactNanos;
+        private long compactNanos;
+
+        void measure(long queryId, int k, String filter, String efSearch) {
+            long start = System.nanoTime();
+            List<Long> exact = jdbcTemplate.queryForList(EXACT_SQL.formatted(filter), Long.class, queryId, k);
+            long mid = System.nanoTime();
+            List<Long> compact = compactNeighbours(queryId, k, filter, efSearch);
+            long end = System.nanoTime();
+            exactNanos += mid - start;
+            compactNanos += end - mid;
+
+            if (exact.isEmpty()) {
+                recallSum += 1.0;
+                returnedSum += 1.0;
+                return;
+            }
+            Set<Long> truth = new HashSet<>(exact);
+            int hits = 0;
+            for (Long id : compact) {
+                if (truth.contains(id)) {
+                    hits += 1;
+                }
+            }
+            recallSum += (double) hits / exact.size();
+            returnedSum += Math.min(1.0, (double) compact.size() / exact.size());
+        }
+
+        double recall(int evaluated) {
+            return evaluated == 0 ? 1.0 : recallSum / evaluated;
+        }
+
+        double returned(int evaluated) {
+            return evaluated == 0 ? 1.0 : returnedSum / evaluated;
+        }
+
+        double exactMillis(int evaluated) {
+            return evaluated == 0 ? 0 : exactNanos / 1_000_000.0 / evaluated;
+        }
+
+        double compactMillis(int evaluated) {
+            return evaluated == 0 ? 0 : compactNanos / 1_000_000.0 / evaluated;
+        }
+    }
+
+    public record RecallReport(
+        String columnType,
+        int samples,
+        int k,
+        String efSearch,
+        double recallAtK,
+        double speciesFilteredRecallAtK,
+        double speciesFilteredReturnedRatio,
+        double fullBytesPerRow,
+        double compactBytesPerRow,
+        long compactIndexBytes,
+        double exactMillisPerQuery,
+        double compactMillisPerQuery
+    ) {
+    }
+}
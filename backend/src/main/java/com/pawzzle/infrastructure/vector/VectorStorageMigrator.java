@@ -0,0 +1,83 @@
+package com.pawzzle.infrastructure.vector;
+
+import com.pawzzle.domain.vector.VectorStorageProfile;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+@Component
+@Order(0)
+@RequiredArgsConstructor
+public class VectorStorageMigrator implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(VectorStorageMigrator.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VectorStorageProfile vectorStorageProfile;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!vectorStorageProfile.isCompact()) {
+            // Reverse matching orders adopters by distance to a pet, so the full column needs its own index.
+            jdbcTemplate.execute("""
+                create index if not exists idx_users_preference_vector on users using hnsw (preference_vector vector_cosine_ops)
+                """);
+            return;
+        }
+        migrate("pets", "personality_vector", "personality_compact");
+        migrate("users", "preference_vector", "preference_compact");
+    }
+
+    // Keeps a compact companion column next to the full-precision source column.
+    // The source stays authoritative; a trigger derives the compact value on every write.
+    private void migrate(String table, String source, String target) {
+        String columnType = vectorStorageProfile.columnType();
+        String current = currentColumnType(table, target);
+        if (current != null && !current.equals(columnType)) {
+            log.info("Vector storage: dropping {}.{} ({}) to rebuild as {}", table, target, current, columnType);
+            jdbcTemplate.execute("alter table " + table + " drop column " + target);
+            current = null;
+        }
+        if (current == null) {
+            jdbcTemplate.execute("alter table " + table + " add column " + target + " " + columnType);
+        }
+
+        String function = table + "_" + target + "_sync";
+        jdbcTemplate.execute("""
+            create or replace function %s() returns trigger as $$
+            begin
+                new.%s := case when new.%s is null then null else %s end;
+                return new;
+            end;
+            $$ language plpgsql
+            """.formatted(function, target, source, vectorStorageProfile.compactExpression("new." + source)));
+        jdbcTemplate.execute("drop trigger if exists " + function + " on " + table);
+        jdbcTemplate.execute("""
+            create trigger %s before insert or update of %s on %s
+            for each row execute function %s()
+            """.formatted(function, source, table, function));
+
+        int backfilled = jdbcTemplate.update("""
+            update %s set %s = %s
+            where %s is not null and %s is null
+            """.formatted(table, target, vectorStorageProfile.compactExpression(source), source, target));
+        jdbcTemplate.execute("""
+            create index if not exists idx_%s_%s on %s using hnsw (%s %s)
+            """.formatted(table, target, table, target, vectorStorageProfile.cosineOps()));
+        log.info("Vector storage: {}.{} ready as {} (backfilled {} rows)", table, target, columnType, backfilled);
+    }
+
+    private String currentColumnType(String table, String column) {
+        List<String> types = jdbcTemplate.queryForList("""
+            select format_type(a.atttypid, a.atttypmod)
+            from pg_attribute a
+            where a.attrelid = to_regclass(?) and a.attname = ? and not a.attisdropped
+            """, String.class, table, column);
+        return types.isEmpty() ? null : types.get(0);
+    }
+}
@@ -1,10 +1,23 @@
 package com.pawzzle.web;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pawzzle.domain.pet.Pet;
-import com.pawzzle.domain.pet.PetRepository;
+import com.pawzzle.infrastructure.ai.InterviewSessionService;
+import com.pawzzle.infrastructure.ai.InterviewSessionService.InterviewSession;
+import com.pawzzle.infrastructure.ai.LlmJsonParser;
+import com.pawzzle.infrastructure.ai.ModerationFilter;
+import com.pawzzle.infrastructure.ai.PromptAssembler;
+import com.pawzzle.infrastructure.ai.PromptBudget;
+import com.pawzzle.infrastructure.ai.PromptTemplate;
+import com.pawzzle.infrastructure.ai.QuizOptionVectors;
+import com.pawzzle.infrastructure.ai.RecommendationContext;
+import com.pawzzle.infrastructure.ai.RecommendationEngine;
+import com.pawzzle.infrastructure.ai.RecommendationPrefetchCache;
+import com.pawzzle.infrastructure.ai.RecommendationStage;
+import com.pawzzle.infrastructure.ai.StructuredOutput;
 import java.util.concurrent.CompletableFuture;
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
@@ -12,26 +25,23 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 import lombok.RequiredArgsConstructor;
-import org.springframework.ai.chat.ChatResponse;
-import org.springframework.ai.chat.messages.SystemMessage;
-import org.springframework.ai.chat.messages.UserMessage;
-import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.ai.embedding.EmbeddingClient;
-import org.springframework.ai.openai.OpenAiChatClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 @RestController
 @RequestMapping("/api/agent")
 @RequiredArgsConstructor
 public class AgentController {
     private static final int DEFAULT_CANDIDATE_LIMIT = 50;
+    private static final int TRAIT_TOKENS = 40;
     private static final Logger log = LoggerFactory.getLogger(AgentController.class);
     private static final String EVALUATION_SYSTEM_PROMPT = """
         You are a warm, witty, empathetic pet adoption conversation partner.
@@ -60,30 +70,51 @@ public class AgentController {
                 (e.g. moving, business travel).
 
         If user shows malicious/inappropriate intent (e.g. clearly states they dislike pets,
-        abuse intent, hateful/offensive speech), return ONLY valid JSON:
-        {"ismalicious":1,"endverification":false,"nextQuestion":""}
-
-        Return format — ONLY valid JSON, nothing else:
-        - If fewer than 4 answers collected:
-          {"ismalicious":0,"endverification":false,"nextQuestion":"<your question in Chinese>"}
-        - If all 4 answers collected:
-          {"ismalicious":0,"endverification":true,"profile":"<~200 char Chinese summary of user profile>"}
-
-        Every response MUST include "ismalicious" with value 0 or 1.
+        abuse intent, hateful/offensive speech), set ismalicious to 1 and leave nextQuestion empty.
+        While fewer than 4 answers are collected, set endverification to false and ask in nextQuestion.
+        Once all 4 answers are collected, set endverification to true and write the profile.
         """;
 
     private static final String RECOMMEND_SYSTEM_PROMPT = """
         You are a pet adoption match assistant.
         Given the evaluation summary and a list of pet cards, pick the best 3 pet ids.
-        Return ONLY valid JSON: {"items":[{"id":"1","confidence":0.82},{"id":"2","confidence":0.71},{"id":"3","confidence":0.63}]}.
         Confidence must be between 0 and 1.
         Use only ids that exist in the provided list, ordered from best to third.
         """;
 
-    private final OpenAiChatClient chatClient;
+    private static final String BLOCKED_RESPONSE = "{\"ismalicious\":1,\"endverification\":false,\"nextQuestion\":\"\"}";
+
+    private static final PromptTemplate EVALUATION_USER_TEMPLATE = PromptTemplate.compile("""
+        Conversation so far:
+        {conversation}
+        """);
+    private static final PromptTemplate RECOMMENDATION_EVALUATION_TEMPLATE = PromptTemplate.compile("""
+        Evaluation Summary:
+        {evaluation}
+
+        Conversation:
+        {conversation}
+
+        Pet Cards:
+        {pets}
+        """);
+    private static final PromptTemplate RECOMMENDATION_ANSWERS_TEMPLATE = PromptTemplate.compile("""
+        User Q&A:
+        {answers}
+
+        Pet Cards:
+        {pets}
+        """);
+
+    private final PromptAssembler promptAssembler;
+    private final PromptBudget promptBudget;
     private final ObjectMapper objectMapper;
-    private final EmbeddingClient embeddingClient;
-    private final PetRepository petRepository;
+    private final RecommendationEngine recommendationEngine;
+    private final RecommendationPrefetchCache prefetchCache;
+    private final QuizOptionVectors quizOptionVectors;
+    private final InterviewSessionService interviewSessions;
+    private final ModerationFilter moderationFilter;
+    private final StructuredOutput structuredOutput;
 
     @Value("${pawzzle.matching.candidate-limit:50}")
     private int candidateLimit;
@@ -92,93 +123,244 @@ public class AgentController {
     @PostMapping("/evaluate")
     public CompletableFuture<EvaluationResponse> evaluate(@RequestBody EvaluationRequest request) {
         List<AgentMessage> messages = request.messages() == null ? List.of() : request.messages();
-        String prompt = buildEvaluationPrompt(messages);
-        String systemPrompt = composeSystemPrompt(EVALUATION_SYSTEM_PROMPT, request.contextPrompt());
-        ChatResponse response = chatClient.call(new Prompt(List.of(
-            new SystemMessage(systemPrompt),
-            new UserMessage(prompt)
-        )));
-
-        String content = response.getResult().getOutput().getContent();
-        EvaluationResult result = parseEvaluation(content);
+        // A certain blocklist hit ends the interview without spending a completion on it, and is
+        // checked before the session is touched so the blocked text never enters the transcript.
+        String latest = request.message() != null ? request.message() : latestUserMessage(messages);
+        if (moderationFilter.check(latest) == ModerationFilter.Decision.BLOCK) {
+            return CompletableFuture.completedFuture(new EvaluationResponse(
+                1, false, null, List.of(), "", BLOCKED_RESPONSE, request.sessionId()));
+        }
+        InterviewSession session = openSession(request, messages);
+        int budget = promptBudget.remaining("evaluate",
+            structuredOutput.systemPrompt(EVALUATION_SYSTEM_PROMPT, EvaluationPayload.class), request.contextPrompt());
+        String prompt = session == null
+            ? buildEvaluationPrompt(messages, budget)
+            : interviewSessions.buildPrompt(session, budget);
+        StructuredOutput.Result<EvaluationPayload> answer = structuredOutput.call(
+            "evaluate", EVALUATION_SYSTEM_PROMPT, request.contextPrompt(), prompt, EvaluationPayload.class);
+        String content = answer.content();
+        EvaluationResult result = toEvaluationResult(answer);
+        if (session != null) {
+            for (String question : result.nextQuestions()) {
+                interviewSessions.record(session, "assistant", question);
+            }
+            interviewSessions.compactIfNeeded(session);
+            messages = session.turns().stream()
+                .map(turn -> new AgentMessage(turn.role(), turn.content()))
+                .toList();
+        }
+        if (result.endverification() && result.ismalicious() == 0) {
+            prefetchCandidates(result.profile());
+        }
         return CompletableFuture.completedFuture(new EvaluationResponse(
             result.ismalicious(),
             result.endverification(),
             result.profile(),
             result.nextQuestions(),
             prompt,
-            content == null ? "" : content
+            content,
+            session == null ? null : session.id()
         ));
     }
 
+    private String latestUserMessage(List<AgentMessage> messages) {
+        for (int i = messages.size() - 1; i >= 0; i -= 1) {
+            AgentMessage message = messages.get(i);
+            if (message != null && "user".equals(roleLabel(message.role()))) {
+                return message.content();
+            }
+        }
+        return null;
+    }
+
+    // Clients that send a session id or a single new message get a server-side session; the full
+    // messages list seeds a new one. A session id the server no longer knows, sent without the
+    // history to rebuild it, is rejected with 409 so the client resends the whole conversation.
+    private InterviewSession openSession(EvaluationRequest request, List<AgentMessage> messages) {
+        if (request.sessionId() == null && request.message() == null) {
+            return null;
+        }
+        InterviewSession session = request.sessionId() == null
+            ? null
+            : interviewSessions.resume(request.sessionId()).orElse(null);
+        if (session == null) {
+            if (request.sessionId() != null && messages.isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Interview session expired");
+            }
+            session = interviewSessions.start();
+            for (AgentMessage message : messages) {
+                if (message != null) {
+                    interviewSessions.record(session, roleLabel(message.role()), normalizeText(message.content()));
+                }
+            }
+        }
+        interviewSessions.record(session, "user", normalizeText(request.message()));
+        return session;
+    }
+
     @Async("taskExecutor")
     @PostMapping("/recommend")
     public CompletableFuture<RecommendationResponse> recommend(@RequestBody RecommendationRequest request) {
-        CandidateSelection selection = resolveCandidatePets(request);
+        if (request == null) {
+            return CompletableFuture.completedFuture(new RecommendationResponse(0, List.of(), "", "", "request=null"));
+        }
+        SearchPayload payload = buildSearchPayload(request);
+        String profile = request.evaluation() == null ? null : normalizeText(request.evaluation().profile());
+        CompletableFuture<RecommendationContext> prefetched = profile == null
+            ? null
+            : prefetchCache.get(profile).orElse(null);
+        if (prefetched == null) {
+            return runCandidates(request, payload)
+                .thenCompose(context -> respond(request, payload, context, false));
+        }
+        return prefetched
+            .thenCompose(context -> respond(request, payload, context, true))
+            .exceptionallyCompose(ex -> runCandidates(request, payload)
+                .thenCompose(context -> respond(request, payload, context, false)));
+    }
+
+    // Starts candidate retrieval for the profile the interview just produced, assuming the client will
+    // follow up with /recommend for it. Retrieval depends only on the profile, so it is safe to reuse;
+    // the rerank prompt also carries the client's messages and context prompt, so it waits for them.
+    private void prefetchCandidates(String profile) {
+        String normalized = normalizeText(profile);
+        if (normalized == null) {
+            return;
+        }
+        prefetchCache.put(normalized, candidatePipeline(recommendationEngine.embedding()).run(newContext(normalized)));
+    }
+
+    private CompletableFuture<RecommendationContext> runCandidates(RecommendationRequest request, SearchPayload payload) {
+        RecommendationStage embedding = "questionAnswers".equals(payload.source())
+            ? quizEmbedding(request.questionAnswers())
+            : recommendationEngine.embedding();
+        return candidatePipeline(embedding).run(newContext(payload.text()));
+    }
+
+    // Quiz answers are composed from pre-embedded options; the embedding API is only called for
+    // answers outside the option set, or for everything if no option matches.
+    private RecommendationStage quizEmbedding(List<QuestionAnswer> answers) {
+        RecommendationStage fallback = recommendationEngine.embedding();
+        return RecommendationStage.of("embedding", context -> {
+            List<QuizOptionVectors.Answer> chosen = new ArrayList<>();
+            for (QuestionAnswer qa : answers) {
+                String question = qa == null ? null : normalizeText(qa.question());
+                String answer = qa == null ? null : normalizeText(qa.answer());
+                if (question != null && answer != null) {
+                    chosen.add(new QuizOptionVectors.Answer(question, answer));
+                }
+            }
+            List<Double> composed = quizOptionVectors.compose(chosen);
+            if (composed != null) {
+                context.setVector(composed);
+            } else {
+                fallback.apply(context);
+            }
+        });
+    }
+
+    private RecommendationEngine.Pipeline candidatePipeline(RecommendationStage embedding) {
+        return recommendationEngine.pipeline()
+            .parallel(embedding, recommendationEngine.speciesDetection(false))
+            .then(recommendationEngine.retrieval())
+            .then(recommendationEngine.openPetsOnly())
+            .then(recommendationEngine.narrow());
+    }
+
+    private RecommendationContext newContext(String queryText) {
+        int limit = effectiveCandidateLimit();
+        RecommendationContext context = new RecommendationContext(limit, limit);
+        context.setQueryText(queryText);
+        return context;
+    }
+
+    private CompletableFuture<RecommendationResponse> respond(
+        RecommendationRequest request,
+        SearchPayload payload,
+        RecommendationContext context,
+        boolean prefetched
+    ) {
+        CandidateSelection selection = resolveCandidatePets(request, payload, context);
         List<PetCard> pets = selection.pets();
+        String debug = selection.debug() + "prefetch.hit=" + prefetched + "\n" + context.formatTimings();
         if (pets.isEmpty()) {
-            return CompletableFuture.completedFuture(new RecommendationResponse(0, List.of(), "", "", selection.debug()));
+            return CompletableFuture.completedFuture(new RecommendationResponse(0, List.of(), "", "", debug));
         }
-
         String userPrompt = buildRecommendationPrompt(request, pets);
-        String systemPrompt = composeSystemPrompt(RECOMMEND_SYSTEM_PROMPT, request.contextPrompt());
-        ChatResponse response = chatClient.call(new Prompt(List.of(
-            new SystemMessage(systemPrompt),
-            new UserMessage(userPrompt)
-        )));
+        return recommendationEngine.pipeline()
+            .then(recommendationEngine.rerank(RECOMMEND_SYSTEM_PROMPT, RecommendationPayload.class, ctx -> userPrompt))
+            .run(newContext(null))
+            .thenApply(ctx -> toResponse(ctx, userPrompt, pets, debug + ctx.formatTimings()));
+    }
 
-        String content = response.getResult().getOutput().getContent();
-        List<RecommendationItem> items = parseItems(content, pets);
-        return CompletableFuture.completedFuture(new RecommendationResponse(0, items, content == null ? "" : content, userPrompt, selection.debug()));
+    private RecommendationResponse toResponse(RecommendationContext context, String userPrompt, List<PetCard> pets, String debug) {
+        List<RecommendationItem> items = rankedItems(context.getRerankResult(RecommendationPayload.class), pets);
+        String content = context.getRerankResponse();
+        return new RecommendationResponse(0, items, content == null ? "" : content, userPrompt, debug);
     }
 
-    private String buildEvaluationPrompt(List<AgentMessage> messages) {
-        String conversation = formatMessages(messages);
-        return """
-            Conversation so far:
-            %s
-            """.formatted(conversation);
+    private String buildEvaluationPrompt(List<AgentMessage> messages, int budget) {
+        int available = budget == Integer.MAX_VALUE
+            ? budget
+            : budget - promptBudget.count(EVALUATION_USER_TEMPLATE.render(""));
+        return EVALUATION_USER_TEMPLATE.render(joinMessageLines(promptBudget.keepNewest(messageLines(messages), available)));
     }
 
+    // Over the rerank budget the oldest messages go first, then long pet traits, then the
+    // lowest-ranked candidates.
     private String buildRecommendationPrompt(RecommendationRequest request, List<PetCard> pets) {
+        int budget = promptBudget.remaining("rerank", structuredOutput.systemPrompt(RECOMMEND_SYSTEM_PROMPT, RecommendationPayload.class));
+        List<String> conversation = messageLines(request.messages());
+        String prompt = renderRecommendationPrompt(request, conversation, pets);
+        if (promptBudget.fits(prompt, budget)) {
+            return prompt;
+        }
+        if (request.evaluation() != null && !conversation.isEmpty()) {
+            int fixed = promptBudget.count(renderRecommendationPrompt(request, List.of(), pets));
+            conversation = promptBudget.keepNewest(conversation, budget - fixed);
+            prompt = renderRecommendationPrompt(request, conversation, pets);
+            if (promptBudget.fits(prompt, budget)) {
+                return prompt;
+            }
+        }
+        List<PetCard> shortened = pets.stream()
+            .map(pet -> new PetCard(pet.id(), pet.name(), pet.breed(), pet.age(), pet.energy(),
+                promptBudget.truncate(pet.trait(), TRAIT_TOKENS), pet.distance(), pet.icon(), pet.tone()))
+            .toList();
+        prompt = renderRecommendationPrompt(request, conversation, shortened);
+        if (promptBudget.fits(prompt, budget)) {
+            return prompt;
+        }
+        List<String> kept = conversation;
+        int keep = promptBudget.largestFitting(shortened.size(), k -> promptBudget.fits(
+            renderRecommendationPrompt(request, kept, shortened.subList(0, k)), budget));
+        return renderRecommendationPrompt(request, kept, shortened.subList(0, Math.max(1, keep)));
+    }
+
+    // The request's context prompt leads the user message so the system prompt stays a stable prefix.
+    private String renderRecommendationPrompt(RecommendationRequest request, List<String> conversation, List<PetCard> pets) {
         EvaluationSummary evaluation = request.evaluation();
         String petsJson = toJson(pets);
         if (evaluation != null) {
-            String evaluationJson = toJson(evaluation);
-            String conversation = formatMessages(request.messages());
-            return """
-                Evaluation Summary:
-                %s
-
-                Conversation:
-                %s
-
-                Pet Cards:
-                %s
-                """.formatted(evaluationJson, conversation, petsJson);
+            return promptAssembler.userMessage(request.contextPrompt(), RECOMMENDATION_EVALUATION_TEMPLATE.render(
+                toJson(evaluation), joinMessageLines(conversation), petsJson));
         }
 
         String qaText = formatQuestionAnswers(request.questionAnswers());
-        return """
-            User Q&A:
-            %s
-
-            Pet Cards:
-            %s
-            """.formatted(qaText, petsJson);
+        return promptAssembler.userMessage(request.contextPrompt(), RECOMMENDATION_ANSWERS_TEMPLATE.render(qaText, petsJson));
     }
 
-    private CandidateSelection resolveCandidatePets(RecommendationRequest request) {
-        if (request == null) {
-            return new CandidateSelection(List.of(), "request=null");
-        }
+    private CandidateSelection resolveCandidatePets(
+        RecommendationRequest request,
+        SearchPayload payload,
+        RecommendationContext context
+    ) {
         int limit = effectiveCandidateLimit();
         int providedCount = request.pets() == null ? 0 : request.pets().size();
         int messageCount = request.messages() == null ? 0 : request.messages().size();
         int qaCount = request.questionAnswers() == null ? 0 : request.questionAnswers().size();
         boolean hasEvaluation = request.evaluation() != null;
 
-        SearchPayload payload = buildSearchPayload(request);
         StringBuilder debug = new StringBuilder();
         debug.append("candidate.limit=").append(limit).append('\n');
         debug.append("request.evaluation.present=").append(hasEvaluation).append('\n');
@@ -194,13 +376,13 @@ public class AgentController {
         }
 
         if (payload.text() != null) {
-            List<Double> vector = embeddingClient.embed(payload.text());
+            List<Double> vector = context.getVector();
             int vectorSize = vector == null ? 0 : vector.size();
             debug.append("embedding.size=").append(vectorSize).append('\n');
             debug.append("embedding.preview=").append(formatVectorPreview(vector, 6)).append('\n');
-            String species = detectSpecies(payload.text());
+            String species = context.getSpecies();
             debug.append("species.filter=").append(species == null ? "none" : species).append('\n');
-            if (vector == null || vector.isEmpty()) {
+            if (!context.hasVector()) {
                 debug.append("vector.search.skipped=true\n");
                 List<PetCard> fallback = limitPetCards(request.pets() == null ? List.of() : request.pets(), limit);
                 debug.append("fallback.pets.count=").append(fallback.size()).append('\n');
@@ -208,7 +390,7 @@ public class AgentController {
                 log.info("Agent recommend debug:\n{}", debug);
                 return new CandidateSelection(fallback, debug.toString());
             }
-            List<Pet> candidates = petRepository.hybridSearch(species, vector, limit);
+            List<Pet> candidates = context.getCandidates();
             debug.append("vector.search.limit=").append(limit).append('\n');
             debug.append("vector.search.result.count=").append(candidates.size()).append('\n');
             debug.append("vector.search.result.ids=").append(joinPetIds(candidates)).append('\n');
@@ -253,20 +435,6 @@ public class AgentController {
         return new SearchPayload(null, "none");
     }
 
-    private String detectSpecies(String text) {
-        if (text == null) {
-            return null;
-        }
-        String lower = text.toLowerCase(Locale.ROOT);
-        if (lower.contains("cat") || lower.contains("kitten") || text.contains("猫")) {
-            return "CAT";
-        }
-        if (lower.contains("dog") || lower.contains("puppy") || text.contains("狗")) {
-            return "DOG";
-        }
-        return null;
-    }
-
     private String formatVectorPreview(List<Double> vector, int limit) {
         if (vector == null || vector.isEmpty()) {
             return "[]";
@@ -388,8 +556,16 @@ public class AgentController {
     }
 
     private String formatMessages(List<AgentMessage> messages) {
+        return joinMessageLines(messageLines(messages));
+    }
+
+    private String joinMessageLines(List<String> lines) {
+        return lines.isEmpty() ? "No conversation yet." : String.join("\n", lines);
+    }
+
+    private List<String> messageLines(List<AgentMessage> messages) {
         if (messages == null || messages.isEmpty()) {
-            return "No conversation yet.";
+            return List.of();
         }
         List<String> lines = new ArrayList<>();
         for (AgentMessage message : messages) {
@@ -400,17 +576,9 @@ public class AgentController {
             if (content == null) {
                 continue;
             }
-            String role = normalizeText(message.role());
-            String label = "assistant";
-            if ("user".equalsIgnoreCase(role)) {
-                label = "user";
-            }
-            lines.add(label + ": " + content);
-        }
-        if (lines.isEmpty()) {
-            return "No conversation yet.";
+            lines.add(roleLabel(message.role()) + ": " + content);
         }
-        return String.join("\n", lines);
+        return lines;
     }
 
     private String normalizeText(String value) {
@@ -421,19 +589,6 @@ public class AgentController {
         return trimmed.isEmpty() ? null : trimmed;
     }
 
-    private String composeSystemPrompt(String basePrompt, String contextPrompt) {
-        String normalizedContext = normalizeText(contextPrompt);
-        if (normalizedContext == null) {
-            return basePrompt;
-        }
-        return """
-            %s
-
-            Additional conversation context:
-            %s
-            """.formatted(basePrompt, normalizedContext);
-    }
-
     private String toJson(Object value) {
         try {
             return objectMapper.writeValueAsString(value);
@@ -442,79 +597,22 @@ public class AgentController {
         }
     }
 
-    private EvaluationResult parseEvaluation(String response) {
-        String cleaned = stripCodeFences(response);
-        try {
-            JsonNode root = objectMapper.readTree(cleaned);
-            int ismalicious = parseMaliciousFlag(root);
-            if (ismalicious == 1) {
-                return new EvaluationResult(1, false, null, List.of());
-            }
-            boolean endverification = root.path("endverification").asBoolean(false);
-            String profile = readText(root.get("profile"));
-            if (profile == null) {
-                profile = readText(root.get("psychProfile"));
-            }
-            if (profile == null) {
-                profile = readText(root.get("psychologicalProfile"));
-            }
-
-            List<String> questions = readQuestions(root.get("nextQuestions"));
-            if (questions.isEmpty()) {
-                questions = readQuestions(root.get("questions"));
-            }
-            if (questions.isEmpty()) {
-                String single = readText(root.get("nextQuestion"));
-                if (single == null) {
-                    single = readText(root.get("question"));
-                }
-                if (single == null) {
-                    single = readText(root.get("followUp"));
-                }
-                if (single == null) {
-                    single = readText(root.get("next"));
-                }
-                if (single != null) {
-                    questions = List.of(single);
-                }
-            }
-
-            if (endverification) {
-                if (profile == null) {
-                    profile = "No profile summary provided.";
-                }
-                return new EvaluationResult(0, true, profile, List.of());
-            }
-
-            if (questions.isEmpty()) {
-                questions = fallbackQuestions(cleaned);
-            }
-            return new EvaluationResult(0, false, null, limitQuestions(questions));
-        } catch (JsonProcessingException ex) {
-            List<String> fallback = fallbackQuestions(cleaned);
+    // An answer still rejected after the retry degrades to reading a question from the prose.
+    private EvaluationResult toEvaluationResult(StructuredOutput.Result<EvaluationPayload> answer) {
+        EvaluationPayload payload = answer.value();
+        if (payload == null) {
+            List<String> fallback = fallbackQuestions(LlmJsonParser.stripCodeFences(answer.content()));
             return new EvaluationResult(0, false, null, limitQuestions(fallback));
         }
-    }
-
-    private int parseMaliciousFlag(JsonNode root) {
-        JsonNode node = root.get("ismalicious");
-        if (node == null || node.isNull()) {
-            node = root.get("isMalicious");
-        }
-        if (node == null || node.isNull()) {
-            return 0;
-        }
-        if (node.isBoolean()) {
-            return node.asBoolean() ? 1 : 0;
-        }
-        if (node.isNumber()) {
-            return node.asInt() == 0 ? 0 : 1;
+        if (payload.ismalicious() != 0) {
+            return new EvaluationResult(1, false, null, List.of());
         }
-        if (node.isTextual()) {
-            String value = node.asText("").trim().toLowerCase(Locale.ROOT);
-            return ("1".equals(value) || "true".equals(value) || "yes".equals(value)) ? 1 : 0;
+        if (payload.endverification()) {
+            String profile = normalizeText(payload.profile());
+            return new EvaluationResult(0, true, profile != null ? profile : "No profile summary provided.", List.of());
         }
-        return 0;
+        String question = normalizeText(payload.nextQuestion());
+        return new EvaluationResult(0, false, null, question == null ? List.of() : List.of(question));
     }
 
     private List<String> fallbackQuestions(String cleaned) {
@@ -544,80 +642,17 @@ public class AgentController {
         return questions;
     }
 
-    private List<String> readQuestions(JsonNode node) {
-        List<String> result = new ArrayList<>();
-        if (node == null || node.isNull()) {
-            return result;
-        }
-        if (node.isArray()) {
-            for (JsonNode item : node) {
-                String text = readText(item);
-                if (text != null) {
-                    result.add(text);
-                }
-            }
-        } else {
-            String text = readText(node);
-            if (text != null) {
-                result.add(text);
-            }
-        }
-        return result;
-    }
-
-    private String readText(JsonNode node) {
-        if (node == null || node.isNull()) {
-            return null;
-        }
-        if (node.isTextual()) {
-            String value = node.asText().trim();
-            return value.isEmpty() ? null : value;
-        }
-        return node.toString();
-    }
-
-    private List<RecommendationItem> parseItems(String response, List<PetCard> pets) {
-        String cleaned = stripCodeFences(response);
+    // Without a validated answer the items fall back to the candidate order in normalizeItems.
+    private List<RecommendationItem> rankedItems(RecommendationPayload payload, List<PetCard> pets) {
         List<RecommendationItem> items = new ArrayList<>();
-        try {
-            JsonNode root = objectMapper.readTree(cleaned);
-            JsonNode itemsNode = root.has("items") ? root.get("items") : root.has("ids") ? root.get("ids") : root;
-            if (itemsNode.isArray()) {
-                for (JsonNode node : itemsNode) {
-                    if (node.isObject()) {
-                        String id = node.has("id") ? node.get("id").asText(null) : null;
-                        Double confidence = readConfidence(node.get("confidence"));
-                        if (id != null) {
-                            items.add(new RecommendationItem(id, confidence));
-                        }
-                    } else if (node.isTextual() || node.isNumber()) {
-                        items.add(new RecommendationItem(node.asText(), null));
-                    }
-                }
+        if (payload != null) {
+            for (RankedItem item : payload.items()) {
+                items.add(new RecommendationItem(item.id(), item.confidence()));
             }
-        } catch (JsonProcessingException ex) {
-            // Ignore parse failures and fall back to defaults.
         }
         return normalizeItems(items, pets);
     }
 
-    private Double readConfidence(JsonNode node) {
-        if (node == null || node.isNull()) {
-            return null;
-        }
-        if (node.isNumber()) {
-            return node.asDouble();
-        }
-        if (node.isTextual()) {
-            try {
-                return Double.parseDouble(node.asText().trim());
-            } catch (NumberFormatException ex) {
-                return null;
-            }
-        }
-        return null;
-    }
-
     private List<String> limitQuestions(List<String> questions) {
         if (questions == null || questions.isEmpty()) {
             return List.of();
@@ -690,21 +725,11 @@ public class AgentController {
         return normalized;
     }
 
-    private String stripCodeFences(String text) {
-        String trimmed = text == null ? "" : text.trim();
-        if (trimmed.startsWith("```")) {
-            int firstNewline = trimmed.indexOf('\n');
-            if (firstNewline > -1) {
-                trimmed = trimmed.substring(firstNewline + 1);
-            }
-            if (trimmed.endsWith("```")) {
-                trimmed = trimmed.substring(0, trimmed.length() - 3);
-            }
-        }
-        return trimmed.trim();
+    private String roleLabel(String role) {
+        return "user".equalsIgnoreCase(normalizeText(role)) ? "user" : "assistant";
     }
 
-    public record EvaluationRequest(List<AgentMessage> messages, String contextPrompt) {
+    public record EvaluationRequest(List<AgentMessage> messages, String contextPrompt, String sessionId, String message) {
     }
 
     public record EvaluationResponse(
@@ -713,7 +738,8 @@ public class AgentController {
         String profile,
         List<String> nextQuestions,
         String prompt,
-        String rawResponse
+        String rawResponse,
+        String sessionId
     ) {
     }
 
@@ -762,6 +788,22 @@ public class AgentController {
     ) {
     }
 
+    private record EvaluationPayload(
+        @JsonProperty(required = true) @JsonPropertyDescription("1 for malicious or inappropriate intent, otherwise 0") Integer ismalicious,
+        @JsonProperty(required = true) Boolean endverification,
+        @JsonPropertyDescription("About 200 Chinese characters summarizing the user, once endverification is true") String profile,
+        @JsonPropertyDescription("Your next message in Chinese while endverification is false") String nextQuestion
+    ) {
+    }
+
+    private record RecommendationPayload(
+        @JsonProperty(required = true) @JsonPropertyDescription("The best 3 pets, best first") List<RankedItem> items
+    ) {
+    }
+
+    private record RankedItem(@JsonProperty(required = true) String id, Double confidence) {
+    }
+
     private record SearchPayload(String text, String source) {
     }
 
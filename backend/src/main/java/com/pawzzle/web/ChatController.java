@@ -4,10 +4,13 @@ import com.pawzzle.infrastructure.ai.MatchingService;
 import com.pawzzle.infrastructure.ai.dto.MatchResult;
 import java.util.concurrent.CompletableFuture;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.Async;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -22,6 +25,16 @@ public class ChatController {
         return matchingService.recommendPets(request.userId(), request.message());
     }
 
+    @GetMapping("/suggestions")
+    public ResponseEntity<MatchResult> suggestions(
+        @RequestParam Long userId,
+        @RequestParam(required = false) String species
+    ) {
+        return matchingService.precomputedMatch(userId, species)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.noContent().build());
+    }
+
     public record ChatRequest(Long userId, String message) {
     }
 }
@@ -7,6 +7,7 @@ import com.pawzzle.domain.chat.ChatThreadRepository;
 import com.pawzzle.domain.order.AdoptionProcess;
 import com.pawzzle.domain.order.AdoptionProcessRepository;
 import com.pawzzle.domain.pet.Pet;
+import com.pawzzle.domain.pet.PetChangedEvent;
 import com.pawzzle.domain.pet.PetRepository;
 import com.pawzzle.domain.user.SessionService;
 import com.pawzzle.domain.user.User;
@@ -14,6 +15,7 @@ import java.time.Instant;
 import java.time.LocalDate;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -34,6 +36,7 @@ public class DirectMessageController {
     private final ChatThreadRepository chatThreadRepository;
     private final ChatMessageRepository chatMessageRepository;
     private final AdoptionProcessRepository adoptionProcessRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @GetMapping
     public List<ChatThreadResponse> listThreads(
@@ -222,6 +225,7 @@ public class DirectMessageController {
 
         pet.setStatus(Pet.Status.ADOPTED);
         petRepository.save(pet);
+        eventPublisher.publishEvent(new PetChangedEvent(pet.getId()));
 
         chatMessageRepository.save(ChatMessage.builder()
             .thread(thread)
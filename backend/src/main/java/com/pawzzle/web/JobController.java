@@ -0,0 +1,34 @@
+package com.pawzzle.web;
+
+import com.pawzzle.domain.user.SessionService;
+import com.pawzzle.domain.user.User;
+import com.pawzzle.infrastructure.jobs.AiJobQueue;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+// Status of queued AI work. A job is QUEUED, RUNNING, SUCCEEDED with its result, or FAILED with the
+// last attempt's error; a job that is QUEUED again after RUNNING is waiting out a retry backoff.
+@RestController
+@RequestMapping("/api/jobs")
+@RequiredArgsConstructor
+public class JobController {
+    private final SessionService sessionService;
+    private final AiJobQueue jobQueue;
+
+    @GetMapping("/{jobId}")
+    public AiJobQueue.JobView jobStatus(
+        @PathVariable UUID jobId,
+        @RequestHeader(value = "Authorization", required = false) String authorization
+    ) {
+        User user = sessionService.requireUser(authorization, null);
+        return jobQueue.status(jobId, user.getId())
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Job not found"));
+    }
+}
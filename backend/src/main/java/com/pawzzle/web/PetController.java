@@ -1,36 +1,56 @@
 package com.pawzzle.web;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pawzzle.domain.pet.Pet;
 import com.pawzzle.domain.pet.PetCardDTO;
+import com.pawzzle.domain.pet.PetChangedEvent;
 import com.pawzzle.domain.pet.PetDTO;
 import com.pawzzle.domain.pet.PetRepository;
 import com.pawzzle.domain.user.SessionService;
 import com.pawzzle.domain.user.User;
+import com.pawzzle.domain.user.UserRepository;
+import com.pawzzle.infrastructure.ai.ClassificationBatcher;
+import com.pawzzle.infrastructure.ai.FanOut;
+import com.pawzzle.infrastructure.ai.LlmJsonParser;
+import com.pawzzle.infrastructure.ai.PetIngestionService;
+import com.pawzzle.infrastructure.ai.PromptAssembler;
+import com.pawzzle.infrastructure.ai.PromptBudget;
+import com.pawzzle.infrastructure.ai.StructuredOutput;
+import com.pawzzle.infrastructure.jobs.AiJobQueue;
+import com.pawzzle.infrastructure.vector.SimilarPetIndex;
+import jakarta.annotation.PostConstruct;
 import jakarta.persistence.EntityNotFoundException;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.Base64;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.ChatResponse;
 import org.springframework.ai.chat.messages.Media;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.ai.openai.OpenAiChatClient;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -40,6 +60,7 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -47,13 +68,28 @@ import org.springframework.web.multipart.MultipartFile;
 @RequestMapping("/api/pets")
 @RequiredArgsConstructor
 public class PetController {
+    private static final Logger log = LoggerFactory.getLogger(PetController.class);
 
     private final PetRepository petRepository;
-    private final OpenAiChatClient chatClient;
-    private final ObjectMapper objectMapper;
+    private final StructuredOutput structuredOutput;
+    private final PromptBudget promptBudget;
+    private final ClassificationBatcher classificationBatcher;
+    private final LlmJsonParser llmJsonParser;
+    private final PromptAssembler promptAssembler;
+    private final PetIngestionService petIngestionService;
+    private final FanOut fanOut;
     private final SessionService sessionService;
+    private final UserRepository userRepository;
+    private final AiJobQueue jobQueue;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SimilarPetIndex similarPetIndex;
+    private final Executor taskExecutor;
     @Value("${pawzzle.upload.dir:uploads}")
     private String uploadDir;
+    // Tags and a vector for every generated pet cost one chat call and one embedding each, so
+    // generation leaves them out unless this is on.
+    @Value("${pawzzle.pets.generate.enrich:false}")
+    private boolean enrichGenerated;
     private static final Set<String> LOCATIONS = Set.of("杭州", "北京", "上海");
     private static final Set<String> ALLOWED_IMAGE_TYPES = Set.of(
         "image/jpeg",
@@ -71,19 +107,13 @@ public class PetController {
         "heif"
     );
     private static final int AI_GENERATED_PET_COUNT = 20;
+    private static final int GENERATE_BATCH_SIZE = 5;
+    private static final long GENERATE_STREAM_TIMEOUT_MS = 180_000;
+    private static final String GENERATE_JOB = "pets.generate";
+    private static final String RECOGNIZE_JOB = "pets.recognize";
     private static final String AI_PET_GENERATION_PROMPT = """
         You generate pet adoption card data for a mobile app.
-        Return ONLY valid JSON with an array of exactly 20 objects.
-        Each object MUST contain these fields:
-        - name: short, unique pet name in Chinese (2-3 characters)
-        - species: "CAT" or "DOG"
-        - breed: use EXACT values from ["英国短毛猫","布偶猫","暹罗猫","柯基","柴犬","迷你贵宾"]
-        - age: integer, 1 to 10
-        - location: use EXACT values from ["杭州","北京","上海"]
-        - personalityTag: one Chinese word, no spaces (e.g. 活泼, 安静, 聪明)
-        - description: 12-30 Chinese characters describing temperament
-
-        Do NOT include id fields, and do NOT wrap in markdown.
+        Generate exactly 20 pets.
         """;
     private static final String AI_PERSONALITY_TAG_PROMPT = """
         You are a creative assistant for a Chinese pet adoption app.
@@ -92,29 +122,44 @@ public class PetController {
         If possible, mix one playful tag with classic traits.
         Examples: 干饭王, 小粘人, 高冷, 温顺, 小太阳.
         Avoid emojis, punctuation, or duplicates. Do NOT include extra text.
-        Return ONLY a JSON array of strings.
         """;
     private static final String AI_PET_RECOGNITION_PROMPT = """
         You are an expert veterinarian and animal breed identifier for a Chinese pet adoption app.
         Analyze the provided image and identify the pet.
-
-        Return ONLY valid JSON with a single object containing these fields:
-        - species: "CAT" or "DOG" (if the animal is clearly neither, use "UNKNOWN")
-        - breed: the breed name in Chinese (use EXACT values from this list when possible:
+        For breed, use EXACT values from this list when possible:
           CAT breeds: "英国短毛猫", "布偶猫", "暹罗猫"
           DOG breeds: "柯基", "柴犬", "迷你贵宾"
-          If the breed is not in the list, provide your best Chinese translation)
-        - breedCn: same as breed (Chinese breed name)
-        - ageGuess: estimated age in years as a string (e.g. "2"), provide your best guess
-        - description: a 15-30 character Chinese description of the pet's appearance and likely temperament
-        - confidence: "high", "medium", or "low" based on image clarity and recognition certainty
-
-        If the image does not contain a recognizable pet, return:
-        {"species":"UNKNOWN","breed":"","breedCn":"","ageGuess":"1","description":"未能从照片中识别到宠物，请重新拍照或手动填写。","confidence":"low"}
+        If the breed is not in the list, provide your best Chinese translation.
 
-        Do NOT wrap in markdown. Return ONLY the JSON object.
+        If the image does not contain a recognizable pet, answer with species "UNKNOWN", empty breed
+        and breedCn, ageGuess "1", confidence "low" and the description
+        "未能从照片中识别到宠物，请重新拍照或手动填写。".
         """;
 
+    @PostConstruct
+    void registerJobs() {
+        jobQueue.register(GENERATE_JOB, JsonNode.class, (payload, ownerId) -> {
+            // Pets are inserted batch by batch as they stream in, so a retry after a partial insert
+            // would generate and save a second set.
+            AtomicInteger saved = new AtomicInteger();
+            try {
+                return generate(jobOwner(ownerId), (event, data) -> {
+                    if ("pet".equals(event)) {
+                        saved.incrementAndGet();
+                    }
+                });
+            } catch (RuntimeException ex) {
+                if (saved.get() == 0) {
+                    throw ex;
+                }
+                String reason = ex instanceof ResponseStatusException status ? status.getReason() : ex.getMessage();
+                throw new AiJobQueue.NotRetryable("Generation failed after saving " + saved.get() + " pet(s): " + reason, ex);
+            }
+        });
+        jobQueue.register(RECOGNIZE_JOB, RecognizeJob.class,
+            (payload, ownerId) -> recognize(Base64.getDecoder().decode(payload.image()), payload.contentType()));
+    }
+
     @GetMapping
     public List<PetCardDTO> listPetCards() {
         return petRepository.findByStatusOrderByIdDesc(Pet.Status.OPEN).stream()
@@ -132,6 +177,7 @@ public class PetController {
         CreatePetPayload payload = validateCreateRequest(request);
         Pet pet = buildPet(payload, owner);
         Pet saved = petRepository.save(pet);
+        eventPublisher.publishEvent(new PetChangedEvent(saved.getId()));
         return PetCardDTO.from(saved);
     }
 
@@ -140,16 +186,40 @@ public class PetController {
         @RequestHeader(value = "Authorization", required = false) String authorization
     ) {
         User owner = sessionService.requireUser(authorization, null);
-        String content = callChat(AI_PET_GENERATION_PROMPT);
-        GenerationResult result = parseAndSaveGeneratedPets(content, owner);
-        return new GeneratePetsResponse(
-            AI_GENERATED_PET_COUNT,
-            result.parsed(),
-            result.created(),
-            result.skipped(),
-            result.skippedReasons(),
-            content == null ? "" : content
-        );
+        return generate(owner, (event, data) -> {
+        });
+    }
+
+    // Same generation as above, run by the job queue; poll GET /api/jobs/{id} for the GeneratePetsResponse.
+    @PostMapping("/generate/jobs")
+    public ResponseEntity<AiJobQueue.JobView> enqueueGeneratePets(
+        @RequestHeader(value = "Authorization", required = false) String authorization
+    ) {
+        User owner = sessionService.requireUser(authorization, null);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(jobQueue.enqueue(GENERATE_JOB, Map.of(), owner.getId()));
+    }
+
+    // Same generation as above, reported as server-sent events while the model is still writing:
+    // "pet" with each created card, "skipped" with each rejected item's reason, then "done" with
+    // the summary, or "error" if generation failed.
+    @PostMapping(value = "/generate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamGeneratedPets(
+        @RequestHeader(value = "Authorization", required = false) String authorization
+    ) {
+        User owner = sessionService.requireUser(authorization, null);
+        SseEmitter emitter = new SseEmitter(GENERATE_STREAM_TIMEOUT_MS);
+        taskExecutor.execute(() -> {
+            try {
+                GeneratePetsResponse response = generate(owner, (event, data) -> send(emitter, event, data));
+                send(emitter, "done", response);
+                emitter.complete();
+            } catch (RuntimeException ex) {
+                log.warn("Streamed pet generation failed: {}", ex.getMessage());
+                send(emitter, "error", ex instanceof ResponseStatusException status ? status.getReason() : "Generation failed");
+                emitter.complete();
+            }
+        });
+        return emitter;
     }
 
     @PostMapping("/personality-tags")
@@ -161,7 +231,7 @@ public class PetController {
         if (text == null) {
             throw badRequest("Text is required");
         }
-        String content = callChat(AI_PERSONALITY_TAG_PROMPT, buildTagPrompt(text));
+        String content = classificationBatcher.submit("tags", personalityTagPrompt(), buildTagPrompt(text)).join();
         List<String> tags = parseTagList(content);
         return new PersonalityTagsResponse(tags);
     }
@@ -198,6 +268,21 @@ public class PetController {
         @RequestHeader(value = "Authorization", required = false) String authorization
     ) {
         sessionService.requireUser(authorization, null);
+        return recognize(readRecognitionImage(file), file.getContentType());
+    }
+
+    // The photo travels in the job payload, not the upload directory, so any node can run the job.
+    @PostMapping(value = "/recognize/jobs", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<AiJobQueue.JobView> enqueueRecognizePet(
+        @RequestParam("file") MultipartFile file,
+        @RequestHeader(value = "Authorization", required = false) String authorization
+    ) {
+        User owner = sessionService.requireUser(authorization, null);
+        RecognizeJob job = new RecognizeJob(file.getContentType(), Base64.getEncoder().encodeToString(readRecognitionImage(file)));
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(jobQueue.enqueue(RECOGNIZE_JOB, job, owner.getId()));
+    }
+
+    private byte[] readRecognitionImage(MultipartFile file) {
         if (file == null || file.isEmpty()) {
             throw badRequest("File is required");
         }
@@ -205,24 +290,27 @@ public class PetController {
         if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("image/")) {
             throw badRequest("Only image files are allowed");
         }
+        try {
+            return file.getBytes();
+        } catch (IOException ex) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to read image file");
+        }
+    }
 
+    private RecognizeResponse recognize(byte[] imageBytes, String contentType) {
         try {
-            byte[] imageBytes = file.getBytes();
             org.springframework.util.MimeType mimeType = MimeTypeUtils.parseMimeType(contentType);
             Media imageMedia = new Media(mimeType, new ByteArrayResource(imageBytes));
             UserMessage userMessage = new UserMessage(
                 "请识别这张照片中的宠物品种、年龄等信息。",
                 List.of(imageMedia)
             );
+            String systemPrompt = structuredOutput.systemPrompt(AI_PET_RECOGNITION_PROMPT, RecognizeResponse.class);
             Prompt prompt = new Prompt(List.of(
-                new SystemMessage(AI_PET_RECOGNITION_PROMPT),
+                new SystemMessage(systemPrompt),
                 userMessage
             ));
-            ChatResponse response = chatClient.call(prompt);
-            String aiContent = response.getResult().getOutput().getContent();
-            return parseRecognizeResponse(aiContent);
-        } catch (IOException ex) {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to read image file");
+            return toRecognizeResponse(structuredOutput.call("recognize", systemPrompt, prompt, RecognizeResponse.class));
         } catch (ResponseStatusException ex) {
             throw ex;
         } catch (Exception ex) {
@@ -230,27 +318,30 @@ public class PetController {
         }
     }
 
-    private RecognizeResponse parseRecognizeResponse(String aiContent) {
-        String cleaned = stripCodeFences(aiContent);
-        try {
-            JsonNode root = objectMapper.readTree(cleaned);
-            String species = readText(root.get("species"));
-            String breed = readText(root.get("breed"));
-            String breedCn = readText(root.get("breedCn"));
-            String ageGuess = readText(root.get("ageGuess"));
-            String description = readText(root.get("description"));
-            String confidence = readText(root.get("confidence"));
-            return new RecognizeResponse(
-                species != null ? species : "UNKNOWN",
-                breed != null ? breed : "",
-                breedCn != null ? breedCn : "",
-                ageGuess != null ? ageGuess : "1",
-                description != null ? description : "未能识别",
-                confidence != null ? confidence : "low"
-            );
-        } catch (JsonProcessingException ex) {
+    private User jobOwner(Long ownerId) {
+        return userRepository.findById(ownerId)
+            .orElseThrow(() -> new IllegalArgumentException("Job owner " + ownerId + " no longer exists"));
+    }
+
+    private RecognizeResponse toRecognizeResponse(StructuredOutput.Result<RecognizeResponse> answer) {
+        RecognizeResponse parsed = answer.value();
+        if (parsed == null) {
             throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "AI response parse failed");
         }
+        String species = normalize(parsed.species());
+        String breed = normalize(parsed.breed());
+        String breedCn = normalize(parsed.breedCn());
+        String ageGuess = normalize(parsed.ageGuess());
+        String description = normalize(parsed.description());
+        String confidence = normalize(parsed.confidence());
+        return new RecognizeResponse(
+            species != null ? species : "UNKNOWN",
+            breed != null ? breed : "",
+            breedCn != null ? breedCn : "",
+            ageGuess != null ? ageGuess : "1",
+            description != null ? description : "未能识别",
+            confidence != null ? confidence : "low"
+        );
     }
 
     @GetMapping("/{id}")
@@ -281,6 +372,16 @@ public class PetController {
                 .build();
     }
 
+    @GetMapping("/{id}/similar")
+    public List<PetCardDTO> getSimilarPets(
+        @PathVariable Long id,
+        @RequestParam(defaultValue = "6") int limit
+    ) {
+        return similarPetIndex.similar(id, Math.max(1, Math.min(limit, 24))).stream()
+            .map(PetCardDTO::from)
+            .toList();
+    }
+
     private CreatePetPayload validateCreateRequest(CreatePetRequest request) {
         if (request == null) {
             throw badRequest("Missing request body");
@@ -431,63 +532,94 @@ public class PetController {
     }
 
     private String buildTagPrompt(String text) {
+        int budget = promptBudget.remaining("tags", personalityTagPrompt(), "Description: ");
         return """
             Description: %s
-            """.formatted(text);
+            """.formatted(promptBudget.truncate(text, budget));
+    }
+
+    private String personalityTagPrompt() {
+        return structuredOutput.systemPrompt(AI_PERSONALITY_TAG_PROMPT, PersonalityTagsResponse.class);
+    }
+
+    // Items are handled as the streamed array closes each one; if the stream never formed a complete
+    // JSON value, whatever items the full text still yields are picked up after the ones already seen.
+    private GeneratePetsResponse generate(User owner, BiConsumer<String, Object> events) {
+        String systemPrompt = structuredOutput.systemPrompt(AI_PET_GENERATION_PROMPT, GeneratedPets.class);
+        GeneratedPetBatch batch = new GeneratedPetBatch(owner, events);
+        LlmJsonParser.ChunkReader<GeneratedPet> reader =
+            llmJsonParser.chunkReader(GeneratedPet.class, null, batch::accept, "items");
+        ChatResponse response = promptAssembler.stream("generate",
+            promptAssembler.assemble(systemPrompt, null, "Generate now."), reader::feed);
+        String content = response.getResult().getOutput().getContent();
+        if (!reader.finish()) {
+            List<GeneratedPet> items = llmJsonParser.readArray(content, GeneratedPet.class, null, "items").orElse(List.of());
+            if (items.isEmpty() && reader.elements() == 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "AI response is not an array");
+            }
+            items.stream().skip(reader.elements()).forEach(batch::accept);
+        }
+        batch.flush();
+        return new GeneratePetsResponse(
+            AI_GENERATED_PET_COUNT,
+            batch.parsed,
+            batch.created,
+            batch.parsed - batch.created,
+            limitReasons(batch.skippedReasons, 20),
+            batch.enrichmentErrors,
+            content
+        );
     }
 
-    private String callChat(String systemPrompt) {
-        Prompt prompt = new Prompt(List.of(
-            new SystemMessage(systemPrompt),
-            new UserMessage("Generate now.")
-        ));
-        ChatResponse response = chatClient.call(prompt);
-        return response.getResult().getOutput().getContent();
+    private void send(SseEmitter emitter, String event, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data));
+        } catch (IOException | IllegalStateException ex) {
+            // The client left; generation carries on and its pets are still saved.
+            log.debug("Dropped {} event: {}", event, ex.getMessage());
+        }
     }
 
-    private String callChat(String systemPrompt, String userPrompt) {
-        Prompt prompt = new Prompt(List.of(
-            new SystemMessage(systemPrompt),
-            new UserMessage(userPrompt)
-        ));
-        ChatResponse response = chatClient.call(prompt);
-        return response.getResult().getOutput().getContent();
-    }
+    // Valid items wait here until GENERATE_BATCH_SIZE have arrived; each batch then costs one name
+    // lookup, one parallel enrichment when enrichGenerated is on, and one batched insert. A pet whose
+    // enrichment fails is still saved, just without tags and vector. Used only on the thread consuming the stream.
+    private final class GeneratedPetBatch {
+        private final User owner;
+        private final BiConsumer<String, Object> events;
+        private final List<Pet> pending = new java.util.ArrayList<>();
+        private final Set<String> names = new java.util.HashSet<>();
+        private final List<String> skippedReasons = new java.util.ArrayList<>();
+        private final List<String> enrichmentErrors = new java.util.ArrayList<>();
+        private int parsed;
+        private int created;
 
-    private GenerationResult parseAndSaveGeneratedPets(String response, User owner) {
-        String cleaned = stripCodeFences(response);
-        JsonNode root;
-        try {
-            root = objectMapper.readTree(cleaned);
-        } catch (JsonProcessingException ex) {
-            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "AI JSON parse failed");
-        }
-        JsonNode itemsNode = root.isArray() ? root : root.has("items") ? root.get("items") : root;
-        if (!itemsNode.isArray()) {
-            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "AI response is not an array");
+        private GeneratedPetBatch(User owner, BiConsumer<String, Object> events) {
+            this.owner = owner;
+            this.events = events;
         }
-        int parsed = 0;
-        int created = 0;
-        List<String> skippedReasons = new java.util.ArrayList<>();
 
-        for (JsonNode item : itemsNode) {
+        void accept(GeneratedPet item) {
             parsed += 1;
-            String name = normalize(readText(item.get("name")));
-            String species = normalize(readText(item.get("species")));
-            String breed = normalize(readText(item.get("breed")));
-            Integer age = readInt(item.get("age"));
-            String location = normalize(readText(item.get("location")));
-            String personalityTag = normalize(readText(item.get("personalityTag")));
-            String description = normalize(readText(item.get("description")));
+            if (item == null) {
+                skip("missing-fields:" + safeName(null));
+                return;
+            }
+            String name = normalize(item.name());
+            String species = normalize(item.species());
+            String breed = normalize(item.breed());
+            Integer age = parseAge(item.age());
+            String location = normalize(item.location());
+            String personalityTag = normalize(item.personalityTag());
+            String description = normalize(item.description());
 
             if (name == null || species == null || breed == null || age == null || location == null
                 || personalityTag == null) {
-                skippedReasons.add("missing-fields:" + safeName(name));
-                continue;
+                skip("missing-fields:" + safeName(name));
+                return;
             }
-            if (petRepository.existsByName(name)) {
-                skippedReasons.add("duplicate-name:" + name);
-                continue;
+            if (!names.add(name)) {
+                skip("duplicate-name:" + name);
+                return;
             }
 
             CreatePetRequest request = new CreatePetRequest(
@@ -502,36 +634,68 @@ public class PetController {
                 null
             );
             try {
-                CreatePetPayload payload = validateCreateRequest(request);
-                Pet saved = petRepository.save(buildPet(payload, owner));
-                if (saved.getId() != null) {
-                    created += 1;
-                }
+                pending.add(buildPet(validateCreateRequest(request), owner));
             } catch (ResponseStatusException ex) {
-                skippedReasons.add("invalid:" + name + ":" + ex.getReason());
+                skip("invalid:" + name + ":" + ex.getReason());
+                return;
+            }
+            if (pending.size() >= GENERATE_BATCH_SIZE) {
+                flush();
             }
         }
 
-        int skipped = parsed - created;
-        return new GenerationResult(parsed, created, skipped, limitReasons(skippedReasons, 20));
-    }
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            Set<String> existing = new java.util.HashSet<>(
+                petRepository.findExistingNames(pending.stream().map(Pet::getName).toList()));
+            List<Pet> pets = new java.util.ArrayList<>();
+            for (Pet pet : pending) {
+                if (existing.contains(pet.getName())) {
+                    skip("duplicate-name:" + pet.getName());
+                } else {
+                    pets.add(pet);
+                }
+            }
+            pending.clear();
+
+            List<Pet> described = enrichGenerated
+                ? pets.stream().filter(pet -> pet.getRawDescription() != null).toList()
+                : List.of();
+            List<FanOut.Outcome<Pet, PetIngestionService.Profile>> outcomes = fanOut.map("generate", described,
+                pet -> petIngestionService.profile(pet.getName(), pet.getRawDescription(), pet.getSpecies().name()));
+            for (FanOut.Outcome<Pet, PetIngestionService.Profile> outcome : outcomes) {
+                if (outcome.ok()) {
+                    outcome.item().setStructuredTags(outcome.value().tags());
+                    outcome.item().setPersonalityVector(outcome.value().vector());
+                    outcome.item().setEnrichmentFingerprint(outcome.value().fingerprint());
+                } else {
+                    enrichmentErrors.add(outcome.item().getName() + ":" + outcome.error());
+                }
+            }
 
-    private List<String> parseTagList(String response) {
-        String cleaned = stripCodeFences(response);
-        JsonNode root;
-        try {
-            root = objectMapper.readTree(cleaned);
-        } catch (JsonProcessingException ex) {
-            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "AI JSON parse failed");
+            for (Pet saved : petRepository.insertAll(pets)) {
+                created += 1;
+                eventPublisher.publishEvent(new PetChangedEvent(saved.getId()));
+                events.accept("pet", PetCardDTO.from(saved));
+            }
         }
-        JsonNode tagsNode = root.isArray() ? root : root.has("tags") ? root.get("tags") : null;
-        if (tagsNode == null || !tagsNode.isArray()) {
-            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "AI response is not an array");
+
+        private void skip(String reason) {
+            skippedReasons.add(reason);
+            events.accept("skipped", reason);
         }
+    }
+
+    private List<String> parseTagList(String response) {
+        List<String> tags = structuredOutput.parse(response, PersonalityTagsResponse.class)
+            .map(PersonalityTagsResponse::tags)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_GATEWAY, "AI response has no tags"));
 
         java.util.LinkedHashSet<String> deduped = new java.util.LinkedHashSet<>();
-        for (JsonNode item : tagsNode) {
-            String normalized = normalizeTag(readText(item));
+        for (String item : tags) {
+            String normalized = normalizeTag(item);
             if (normalized == null || containsWhitespace(normalized)) {
                 continue;
             }
@@ -575,52 +739,16 @@ public class PetController {
         return name == null ? "unknown" : name;
     }
 
-    private String readText(JsonNode node) {
-        if (node == null || node.isNull()) {
+    private Integer parseAge(String value) {
+        String normalized = normalize(value);
+        if (normalized == null) {
             return null;
         }
-        if (node.isTextual()) {
-            String value = node.asText().trim();
-            return value.isEmpty() ? null : value;
-        }
-        if (node.isNumber() || node.isBoolean()) {
-            return node.asText();
-        }
-        return node.toString();
-    }
-
-    private Integer readInt(JsonNode node) {
-        if (node == null || node.isNull()) {
+        try {
+            return (int) Math.round(Double.parseDouble(normalized));
+        } catch (NumberFormatException ex) {
             return null;
         }
-        if (node.isInt() || node.isLong()) {
-            return node.asInt();
-        }
-        if (node.isNumber()) {
-            return (int) Math.round(node.asDouble());
-        }
-        if (node.isTextual()) {
-            try {
-                return Integer.parseInt(node.asText().trim());
-            } catch (NumberFormatException ex) {
-                return null;
-            }
-        }
-        return null;
-    }
-
-    private String stripCodeFences(String text) {
-        String trimmed = text == null ? "" : text.trim();
-        if (trimmed.startsWith("```")) {
-            int firstNewline = trimmed.indexOf('\n');
-            if (firstNewline > -1) {
-                trimmed = trimmed.substring(firstNewline + 1);
-            }
-            if (trimmed.endsWith("```")) {
-                trimmed = trimmed.substring(0, trimmed.length() - 3);
-            }
-        }
-        return trimmed.trim();
     }
 
     private ResponseStatusException badRequest(String message) {
@@ -643,7 +771,9 @@ public class PetController {
     public record PersonalityTagsRequest(String text) {
     }
 
-    public record PersonalityTagsResponse(List<String> tags) {
+    public record PersonalityTagsResponse(
+        @JsonProperty(required = true) @JsonPropertyDescription("3-4 tags") List<String> tags
+    ) {
     }
 
     public record GeneratePetsResponse(
@@ -652,6 +782,7 @@ public class PetController {
         int created,
         int skipped,
         List<String> skippedReasons,
+        List<String> enrichmentErrors,
         String rawResponse
     ) {
     }
@@ -660,12 +791,12 @@ public class PetController {
     }
 
     public record RecognizeResponse(
-        String species,
-        String breed,
-        String breedCn,
-        String ageGuess,
-        String description,
-        String confidence
+        @JsonProperty(required = true) @JsonPropertyDescription("CAT or DOG; UNKNOWN if the animal is clearly neither") String species,
+        @JsonProperty(required = true) @JsonPropertyDescription("Breed name in Chinese") String breed,
+        @JsonProperty(required = true) @JsonPropertyDescription("Same as breed") String breedCn,
+        @JsonProperty(required = true) @JsonPropertyDescription("Estimated age in years, e.g. \"2\"") String ageGuess,
+        @JsonProperty(required = true) @JsonPropertyDescription("15-30 Chinese characters on the pet's appearance and likely temperament") String description,
+        @JsonProperty(required = true) @JsonPropertyDescription("high, medium or low, from image clarity and recognition certainty") String confidence
     ) {
     }
 
@@ -684,6 +815,23 @@ public class PetController {
     ) {
     }
 
-    private record GenerationResult(int parsed, int created, int skipped, List<String> skippedReasons) {
+    // The image is base64 so the payload stays plain JSON in ai_jobs.
+    private record RecognizeJob(String contentType, String image) {
     }
+
+    private record GeneratedPets(@JsonProperty(required = true) List<GeneratedPet> items) {
+    }
+
+    // Age stays a string so a "3岁" from an unconstrained answer still binds; parseAge reads it.
+    private record GeneratedPet(
+        @JsonProperty(required = true) @JsonPropertyDescription("Short, unique pet name in Chinese (2-3 characters)") String name,
+        @JsonProperty(required = true) @JsonPropertyDescription("CAT or DOG") String species,
+        @JsonProperty(required = true) @JsonPropertyDescription("Exactly one of 英国短毛猫, 布偶猫, 暹罗猫, 柯基, 柴犬, 迷你贵宾") String breed,
+        @JsonProperty(required = true) @JsonPropertyDescription("Age in years, 1 to 10") String age,
+        @JsonProperty(required = true) @JsonPropertyDescription("Exactly one of 杭州, 北京, 上海") String location,
+        @JsonProperty(required = true) @JsonPropertyDescription("One Chinese word, no spaces (e.g. 活泼, 安静, 聪明)") String personalityTag,
+        @JsonProperty(required = true) @JsonPropertyDescription("12-30 Chinese characters describing temperament") String description
+    ) {
+    }
+
 }
@@ -0,0 +1,59 @@
+package com.pawzzle.web;
+
+import com.pawzzle.domain.user.SessionService;
+import com.pawzzle.domain.user.User;
+import com.pawzzle.infrastructure.ai.BulkPetIngestionService;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+// Bulk pet import. The request body is read straight off the socket, one JSON object per line for
+// application/x-ndjson or a header row plus records for text/csv, and never held in memory whole.
+@RestController
+@RequestMapping("/api/pets/import")
+@RequiredArgsConstructor
+public class PetImportController {
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final SessionService sessionService;
+    private final BulkPetIngestionService bulkPetIngestionService;
+
+    @PostMapping(consumes = {NDJSON, "application/jsonl", "text/csv"})
+    public ResponseEntity<BulkPetIngestionService.JobView> importPets(
+        @RequestHeader(value = "Authorization", required = false) String authorization,
+        HttpServletRequest request
+    ) throws IOException {
+        User owner = sessionService.requireUser(authorization, null);
+        MediaType contentType = MediaType.parseMediaType(request.getContentType());
+        BulkPetIngestionService.Format format = MediaType.parseMediaType("text/csv").isCompatibleWith(contentType)
+            ? BulkPetIngestionService.Format.CSV
+            : BulkPetIngestionService.Format.JSONL;
+        Charset charset = contentType.getCharset() == null ? StandardCharsets.UTF_8 : contentType.getCharset();
+        BulkPetIngestionService.JobView job = bulkPetIngestionService.start(
+            new InputStreamReader(request.getInputStream(), charset), format, owner);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    @GetMapping("/{jobId}")
+    public BulkPetIngestionService.JobView importStatus(
+        @PathVariable String jobId,
+        @RequestHeader(value = "Authorization", required = false) String authorization
+    ) {
+        User owner = sessionService.requireUser(authorization, null);
+        return bulkPetIngestionService.status(jobId, owner.getId())
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Import job not found"));
+    }
+}
@@ -1,10 +1,24 @@
 package com.pawzzle.web;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.pawzzle.domain.pet.Pet;
+import com.pawzzle.domain.pet.PetChangedEvent;
+import com.pawzzle.domain.pet.PetRepository;
+import com.pawzzle.domain.user.SessionService;
+import com.pawzzle.domain.user.User;
+import com.pawzzle.infrastructure.ai.FanOut;
 import com.pawzzle.infrastructure.ai.PetIngestionService;
+import com.pawzzle.infrastructure.jobs.AiJobQueue;
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -12,41 +26,89 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/seed")
 @RequiredArgsConstructor
 public class SeedController {
+    private static final String SEED_JOB = "pets.seed";
+    private static final List<SeedPet> SEED_PETS = List.of(
+        new SeedPet(
+            "糯米",
+            "2岁安静的虎斑猫，喜欢晒太阳、轻柔玩耍和安静的依偎。",
+            "CAT"
+        ),
+        new SeedPet(
+            "露娜",
+            "活泼好动的燕尾服猫，喜欢互动玩具、攀爬和认识新朋友。",
+            "CAT"
+        ),
+        new SeedPet(
+            "榛子",
+            "害羞但充满爱的救助猫，零食和慢慢接触能让她敞开心扉。",
+            "CAT"
+        ),
+        new SeedPet(
+            "巴迪",
+            "友善的金毛混血，喜欢长距离散步、温柔玩耍和陪伴小朋友。",
+            "DOG"
+        ),
+        new SeedPet(
+            "小瑞",
+            "聪明的迷你贵宾，精力适中，喜欢益智玩具和短时训练。",
+            "DOG"
+        ),
+        new SeedPet(
+            "枫枫",
+            "性格温和的比格犬，喜欢沙发上打盹、慢悠悠嗅闻散步和规律生活。",
+            "DOG"
+        )
+    );
+
     private final PetIngestionService petIngestionService;
+    private final PetRepository petRepository;
+    private final FanOut fanOut;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AiJobQueue jobQueue;
+    private final SessionService sessionService;
+
+    @PostConstruct
+    void registerJobs() {
+        jobQueue.register(SEED_JOB, JsonNode.class, (payload, ownerId) -> seedPets());
+    }
 
+    // Pets are enriched in parallel and saved together; ones whose enrichment failed are reported
+    // by name instead of failing the whole seed. Re-seeding leaves unchanged pets alone.
     @PostMapping
-    public List<Pet> seedPets() {
-        return List.of(
-            petIngestionService.processNewPet(
-                "糯米",
-                "2岁安静的虎斑猫，喜欢晒太阳、轻柔玩耍和安静的依偎。",
-                "CAT"
-            ),
-            petIngestionService.processNewPet(
-                "露娜",
-                "活泼好动的燕尾服猫，喜欢互动玩具、攀爬和认识新朋友。",
-                "CAT"
-            ),
-            petIngestionService.processNewPet(
-                "榛子",
-                "害羞但充满爱的救助猫，零食和慢慢接触能让她敞开心扉。",
-                "CAT"
-            ),
-            petIngestionService.processNewPet(
-                "巴迪",
-                "友善的金毛混血，喜欢长距离散步、温柔玩耍和陪伴小朋友。",
-                "DOG"
-            ),
-            petIngestionService.processNewPet(
-                "小瑞",
-                "聪明的迷你贵宾，精力适中，喜欢益智玩具和短时训练。",
-                "DOG"
-            ),
-            petIngestionService.processNewPet(
-                "枫枫",
-                "性格温和的比格犬，喜欢沙发上打盹、慢悠悠嗅闻散步和规律生活。",
-                "DOG"
-            )
-        );
+    public SeedResponse seedPets() {
+        List<FanOut.Outcome<SeedPet, PetIngestionService.PreparedPet>> outcomes = fanOut.map("seed", SEED_PETS,
+            seed -> petIngestionService.preparePet(seed.name(), seed.description(), seed.species(), null));
+        List<Pet> pets = new ArrayList<>();
+        List<Pet> changed = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        for (FanOut.Outcome<SeedPet, PetIngestionService.PreparedPet> outcome : outcomes) {
+            if (!outcome.ok()) {
+                errors.add(outcome.item().name() + ": " + outcome.error());
+            } else if (outcome.value().changed()) {
+                changed.add(outcome.value().pet());
+            } else {
+                pets.add(outcome.value().pet());
+            }
+        }
+        List<Pet> saved = petRepository.saveAll(changed);
+        saved.forEach(pet -> eventPublisher.publishEvent(new PetChangedEvent(pet.getId())));
+        pets.addAll(saved);
+        return new SeedResponse(pets, pets.size() - saved.size(), errors);
+    }
+
+    // Seeding as a queued job; the SeedResponse shows up as the job result at GET /api/jobs/{id}.
+    @PostMapping("/jobs")
+    public ResponseEntity<AiJobQueue.JobView> enqueueSeedPets(
+        @RequestHeader(value = "Authorization", required = false) String authorization
+    ) {
+        User user = sessionService.requireUser(authorization, null);
+        AiJobQueue.JobView job = jobQueue.enqueue(SEED_JOB, Map.of(), user.getId());
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    public record SeedResponse(List<Pet> pets, int unchanged, List<String> errors) {
+    }
+
+    private record SeedPet(String name, String description, String species) {
     }
 }
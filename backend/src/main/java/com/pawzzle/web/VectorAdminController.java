@@ -0,0 +1,60 @@
+package com.pawzzle.web;
+
+import com.pawzzle.domain.user.SessionService;
+import com.pawzzle.infrastructure.vector.UserPetTopKJob;
+import com.pawzzle.infrastructure.vector.VectorRecallEvaluator;
+import com.pawzzle.infrastructure.vector.VectorRecallEvaluator.RecallReport;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin/vector")
+@RequiredArgsConstructor
+public class VectorAdminController {
+    private static final int MAX_RECALL_SAMPLES = 500;
+    private static final int MAX_RECALL_K = 200;
+
+    private final SessionService sessionService;
+    private final VectorRecallEvaluator vectorRecallEvaluator;
+    private final UserPetTopKJob userPetTopKJob;
+
+    // Each sample runs four neighbour queries, two of them full scans, so both knobs are capped.
+    @GetMapping("/recall")
+    public RecallReport evaluateRecall(
+        @RequestParam(defaultValue = "50") int samples,
+        @RequestParam(defaultValue = "10") int k,
+        @RequestHeader(value = "Authorization", required = false) String authorization
+    ) {
+        sessionService.requireAdmin(authorization);
+        return vectorRecallEvaluator.evaluate(
+            Math.max(1, Math.min(samples, MAX_RECALL_SAMPLES)),
+            Math.max(1, Math.min(k, MAX_RECALL_K))
+        );
+    }
+
+    // A full precompute scores every user against every pet, so it runs on the task executor;
+    // poll GET /precompute for the report of the last finished run.
+    @PostMapping("/precompute")
+    public ResponseEntity<UserPetTopKJob.Status> precompute(
+        @RequestHeader(value = "Authorization", required = false) String authorization
+    ) {
+        sessionService.requireAdmin(authorization);
+        userPetTopKJob.startFull();
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(userPetTopKJob.status());
+    }
+
+    @GetMapping("/precompute")
+    public UserPetTopKJob.Status precomputeStatus(
+        @RequestHeader(value = "Authorization", required = false) String authorization
+    ) {
+        sessionService.requireAdmin(authorization);
+        return userPetTopKJob.status();
+    }
+}
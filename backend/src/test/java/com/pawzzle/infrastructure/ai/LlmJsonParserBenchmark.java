@@ -0,0 +1,134 @@
+package com.pawzzle.infrastructure.ai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntSupplier;
+
+// Compares LlmJsonParser with the strip-fences-then-readTree approach it replaced, on output shaped
+// like the generate and evaluate responses. Run the main method directly; it is not part of the test
+// suite. Also reports how early the first element is available when the output arrives in chunks.
+public class LlmJsonParserBenchmark {
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 100_000;
+    private static final int CHUNK_SIZE = 8;
+
+    public static void main(String[] args) {
+        ObjectMapper objectMapper = new ObjectMapper();
+        LlmJsonParser parser = new LlmJsonParser(objectMapper);
+        String generated = generatedPets(10);
+        String evaluation = """
+            ```json
+            {"ismalicious": 0, "endverification": false, "nextQuestions": ["平时下班后你一般怎么放松呀？"]}
+            ```""";
+
+        report("generate, readTree", () -> treeItems(objectMapper, generated));
+        report("generate, LlmJsonParser", () -> parser.readArray(generated, Pet.class, null, "items").orElseThrow().size());
+        report("evaluate, readTree", () -> treeQuestion(objectMapper, evaluation));
+        report("evaluate, LlmJsonParser", () -> parser.read(evaluation, Evaluation.class).orElseThrow().nextQuestions().size());
+
+        List<String> chunks = chunks(generated);
+        int[] firstAt = {-1};
+        int[] fed = {0};
+        LlmJsonParser.ChunkReader<Pet> reader = parser.chunkReader(Pet.class, null, pet -> {
+            if (firstAt[0] < 0) {
+                firstAt[0] = fed[0];
+            }
+        }, "items");
+        for (String chunk : chunks) {
+            fed[0]++;
+            reader.feed(chunk);
+        }
+        boolean complete = reader.finish();
+        System.out.printf(Locale.ROOT, "streamed: %d elements, first after chunk %d of %d, complete=%s%n",
+            reader.elements(), firstAt[0], chunks.size(), complete);
+        report("generate, chunked", () -> {
+            LlmJsonParser.ChunkReader<Pet> r = parser.chunkReader(Pet.class, null, pet -> {
+            }, "items");
+            chunks.forEach(r::feed);
+            r.finish();
+            return r.elements();
+        });
+    }
+
+    private static void report(String name, IntSupplier run) {
+        int sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += run.getAsInt();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += run.getAsInt();
+        }
+        double micros = (System.nanoTime() - start) / 1_000.0 / ITERATIONS;
+        System.out.printf(Locale.ROOT, "%-26s %8.2f us/op (%d)%n", name, micros, sink);
+    }
+
+    // The approach the controllers used before: strip the fence, build a tree, then walk it.
+    private static int treeItems(ObjectMapper objectMapper, String output) {
+        try {
+            JsonNode root = objectMapper.readTree(stripCodeFences(output));
+            JsonNode items = root.isArray() ? root : root.get("items");
+            int count = 0;
+            for (JsonNode item : items) {
+                if (item.path("name").asText(null) != null && item.path("age").asInt() > 0) {
+                    count++;
+                }
+            }
+            return count;
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static int treeQuestion(ObjectMapper objectMapper, String output) {
+        try {
+            JsonNode root = objectMapper.readTree(stripCodeFences(output));
+            return root.path("nextQuestions").size();
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String stripCodeFences(String text) {
+        String trimmed = text.trim();
+        if (trimmed.startsWith("```")) {
+            int firstNewline = trimmed.indexOf('\n');
+            if (firstNewline > -1) {
+                trimmed = trimmed.substring(firstNewline + 1);
+            }
+            if (trimmed.endsWith("```")) {
+                trimmed = trimmed.substring(0, trimmed.length() - 3);
+            }
+        }
+        return trimmed.trim();
+    }
+
+    private static String generatedPets(int count) {
+        StringBuilder json = new StringBuilder("```json\n{\"items\": [\n");
+        for (int i = 0; i < count; i++) {
+            json.append(i == 0 ? "" : ",\n").append("""
+                {"name": "豆豆%d", "species": "%s", "breed": "中华田园犬", "age": %d, "location": "杭州",
+                 "personalityTag": "活泼", "description": "喜欢在草地上奔跑，见到人就摇尾巴，适合有院子的家庭。"}"""
+                .formatted(i, i % 2 == 0 ? "DOG" : "CAT", i % 7 + 1));
+        }
+        return json.append("\n]}\n```").toString();
+    }
+
+    private static List<String> chunks(String text) {
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < text.length(); i += CHUNK_SIZE) {
+            chunks.add(text.substring(i, Math.min(text.length(), i + CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+
+    private record Pet(String name, String species, String breed, Integer age, String location,
+                       String personalityTag, String description) {
+    }
+
+    private record Evaluation(Integer ismalicious, Boolean endverification, List<String> nextQuestions) {
+    }
+}
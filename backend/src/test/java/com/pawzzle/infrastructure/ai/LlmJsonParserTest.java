@@ -0,0 +1,170 @@
+package com.pawzzle.infrastructure.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+class LlmJsonParserTest {
+    private final LlmJsonParser parser = new LlmJsonParser(new ObjectMapper());
+
+    @Test
+    void readsFencedAnswer() {
+        String output = """
+            ```json
+            {"name": "Mochi", "age": 2}
+            ```""";
+
+        assertThat(parser.read(output, Pet.class)).contains(new Pet("Mochi", 2));
+    }
+
+    @Test
+    void readsAnswerAfterLeadingProse() {
+        String output = "Sure! Here is the pet you asked for: {\"name\": \"Mochi\", \"age\": 2} Hope it helps.";
+
+        assertThat(parser.read(output, Pet.class)).contains(new Pet("Mochi", 2));
+    }
+
+    @Test
+    void readArrayAcceptsTopLevelArrayOrItemsField() {
+        String array = "[{\"name\": \"Mochi\", \"age\": 2}, {\"name\": \"Bean\", \"age\": 5},]";
+        String wrapped = "{\"note\": \"two pets\", \"items\": " + array + "}";
+
+        assertThat(parser.readArray(array, Pet.class, null, "items").orElseThrow())
+            .containsExactly(new Pet("Mochi", 2), new Pet("Bean", 5));
+        assertThat(parser.readArray(wrapped, Pet.class, null, "items").orElseThrow())
+            .containsExactly(new Pet("Mochi", 2), new Pet("Bean", 5));
+        assertThat(parser.readArray("{\"others\": [1, 2]}", Pet.class, null, "items")).isEmpty();
+    }
+
+    @Test
+    void chunkReaderSurvivesEveryChunkBoundary() {
+        // Multi-byte characters, an escaped quote, braces inside a string and an astral emoji, so
+        // some chunk sizes split strings, escapes and surrogate pairs.
+        String output = """
+            ```json
+            {"items": [
+              {"name": "团子 \\"Mochi\\" {cat}", "age": 2},
+              {"name": "Bean 🐶🐾", "age": 5}
+            ]}
+            ```""";
+        List<Pet> expected = List.of(new Pet("团子 \"Mochi\" {cat}", 2), new Pet("Bean 🐶🐾", 5));
+
+        for (int size = 1; size <= output.length(); size++) {
+            Streamed<Pet> streamed = stream(output, size, Pet.class, null);
+
+            assertThat(streamed.complete()).isTrue();
+            assertThat(streamed.elements()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void chunkReaderSkipsLeadingProse() {
+        String output = "Here you go:\n\n{\"items\": [{\"name\": \"Mochi\", \"age\": 2}]}\nAnything else?";
+
+        for (int size = 1; size <= output.length(); size++) {
+            Streamed<Pet> streamed = stream(output, size, Pet.class, null);
+
+            assertThat(streamed.complete()).isTrue();
+            assertThat(streamed.elements()).containsExactly(new Pet("Mochi", 2));
+        }
+    }
+
+    @Test
+    void chunkReaderReadsTopLevelArray() {
+        Streamed<Pet> streamed = stream("[{\"name\": \"Mochi\", \"age\": 2}, {\"name\": \"Bean\", \"age\": 5}]", 7, Pet.class, null);
+
+        assertThat(streamed.complete()).isTrue();
+        assertThat(streamed.elements()).containsExactly(new Pet("Mochi", 2), new Pet("Bean", 5));
+    }
+
+    @Test
+    void chunkReaderOnlyUsesArraysUnderTheGivenFields() {
+        String output = "{\"tags\": [{\"name\": \"ignored\", \"age\": 1}], \"items\": [{\"name\": \"Mochi\", \"age\": 2}]}";
+
+        Streamed<Pet> streamed = stream(output, 5, Pet.class, null);
+
+        assertThat(streamed.complete()).isTrue();
+        assertThat(streamed.elements()).containsExactly(new Pet("Mochi", 2));
+    }
+
+    @Test
+    void chunkReaderPassesScalarsThroughFromScalar() {
+        Streamed<String> streamed = stream("{\"items\": [\"cat\", null, \"dog\"]}", 3, String.class, String::toUpperCase);
+
+        assertThat(streamed.complete()).isTrue();
+        assertThat(streamed.elements()).containsExactly("CAT", null, "DOG");
+    }
+
+    @Test
+    void chunkReaderEmitsNullForElementsThatDoNotBind() {
+        String output = "[{\"name\": \"Mochi\", \"age\": 2}, {\"name\": \"Bean\", \"age\": \"old\"}, {\"name\": \"Tofu\", \"age\": 1}]";
+
+        for (int size = 1; size <= output.length(); size++) {
+            Streamed<Pet> streamed = stream(output, size, Pet.class, null);
+
+            assertThat(streamed.complete()).isTrue();
+            assertThat(streamed.elements()).containsExactly(new Pet("Mochi", 2), null, new Pet("Tofu", 1));
+        }
+    }
+
+    @Test
+    void chunkReaderKeepsElementsBeforeAnUnterminatedEnd() {
+        String output = "{\"items\": [{\"name\": \"Mochi\", \"age\": 2}, {\"name\": \"Be";
+
+        Streamed<Pet> streamed = stream(output, 4, Pet.class, null);
+
+        assertThat(streamed.complete()).isFalse();
+        assertThat(streamed.elements()).containsExactly(new Pet("Mochi", 2));
+    }
+
+    @Test
+    void chunkReaderStopsOnMalformedInput() {
+        String output = "{\"items\": [{\"name\": \"Mochi\", \"age\": 2}, {\"name\" \"Bean\"}, {\"name\": \"Tofu\", \"age\": 1}]}";
+
+        Streamed<Pet> streamed = stream(output, 6, Pet.class, null);
+
+        assertThat(streamed.complete()).isFalse();
+        assertThat(streamed.elements()).containsExactly(new Pet("Mochi", 2));
+    }
+
+    @Test
+    void chunkReaderWithoutJsonIsIncomplete() {
+        Streamed<Pet> streamed = stream("I could not come up with any pets today.", 5, Pet.class, null);
+
+        assertThat(streamed.complete()).isFalse();
+        assertThat(streamed.elements()).isEmpty();
+    }
+
+    @Test
+    void chunkReaderReportsTopLevelScalarFields() {
+        List<String> fields = new ArrayList<>();
+        LlmJsonParser.ChunkReader<Pet> reader = parser.chunkReader(Pet.class, null, pet -> {
+        }, "items").onField((name, value) -> fields.add(name + "=" + value));
+
+        reader.feed("{\"summary\": \"two pets\", \"count\": 2, \"items\": [], \"note\": null}");
+
+        assertThat(reader.finish()).isTrue();
+        assertThat(fields).containsExactly("summary=two pets", "count=2", "note=null");
+    }
+
+    private <T> Streamed<T> stream(String output, int chunkSize, Class<T> type, Function<String, T> fromScalar) {
+        List<T> elements = new ArrayList<>();
+        LlmJsonParser.ChunkReader<T> reader = parser.chunkReader(type, fromScalar, elements::add, "items");
+        for (int start = 0; start < output.length(); start += chunkSize) {
+            reader.feed(output.substring(start, Math.min(output.length(), start + chunkSize)));
+        }
+        boolean complete = reader.finish();
+        assertThat(reader.elements()).isEqualTo(elements.size());
+        return new Streamed<>(elements, complete);
+    }
+
+    record Pet(String name, int age) {
+    }
+
+    private record Streamed<T>(List<T> elements, boolean complete) {
+    }
+}
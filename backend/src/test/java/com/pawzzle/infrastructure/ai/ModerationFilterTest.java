@@ -0,0 +1,97 @@
+package com.pawzzle.infrastructure.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.pawzzle.infrastructure.ai.ModerationFilter.Decision;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+// Runs against the shipped blocklist, so a term edit that breaks one of these cases shows up here.
+class ModerationFilterTest {
+    private final ModerationFilter filter =
+        new ModerationFilter(new SimpleMeterRegistry(), true, new ClassPathResource("moderation-blocklist.txt"));
+
+    @Test
+    void blocksListedTerms() {
+        assertThat(filter.check("我想虐猫")).isEqualTo(Decision.BLOCK);
+        assertThat(filter.check("I want to torture cats")).isEqualTo(Decision.BLOCK);
+    }
+
+    @Test
+    void foldsFullWidthAndHomoglyphs() {
+        assertThat(filter.check("ｎｕｅｍａｏ")).isEqualTo(Decision.BLOCK);
+        assertThat(filter.check("t0rture c@ts")).isEqualTo(Decision.BLOCK);
+        // Cyrillic о and а in place of the Latin letters.
+        assertThat(filter.check("tоrture cаts")).isEqualTo(Decision.BLOCK);
+        assertThat(filter.check("ＴＯＲＴＵＲＥ　ＣＡＴＳ")).isEqualTo(Decision.BLOCK);
+    }
+
+    @Test
+    void ignoresSpacingAndPunctuation() {
+        assertThat(filter.check("虐 猫")).isEqualTo(Decision.BLOCK);
+        assertThat(filter.check("虐-猫!")).isEqualTo(Decision.BLOCK);
+        assertThat(filter.check("k i l l the c a t")).isEqualTo(Decision.BLOCK);
+    }
+
+    @Test
+    void matchesPinyin() {
+        assertThat(filter.check("wo xiang nue mao")).isEqualTo(Decision.BLOCK);
+        assertThat(filter.check("nüegou")).isEqualTo(Decision.BLOCK);
+        assertThat(filter.check("taoyan dongwu")).isEqualTo(Decision.FLAG);
+    }
+
+    @Test
+    void negationDowngradesBlockToFlag() {
+        assertThat(filter.check("我从不虐猫")).isEqualTo(Decision.FLAG);
+        assertThat(filter.check("I would never torture cats")).isEqualTo(Decision.FLAG);
+        assertThat(filter.check("I don't torture cats")).isEqualTo(Decision.FLAG);
+        assertThat(filter.check("I'm against abuse animals")).isEqualTo(Decision.FLAG);
+    }
+
+    @Test
+    void negationMustBeAWholeWord() {
+        // "another" ends in "not"; "cannot" is not in the list either.
+        assertThat(filter.check("saw another torture cats video")).isEqualTo(Decision.BLOCK);
+        assertThat(filter.check("snot torture cats")).isEqualTo(Decision.BLOCK);
+    }
+
+    @Test
+    void negationFarBeforeTheTermDoesNotCount() {
+        assertThat(filter.check("I never said much, but I want to torture cats")).isEqualTo(Decision.BLOCK);
+    }
+
+    @Test
+    void flagTermsOnlyFlag() {
+        assertThat(filter.check("I hate cats")).isEqualTo(Decision.FLAG);
+        assertThat(filter.check("我讨厌狗")).isEqualTo(Decision.FLAG);
+    }
+
+    @Test
+    void blockWinsOverFlagInTheSameMessage() {
+        assertThat(filter.check("I hate cats and want to torture cats")).isEqualTo(Decision.BLOCK);
+    }
+
+    @Test
+    void passesOrdinaryText() {
+        assertThat(filter.check("我家的猫很可爱，每天都陪我")).isEqualTo(Decision.PASS);
+        assertThat(filter.check("I work from home and love long walks with dogs")).isEqualTo(Decision.PASS);
+        assertThat(filter.check("")).isEqualTo(Decision.PASS);
+        assertThat(filter.check(null)).isEqualTo(Decision.PASS);
+    }
+
+    @Test
+    void latinTermsDoNotMatchInsideWords() {
+        // "skill the cat" contains "kill the cat" once spaces are dropped.
+        assertThat(filter.check("She has great hunting skill, the cat is fast")).isEqualTo(Decision.PASS);
+        assertThat(filter.check("That was a clusterfuck")).isEqualTo(Decision.PASS);
+    }
+
+    @Test
+    void disabledFilterPassesEverything() {
+        ModerationFilter disabled =
+            new ModerationFilter(new SimpleMeterRegistry(), false, new ClassPathResource("moderation-blocklist.txt"));
+
+        assertThat(disabled.check("torture cats")).isEqualTo(Decision.PASS);
+    }
+}
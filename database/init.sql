@@ -49,3 +49,5 @@ CREATE INDEX IF NOT EXISTS idx_chat_messages_thread_id ON chat_messages(thread_i
 -- Adoption orders/processes
 ALTER TABLE IF EXISTS pets
     ADD COLUMN IF NOT EXISTS image_url VARCHAR(2048);
+ALTER TABLE IF EXISTS pets
+    ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP DEFAULT NOW();
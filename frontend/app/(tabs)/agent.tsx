@@ -63,6 +63,7 @@ type EvaluationResponse = {
   nextQuestion?: string | null;
   prompt?: string | null;
   rawResponse?: string | null;
+  sessionId?: string | null;
 };
 
 type EvaluationSummary = {
@@ -351,6 +352,7 @@ export default function AgentScreen() {
   const [quizStep, setQuizStep] = React.useState(0);
   const scrollRef = React.useRef<ScrollView | null>(null);
   const hasStartedRef = React.useRef(false);
+  const sessionIdRef = React.useRef<string | null>(null);
   const quizInitRef = React.useRef(false);
   const streamingTimeoutRef = React.useRef<ReturnType<typeof setTimeout> | null>(null);
   const { startRecording, stopRecording, isRecording } = useVoiceRecorder();
@@ -480,6 +482,7 @@ export default function AgentScreen() {
 
   const resetConversationState = React.useCallback(() => {
     stopStreamingReply();
+    sessionIdRef.current = null;
     setMessages([]);
     setInput('');
     setStatus('idle');
@@ -494,6 +497,7 @@ export default function AgentScreen() {
     setQuizAnswers(answers);
     setActiveSystemPrompt(buildSystemPromptFromQuiz(answers));
     hasStartedRef.current = false;
+    sessionIdRef.current = null;
     // Don't reset messages — keep quiz conversation visible
     setInput('');
     setStatus('idle');
@@ -628,8 +632,9 @@ export default function AgentScreen() {
     setStatus('evaluating');
     setErrorMessage(null);
 
-    requestEvaluation([], activeSystemPrompt)
+    requestEvaluation(null, '', [], activeSystemPrompt)
       .then((data) => {
+        sessionIdRef.current = data?.sessionId ?? null;
         if ((data?.ismalicious ?? 0) === 1) {
           handleMaliciousInterruption();
           return undefined;
@@ -747,10 +752,15 @@ export default function AgentScreen() {
     setErrorMessage(null);
 
     setStatus('evaluating');
-    const nextMessages = [...messages, userMessage];
 
     try {
-      const data = await requestEvaluation(buildAgentMessages(nextMessages), activeSystemPrompt);
+      const data = await requestEvaluation(
+        sessionIdRef.current,
+        trimmed,
+        buildAgentMessages(messages),
+        activeSystemPrompt
+      );
+      sessionIdRef.current = data?.sessionId ?? null;
       if ((data?.ismalicious ?? 0) === 1) {
         handleMaliciousInterruption();
         return;
@@ -1277,11 +1287,32 @@ function SurveyScreen({
   );
 }
 
-async function requestEvaluation(messages: AgentMessage[], contextPrompt: string) {
-  return postJson<EvaluationResponse>('/api/agent/evaluate', {
-    messages,
-    contextPrompt,
-  });
+// The server keeps the interview transcript; the full history is only sent to seed a new session.
+// A 409 means the server no longer has this session, so the history is sent again to rebuild it.
+async function requestEvaluation(
+  sessionId: string | null,
+  message: string,
+  messages: AgentMessage[],
+  contextPrompt: string
+) {
+  try {
+    return await postJson<EvaluationResponse>('/api/agent/evaluate', {
+      sessionId,
+      message,
+      messages: sessionId ? undefined : messages,
+      contextPrompt,
+    });
+  } catch (error) {
+    if (!sessionId || !(error instanceof RequestError) || error.status !== 409) {
+      throw error;
+    }
+    return postJson<EvaluationResponse>('/api/agent/evaluate', {
+      sessionId: null,
+      message,
+      messages,
+      contextPrompt,
+    });
+  }
 }
 
 async function requestRecommendation(
@@ -1467,12 +1498,18 @@ async function postJson<T = unknown>(path: string, payload: Record<string, unkno
       typeof data === 'object' && data && 'message' in data
         ? String((data as { message?: string }).message ?? '')
         : response.statusText ?? '';
-    throw new Error(ensureChinese(message, '请求失败'));
+    throw new RequestError(ensureChinese(message, '请求失败'), response.status);
   }
 
   return data;
 }
 
+class RequestError extends Error {
+  constructor(message: string, readonly status: number) {
+    super(message);
+  }
+}
+
 function wait(durationMs: number) {
   return new Promise<void>((resolve) => {
     setTimeout(resolve, durationMs);